@@ -32,6 +32,7 @@ export default function Layout() {
   const [drawerOpen, setDrawerOpen] = useState(false);
   const [profileMenuAnchor, setProfileMenuAnchor] = useState(null);
   const [notificationsAnchor, setNotificationsAnchor] = useState(null);
+  const [streamConnected, setStreamConnected] = useState(false);
   const theme = useTheme();
   const isMobile = useMediaQuery(theme.breakpoints.down('md'));
   const navigate = useNavigate();
@@ -66,12 +67,32 @@ export default function Layout() {
     navigate('/login');
   };
   
+  // Live unread count and new notifications over SSE; polling only runs while the stream is down
+  useEffect(() => {
+    if (!isAuthenticated) return undefined;
+
+    const source = notificationApi.openStream();
+    source.onopen = () => setStreamConnected(true);
+    source.onerror = () => setStreamConnected(false);
+    source.addEventListener('unread-count', (event) => {
+      queryClient.setQueryData(['unreadNotifications'], { data: Number(event.data) });
+    });
+    source.addEventListener('notification', () => {
+      queryClient.invalidateQueries(['notifications']);
+    });
+
+    return () => {
+      source.close();
+      setStreamConnected(false);
+    };
+  }, [isAuthenticated, queryClient]);
+
   const { data: unreadCount } = useQuery(
     ['unreadNotifications'], 
     () => notificationApi.getUnreadCount(),
     { 
       enabled: isAuthenticated,
-      refetchInterval: 30000, // Refresh every 30 seconds
+      refetchInterval: streamConnected ? false : 30000, // Refresh every 30 seconds without the stream
     }
   );
 
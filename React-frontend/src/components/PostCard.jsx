@@ -35,7 +35,7 @@ export default function PostCard({ post }) {
   const [selectedMedia, setSelectedMedia] = useState(null);
   
   const isOwner = currentUser?.id === post.userId;
-  const isLiked = post.likedBy?.includes(currentUser?.id);
+  const isLiked = post.likedByMe ?? post.likedBy?.includes(currentUser?.id);
   const isSaved = post.savedBy?.includes(currentUser?.id);
   const hasMedia = post.mediaUrls && post.mediaUrls.length > 0;
 
@@ -144,8 +144,10 @@ export default function PostCard({ post }) {
     }
   };
 
-  const renderMedia = (url) => {
+  // Images show the feed-sized variant the server picked; clicking opens the original
+  const renderMedia = (url, index) => {
     const fullUrl = getFullImageUrl(url);
+    const previewUrl = getFullImageUrl(post.mediaPreviewUrls?.[index] || url);
     if (isVideo(url)) {
       return (
         <Box sx={{ position: 'relative', width: '100%', display: 'flex', justifyContent: 'center' }}>
@@ -179,7 +181,7 @@ export default function PostCard({ post }) {
     return (
       <Box sx={{ width: '100%', display: 'flex', justifyContent: 'center' }}>
         <img
-          src={fullUrl}
+          src={previewUrl}
           alt="Post media"
           style={{ 
             width: '80%',
@@ -263,7 +265,7 @@ export default function PostCard({ post }) {
                 Media cannot be changed during edit
               </Typography>
               {post.mediaUrls.length === 1 ? (
-                renderMedia(post.mediaUrls[0])
+                renderMedia(post.mediaUrls[0], 0)
               ) : (
                 <ImageList 
                   cols={post.mediaUrls.length > 3 ? 2 : post.mediaUrls.length} 
@@ -272,7 +274,7 @@ export default function PostCard({ post }) {
                 >
                   {post.mediaUrls.map((url, index) => (
                     <ImageListItem key={index}>
-                      {renderMedia(url)}
+                      {renderMedia(url, index)}
                     </ImageListItem>
                   ))}
                 </ImageList>
@@ -302,7 +304,7 @@ export default function PostCard({ post }) {
         {hasMedia && !editMode && (
           <Box sx={{ my: 2 }}>
             {post.mediaUrls.length === 1 ? (
-              renderMedia(post.mediaUrls[0])
+              renderMedia(post.mediaUrls[0], 0)
             ) : (
               <ImageList 
                 cols={post.mediaUrls.length > 3 ? 2 : post.mediaUrls.length} 
@@ -311,7 +313,7 @@ export default function PostCard({ post }) {
               >
                 {post.mediaUrls.map((url, index) => (
                   <ImageListItem key={index}>
-                    {renderMedia(url)}
+                    {renderMedia(url, index)}
                   </ImageListItem>
                 ))}
               </ImageList>
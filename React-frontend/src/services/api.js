@@ -110,6 +110,8 @@ export const postApi = {
   getUserPosts: (userId) => api.get(`/posts/user/${userId}`),
   likePost: (postId) => api.post(`/posts/${postId}/like`),
   unlikePost: (postId) => api.post(`/posts/${postId}/unlike`),
+  getPostLikes: (postId, page = 0, size = 20) =>
+    api.get(`/posts/${postId}/likes?page=${page}&size=${size}`),
   savePost: (postId) => api.post(`/posts/${postId}/save`),
   unsavePost: (postId) => api.delete(`/posts/${postId}/save`),
   getSavedPosts: () => api.get('/users/me/saved-posts'),
@@ -267,5 +269,9 @@ export const notificationApi = {
     api.put(`/notifications/${notificationId}/read`),
   
   markAllAsRead: () => 
-    api.put('/notifications/mark-all-read')
+    api.put('/notifications/mark-all-read'),
+
+  // EventSource can't send an Authorization header, so the token goes in the query string
+  openStream: () =>
+    new EventSource(`${API_BASE_URL}/notifications/stream?access_token=${encodeURIComponent(localStorage.getItem('token') || '')}`)
 };
\ No newline at end of file
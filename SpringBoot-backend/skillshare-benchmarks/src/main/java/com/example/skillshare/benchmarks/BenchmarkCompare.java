@@ -0,0 +1,65 @@
+package com.example.skillshare.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Prints the score change per benchmark and parameter set between two JMH JSON result files:
+//   java -cp target/benchmarks.jar com.example.skillshare.benchmarks.BenchmarkCompare base.json head.json
+// Exits with 1 when any benchmark got slower by more than the threshold (default 10%) so CI can flag it.
+// Only meaningful for time-per-operation modes, where a higher score is worse.
+public final class BenchmarkCompare {
+
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: BenchmarkCompare <base.json> <head.json> [threshold-percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, JsonNode> base = read(args[0]);
+        Map<String, JsonNode> head = read(args[1]);
+
+        boolean regressed = false;
+        System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "base", "head", "change");
+        for (Map.Entry<String, JsonNode> entry : new TreeMap<>(head).entrySet()) {
+            JsonNode after = entry.getValue().path("primaryMetric");
+            JsonNode before = base.containsKey(entry.getKey()) ? base.get(entry.getKey()).path("primaryMetric") : null;
+            String unit = after.path("scoreUnit").asText();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s  %s%n", entry.getKey(), "-", after.path("score").asDouble(),
+                        "new", unit);
+                continue;
+            }
+
+            double change = (after.path("score").asDouble() - before.path("score").asDouble())
+                    / before.path("score").asDouble() * 100;
+            boolean slower = change > threshold;
+            regressed |= slower;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), before.path("score").asDouble(),
+                    after.path("score").asDouble(), change, unit, slower ? "  REGRESSION" : "");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    // Keyed by benchmark name plus its @Param values
+    private static Map<String, JsonNode> read(String path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(new File(path))) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.example.skillshare.benchmarks.", ""));
+            result.path("params").fields().forEachRemaining(param ->
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
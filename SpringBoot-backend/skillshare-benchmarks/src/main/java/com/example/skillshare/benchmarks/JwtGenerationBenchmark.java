@@ -0,0 +1,53 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.model.User;
+import com.example.skillshare.security.JwtTokenProvider;
+import com.example.skillshare.security.oauth2.UserPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Login-side cost of the token provider:
+//   generate            - signing a token for a principal
+//   generateAndValidate - a fresh token's first verification, which never hits the cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtGenerationBenchmark {
+
+    private JwtTokenProvider provider;
+    private UserPrincipal principal;
+
+    @Setup
+    public void setUp() {
+        provider = JwtValidationBenchmark.provider(0);
+
+        User user = new User();
+        user.setId("6620f1c2a4b5c6d7e8f90123");
+        user.setEmail("alice@example.com");
+        user.setRole("USER");
+        principal = UserPrincipal.create(user);
+    }
+
+    @Benchmark
+    public String generate() {
+        return provider.generateToken(principal);
+    }
+
+    @Benchmark
+    public boolean generateAndValidate() {
+        return provider.validateToken(provider.generateToken(principal));
+    }
+}
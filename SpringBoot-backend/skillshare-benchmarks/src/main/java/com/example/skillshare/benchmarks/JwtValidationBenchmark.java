@@ -0,0 +1,81 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.model.User;
+import com.example.skillshare.security.JwtTokenProvider;
+import com.example.skillshare.security.oauth2.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.Key;
+import java.util.concurrent.TimeUnit;
+
+// Per-request cost of turning a bearer token into claims:
+//   legacyValidateThenParse - the old filter path: validateToken + getUsernameFromToken,
+//                             each building a new parser and verifying the HMAC again
+//   singleParse             - one verification with the shared parser, cache disabled
+//   cachedRepeatToken       - the same client's token served from the verified-token cache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtValidationBenchmark {
+
+    private static final String SECRET = "gyu4w67nct4gr8o24crweprudg3raqw37grtewgm37g8rmyewuly8sw";
+
+    private Key key;
+    private JwtTokenProvider uncachedProvider;
+    private JwtTokenProvider cachedProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        uncachedProvider = provider(0);
+        cachedProvider = provider(10_000);
+
+        User user = new User();
+        user.setId("6620f1c2a4b5c6d7e8f90123");
+        user.setEmail("alice@example.com");
+        user.setRole("USER");
+        token = cachedProvider.generateToken(UserPrincipal.create(user));
+        cachedProvider.getVerifiedClaims(token);
+    }
+
+    @Benchmark
+    public String legacyValidateThenParse() {
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return uncachedProvider.getVerifiedClaims(token);
+    }
+
+    @Benchmark
+    public Claims cachedRepeatToken() {
+        return cachedProvider.getVerifiedClaims(token);
+    }
+
+    static JwtTokenProvider provider(int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        BenchmarkSupport.setField(provider, "jwtSecret", SECRET);
+        BenchmarkSupport.setField(provider, "jwtExpirationInMs", 86_400_000);
+        BenchmarkSupport.setField(provider, "verifiedTokenCacheSize", cacheSize);
+        provider.init();
+        return provider;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.model.LearningPlan;
+import com.example.skillshare.model.LearningStep;
+import com.example.skillshare.service.LearningPlanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Progress recalculation that runs after every step edit, on plans of growing size.
+// The method is private and otherwise only reachable through a repository save, so it is invoked directly.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LearningPlanProgressBenchmark {
+
+    private static final MethodHandle UPDATE_PROGRESS = BenchmarkSupport.privateMethod(
+            LearningPlanService.class, "updateProgressBasedOnSteps", LearningPlan.class);
+
+    @Param({"10", "1000", "100000"})
+    public int steps;
+
+    private LearningPlanService learningPlanService;
+    private LearningPlan plan;
+
+    @Setup
+    public void setUp() {
+        learningPlanService = new LearningPlanService(null, null, null);
+
+        List<LearningStep> stepList = new ArrayList<>(steps);
+        for (int i = 0; i < steps; i++) {
+            // Every third step done, so the branch in the loop is not trivially predictable
+            stepList.add(new LearningStep("step-" + i, "Step " + i, "Description " + i, i % 3 == 0, new Date()));
+        }
+        plan = new LearningPlan();
+        plan.setSteps(stepList);
+    }
+
+    @Benchmark
+    public int updateProgressBasedOnSteps() throws Throwable {
+        UPDATE_PROGRESS.invoke(learningPlanService, plan);
+        return plan.getProgress();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.controller.MediaController;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// MediaController behind a real Tomcat NIO connector, over loopback HTTP:
+//   fullFile   - GET of the whole file, as a feed image or a video without seeking
+//   rangeSlice - 1 MiB Range requests spread over the file, as a video player seeking
+// transfer=sendfile lets the connector write the file zero-copy; stream disables sendfile so the body goes
+// through FileChannel.transferTo into the servlet output stream. The "bytes" counter is bytes per second.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class MediaServingBenchmark {
+
+    private static final String FILE_NAME = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855.mp4";
+    private static final int SLICE = 1024 * 1024;
+
+    @Param({"1", "64"})
+    public int fileSizeMb;
+
+    @Param({"sendfile", "stream"})
+    public String transfer;
+
+    private Path uploadDir;
+    private Tomcat tomcat;
+    private HttpClient client;
+    private URI uri;
+    private long fileSize;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Transferred {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Seek {
+        private final Random random = new Random(42);
+    }
+
+    @Setup
+    public void setUp() throws IOException, LifecycleException {
+        uploadDir = Files.createTempDirectory("media-bench");
+        fileSize = (long) fileSizeMb * 1024 * 1024;
+        byte[] chunk = new byte[SLICE];
+        new Random(7).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(uploadDir.resolve(FILE_NAME))) {
+            for (long written = 0; written < fileSize; written += chunk.length) {
+                out.write(chunk);
+            }
+        }
+
+        MediaController mediaController = new MediaController();
+        BenchmarkSupport.setField(mediaController, "uploadDir", uploadDir.toString());
+        BenchmarkSupport.setField(mediaController, "legacyMaxAgeSeconds", 86400L);
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(uploadDir.resolve("tomcat").toString());
+        Connector connector = new Connector();
+        connector.setPort(0);
+        connector.setProperty("useSendfile", Boolean.toString(transfer.equals("sendfile")));
+        tomcat.setConnector(connector);
+        Context context = tomcat.addContext("", uploadDir.toString());
+        Tomcat.addServlet(context, "media", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                mediaController.serve(request.getPathInfo().substring(1), request, response);
+            }
+        });
+        context.addServletMappingDecoded("/uploads/*", "media");
+        tomcat.start();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        uri = URI.create("http://127.0.0.1:" + connector.getLocalPort() + "/uploads/" + FILE_NAME);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private long drain(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            return body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public long fullFile(Transferred transferred) throws IOException, InterruptedException {
+        long read = drain(HttpRequest.newBuilder(uri).GET().build());
+        transferred.bytes += read;
+        return read;
+    }
+
+    @Benchmark
+    public long rangeSlice(Transferred transferred, Seek seek) throws IOException, InterruptedException {
+        long start = fileSize <= SLICE ? 0 : (long) (seek.random.nextDouble() * (fileSize - SLICE));
+        long read = drain(HttpRequest.newBuilder(uri)
+                .header("Range", "bytes=" + start + "-" + (start + SLICE - 1))
+                .GET().build());
+        transferred.bytes += read;
+        return read;
+    }
+}
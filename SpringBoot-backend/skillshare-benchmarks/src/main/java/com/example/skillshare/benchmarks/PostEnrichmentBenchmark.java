@@ -0,0 +1,112 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.PostLike;
+import com.example.skillshare.model.User;
+import com.example.skillshare.repository.PostLikeRepository;
+import com.example.skillshare.repository.UserRepository;
+import com.example.skillshare.service.AuthorResolver;
+import com.example.skillshare.service.PostLikeService;
+import com.example.skillshare.service.UserSummaryCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// What PostController does to every page before returning it: author fields from the user summary cache
+// (or the repository on a miss) and the viewer's likedByMe flags from one post_likes lookup.
+// Repositories are in-memory, so this measures the service-side work, not the database.
+//   warmCache - every author already cached
+//   coldCache - cache disabled, every page resolves its authors through the repository
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostEnrichmentBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    @Param({"5", "100"})
+    public int distinctAuthors;
+
+    private AuthorResolver warmResolver;
+    private AuthorResolver coldResolver;
+    private PostLikeService postLikeService;
+    private List<Post> page;
+
+    @Setup
+    public void setUp() {
+        Map<String, User> users = new HashMap<>();
+        for (int i = 0; i < distinctAuthors; i++) {
+            User user = new User();
+            user.setId("user-" + i);
+            user.setName("User " + i);
+            user.setUsername("user" + i);
+            user.setProfilePicture("/uploads/avatar-" + i + ".jpg");
+            users.put(user.getId(), user);
+        }
+        UserRepository userRepository = BenchmarkSupport.repository(UserRepository.class, Map.of(
+                "findSummariesByIdIn", args -> {
+                    List<User> found = new ArrayList<>();
+                    for (Object id : (Collection<?>) args[0]) {
+                        User user = users.get(id);
+                        if (user != null) {
+                            found.add(user);
+                        }
+                    }
+                    return found;
+                }));
+
+        warmResolver = new AuthorResolver(userRepository, new UserSummaryCache(10_000, 300), null);
+        coldResolver = new AuthorResolver(userRepository, new UserSummaryCache(0, 300), null);
+
+        page = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Post post = new Post();
+            post.setId("post-" + i);
+            post.setUserId("user-" + i % distinctAuthors);
+            page.add(post);
+        }
+        warmResolver.enrichPosts(page);
+
+        // The viewer liked every other post on the page
+        List<PostLike> likes = new ArrayList<>();
+        for (int i = 0; i < pageSize; i += 2) {
+            likes.add(new PostLike("post-" + i, "viewer"));
+        }
+        PostLikeRepository postLikeRepository = BenchmarkSupport.repository(PostLikeRepository.class, Map.of(
+                "findByUserIdAndPostIdIn", args -> likes));
+        postLikeService = new PostLikeService(postLikeRepository, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Post> warmCache() {
+        warmResolver.enrichPosts(page);
+        postLikeService.markLikedByViewer(page, "viewer");
+        return page;
+    }
+
+    @Benchmark
+    public List<Post> coldCache() {
+        coldResolver.enrichPosts(page);
+        postLikeService.markLikedByViewer(page, "viewer");
+        return page;
+    }
+}
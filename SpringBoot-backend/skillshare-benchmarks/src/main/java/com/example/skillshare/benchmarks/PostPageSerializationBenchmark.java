@@ -0,0 +1,80 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.model.Post;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Response body cost of a feed page, as the controllers return it.
+// Posts no longer embed likedBy, so the payload grows with page size and media URLs per post instead.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostPageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    @Param({"1", "50"})
+    public int mediaUrlsPerPost;
+
+    private ObjectMapper objectMapper;
+    private Page<Post> page;
+
+    @Setup
+    public void setUp() {
+        // Same defaults Spring Boot applies to the MVC message converter
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Post> posts = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Post post = new Post();
+            post.setId(String.format("6620f1c2a4b5c6d7e8%06d", i));
+            post.setUserId("6620f1c2a4b5c6d7e8f9" + (i % 10));
+            post.setContent("Post " + i + " " + "Learning to cook risotto step by step. ".repeat(10));
+            post.setSkillCategory("Cooking");
+            List<String> mediaUrls = new ArrayList<>(mediaUrlsPerPost);
+            for (int m = 0; m < mediaUrlsPerPost; m++) {
+                mediaUrls.add("/uploads/" + i + "-" + m + "-3f9a1c2e7b4d4f0a9e6b.jpg");
+            }
+            post.setMediaUrls(mediaUrls);
+            post.setLikesCount(i * 3);
+            post.setCommentsCount(i);
+            post.setCreatedAt(new Date(1_700_000_000_000L + i));
+            post.setUpdatedAt(new Date(1_700_000_000_000L + i));
+            post.setUserName("Alice " + i % 10);
+            post.setUsername("alice" + i % 10);
+            post.setUserProfilePicture("/uploads/avatar-" + i % 10 + ".jpg");
+            post.setLikedByMe(i % 2 == 0);
+            posts.add(post);
+        }
+        page = new PageImpl<>(posts, PageRequest.of(0, pageSize, Sort.by(Sort.Direction.DESC, "createdAt")), 10_000);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.skillshare.benchmarks;
+
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import com.example.skillshare.service.FileStorageService;
+import com.example.skillshare.service.ImageVariantService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The storage half of PostController.createPost for a post with 1, 5 or 10 attachments: hash, write to the
+// upload dir and upsert stored_files (the in-memory engine from the perf profile stands in for Mongo).
+//   sequential - one storeFile after another, as createPost did before
+//   parallel   - storeAll on the upload pool
+// Every invocation uploads fresh bytes, so nothing is a dedup hit; the upload dir is emptied between them.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostUploadBenchmark {
+
+    @Param({"1", "5", "10"})
+    public int files;
+
+    // 1 MiB each keeps 10 files within spring.servlet.multipart.max-request-size
+    @Param({"1024"})
+    public int fileSizeKb;
+
+    private Path uploadDir;
+    private ImageVariantService imageVariantService;
+    private FileStorageService fileStorageService;
+    private List<byte[]> contents;
+    private long invocation;
+
+    @Setup
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("upload-bench");
+        MongoTemplate mongoTemplate = new MongoTemplate(
+                new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("skillshare")));
+        imageVariantService = new ImageVariantService(mongoTemplate, uploadDir.toString(), 128, 1280,
+                24_000_000, 1, 1);
+        fileStorageService = new FileStorageService(mongoTemplate, imageVariantService, 4, 50);
+        BenchmarkSupport.setField(fileStorageService, "uploadDir", uploadDir.toString());
+
+        Random random = new Random(42);
+        contents = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            byte[] content = new byte[fileSizeKb * 1024];
+            random.nextBytes(content);
+            contents.add(content);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        fileStorageService.shutdown();
+        imageVariantService.shutdown();
+        deleteRecursively(uploadDir);
+    }
+
+    // New leading bytes per invocation give every file a new hash
+    private List<MultipartFile> nextUploads() {
+        invocation++;
+        List<MultipartFile> uploads = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            byte[] content = contents.get(i);
+            ByteBuffer.wrap(content).putLong(invocation).putInt(i);
+            uploads.add(new BenchmarkFile("photo-" + i + ".jpg", content));
+        }
+        return uploads;
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearUploads() throws IOException {
+        try (Stream<Path> stored = Files.list(uploadDir)) {
+            for (Path file : stored.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        List<MultipartFile> uploads = nextUploads();
+        List<String> urls = new ArrayList<>(uploads.size());
+        for (MultipartFile upload : uploads) {
+            urls.add(fileStorageService.storeFile(upload));
+        }
+        return urls;
+    }
+
+    @Benchmark
+    public List<FileStorageService.StoredUpload> parallel() {
+        return fileStorageService.storeAll(nextUploads(), null);
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // Bytes already in memory, like a multipart part under the size threshold
+    private record BenchmarkFile(String originalFilename, byte[] content) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "files";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return content.length == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.write(dest.toPath(), content);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package com.example.skillshare.config;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Driver-level command timings per collection, command and repository method, plus a sampled slow-query log.
+// Prometheus gets the same timings as skillshare.mongo.commands; the histograms and the slow-query log are served
+// by MongoCommandsEndpoint on the management port.
+@Slf4j
+@Component
+public class MongoCommandMetrics implements CommandListener, MeterBinder {
+
+    // Set by MongoMetricsConfig's repository interceptor for the duration of a repository call
+    static final ThreadLocal<String> REPOSITORY_METHOD = new ThreadLocal<>();
+
+    private static final String TEMPLATE = "(MongoTemplate)";
+
+    private static final Set<String> IGNORED_COMMANDS = Set.of("hello", "isMaster", "ismaster", "ping",
+            "buildInfo", "saslStart", "saslContinue", "endSessions", "explain", "killCursors");
+
+    // Which part of each command carries the query, for the filter shape and the explain
+    private static final Map<String, String> QUERY_FIELDS = Map.of(
+            "find", "filter",
+            "count", "query",
+            "distinct", "query",
+            "findAndModify", "query",
+            "aggregate", "pipeline",
+            "delete", "deletes",
+            "update", "updates");
+
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final long slowThresholdNanos;
+    private final int slowLogSize;
+    private final boolean explainSlow;
+    private final ThreadPoolExecutor explainer;
+
+    private final Map<Integer, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byCollection = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byCommand = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> byRepositoryMethod = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ConcurrentLinkedDeque<>();
+    private volatile MeterRegistry registry;
+
+    public MongoCommandMetrics(ObjectProvider<MongoTemplate> mongoTemplate,
+                               @Value("${mongo.metrics.slow-threshold-ms:100}") long slowThresholdMillis,
+                               @Value("${mongo.metrics.slow-log-size:100}") int slowLogSize,
+                               @Value("${mongo.metrics.explain-slow:true}") boolean explainSlow) {
+        this.mongoTemplate = mongoTemplate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowLogSize = slowLogSize;
+        this.explainSlow = explainSlow;
+
+        // One explain at a time and a short queue: a burst of slow queries must not become a burst of explains
+        this.explainer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mongo-slow-query-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String commandName = event.getCommandName();
+        if (IGNORED_COMMANDS.contains(commandName)) {
+            return;
+        }
+
+        BsonDocument command = event.getCommand();
+        String collection = collectionOf(commandName, command);
+        String method = REPOSITORY_METHOD.get();
+
+        // The command document is only valid during this callback, so copy just the query part
+        String queryField = QUERY_FIELDS.get(commandName);
+        BsonValue query = queryField != null && command.containsKey(queryField)
+                ? copyOf(command.get(queryField)) : null;
+        BsonValue sort = command.containsKey("sort") ? copyOf(command.get("sort")) : null;
+
+        inFlight.put(event.getRequestId(), new InFlight(event.getDatabaseName(), collection, commandName,
+                method != null ? method : TEMPLATE, query, sort));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        InFlight command = inFlight.remove(event.getRequestId());
+        if (command == null) {
+            return;
+        }
+
+        long elapsed = event.getElapsedTime(TimeUnit.NANOSECONDS);
+        long docs = docsReturned(event.getResponse());
+        record(command, elapsed, docs, false);
+
+        if (elapsed >= slowThresholdNanos) {
+            recordSlow(command, elapsed, docs);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        InFlight command = inFlight.remove(event.getRequestId());
+        if (command != null) {
+            record(command, event.getElapsedTime(TimeUnit.NANOSECONDS), 0, true);
+        }
+    }
+
+    private void record(InFlight command, long elapsedNanos, long docs, boolean failed) {
+        byCollection.computeIfAbsent(command.collection, key -> new LatencyHistogram())
+                .record(elapsedNanos, docs, failed);
+        byCommand.computeIfAbsent(command.commandName, key -> new LatencyHistogram())
+                .record(elapsedNanos, docs, failed);
+        byRepositoryMethod.computeIfAbsent(command.method, key -> new LatencyHistogram())
+                .record(elapsedNanos, docs, failed);
+
+        MeterRegistry meters = registry;
+        if (meters != null) {
+            Timer.builder("skillshare.mongo.commands")
+                    .tag("collection", command.collection)
+                    .tag("command", command.commandName)
+                    .tag("method", command.method)
+                    .tag("outcome", failed ? "failure" : "success")
+                    .register(meters)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordSlow(InFlight command, long elapsedNanos, long docs) {
+        SlowQuery slow = new SlowQuery(command, elapsedNanos, docs);
+        slowQueries.addFirst(slow);
+        while (slowQueries.size() > slowLogSize) {
+            slowQueries.pollLast();
+        }
+        MeterRegistry meters = registry;
+        if (meters != null) {
+            Counter.builder("skillshare.mongo.commands.slow")
+                    .tag("collection", command.collection)
+                    .tag("method", command.method)
+                    .register(meters)
+                    .increment();
+        }
+        log.warn("Slow Mongo {} on {} from {} took {} ms, filter {}", command.commandName, command.collection,
+                command.method, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), slow.filterShape);
+
+        if (explainSlow && isExplainable(command)) {
+            explainer.execute(() -> slow.plan = explain(command));
+        }
+    }
+
+    private static boolean isExplainable(InFlight command) {
+        return command.query != null
+                && (command.commandName.equals("find") || command.commandName.equals("count")
+                || command.commandName.equals("aggregate"));
+    }
+
+    private String explain(InFlight command) {
+        BsonDocument explained = new BsonDocument(command.commandName, new BsonString(command.collection));
+        explained.put(QUERY_FIELDS.get(command.commandName), command.query);
+        if (command.sort != null) {
+            explained.put("sort", command.sort);
+        }
+        if (command.commandName.equals("aggregate")) {
+            explained.put("cursor", new BsonDocument());
+        }
+
+        try {
+            Document result = mongoTemplate.getObject().getMongoDatabaseFactory()
+                    .getMongoDatabase(command.database)
+                    .runCommand(new BsonDocument("explain", explained).append("verbosity", new BsonString("queryPlanner")));
+            Document winningPlan = findWinningPlan(result);
+            return winningPlan == null ? "unknown" : summarize(winningPlan);
+        } catch (RuntimeException ex) {
+            return "explain failed: " + ex.getMessage();
+        }
+    }
+
+    // Aggregations nest the planner output inside their first stage, so search for it
+    @SuppressWarnings("unchecked")
+    private static Document findWinningPlan(Object node) {
+        if (node instanceof Document document) {
+            Object plan = document.get("winningPlan");
+            if (plan instanceof Document winning) {
+                return winning.get("queryPlan") instanceof Document queryPlan ? queryPlan : winning;
+            }
+            for (Object value : document.values()) {
+                Document found = findWinningPlan(value);
+                if (found != null) {
+                    return found;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object value : list) {
+                Document found = findWinningPlan(value);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    // "LIMIT > FETCH > IXSCAN(user_created_idx)"
+    private static String summarize(Document stage) {
+        StringBuilder summary = new StringBuilder(stage.getString("stage"));
+        if (stage.containsKey("indexName")) {
+            summary.append('(').append(stage.getString("indexName")).append(')');
+        }
+        if (stage.get("inputStage") instanceof Document input) {
+            summary.append(" > ").append(summarize(input));
+        } else if (stage.get("inputStages") instanceof List<?> inputs) {
+            List<String> branches = new ArrayList<>();
+            for (Object input : inputs) {
+                branches.add(summarize((Document) input));
+            }
+            summary.append(" > [").append(String.join(", ", branches)).append(']');
+        }
+        return summary.toString();
+    }
+
+    private static String collectionOf(String commandName, BsonDocument command) {
+        if (commandName.equals("getMore")) {
+            return command.getString("collection", new BsonString("-")).getValue();
+        }
+        BsonValue target = command.get(commandName);
+        return target != null && target.isString() ? target.asString().getValue() : "-";
+    }
+
+    // BsonValue itself is not cloneable; a wrapping document deep-copies it
+    private static BsonValue copyOf(BsonValue value) {
+        return new BsonDocument("v", value).clone().get("v");
+    }
+
+    private static long docsReturned(BsonDocument response) {
+        if (response.isDocument("cursor")) {
+            BsonDocument cursor = response.getDocument("cursor");
+            BsonArray batch = cursor.isArray("firstBatch") ? cursor.getArray("firstBatch")
+                    : cursor.isArray("nextBatch") ? cursor.getArray("nextBatch") : null;
+            return batch == null ? 0 : batch.size();
+        }
+        BsonValue n = response.get("n");
+        return n != null && n.isNumber() ? n.asNumber().longValue() : 0;
+    }
+
+    // Values replaced by their type, so the shape groups queries that differ only in parameters
+    static BsonValue shapeOf(BsonValue value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isDocument()) {
+            BsonDocument shape = new BsonDocument();
+            value.asDocument().forEach((key, nested) -> shape.put(key, shapeOf(nested)));
+            return shape;
+        }
+        if (value.isArray()) {
+            BsonArray array = value.asArray();
+            BsonArray shape = new BsonArray();
+            // Keep pipelines and $and/$or branches, collapse plain value lists to one element
+            if (!array.isEmpty() && array.get(0).isDocument()) {
+                array.forEach(element -> shape.add(shapeOf(element)));
+            } else if (!array.isEmpty()) {
+                shape.add(shapeOf(array.get(0)));
+            }
+            return shape;
+        }
+        return new BsonString("?" + value.getBsonType().name().toLowerCase());
+    }
+
+    // Repository methods are a fixed set, so the method tag stays bounded
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("slowThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        snapshot.put("collections", snapshotOf(byCollection));
+        snapshot.put("commands", snapshotOf(byCommand));
+        snapshot.put("repositoryMethods", snapshotOf(byRepositoryMethod));
+        List<Map<String, Object>> slow = new ArrayList<>();
+        for (Iterator<SlowQuery> it = slowQueries.iterator(); it.hasNext(); ) {
+            slow.add(it.next().toMap());
+        }
+        snapshot.put("slowQueries", slow);
+        return snapshot;
+    }
+
+    // Only the histograms and the slow-query log; the Micrometer meters stay monotonic
+    public void reset() {
+        byCollection.clear();
+        byCommand.clear();
+        byRepositoryMethod.clear();
+        slowQueries.clear();
+    }
+
+    private static Map<String, Object> snapshotOf(Map<String, LatencyHistogram> histograms) {
+        Map<String, Object> snapshot = new TreeMap<>();
+        histograms.forEach((key, histogram) -> snapshot.put(key, histogram.snapshot()));
+        return snapshot;
+    }
+
+    private record InFlight(String database, String collection, String commandName, String method,
+                            BsonValue query, BsonValue sort) {
+    }
+
+    private static class SlowQuery {
+        private final Date at = new Date();
+        private final InFlight command;
+        private final long elapsedNanos;
+        private final long docs;
+        private final String filterShape;
+        private volatile String plan;
+
+        SlowQuery(InFlight command, long elapsedNanos, long docs) {
+            this.command = command;
+            this.elapsedNanos = elapsedNanos;
+            this.docs = docs;
+            BsonValue shape = shapeOf(command.query());
+            this.filterShape = shape == null ? null
+                    : shape.isDocument() ? shape.asDocument().toJson() : new BsonDocument("q", shape).toJson();
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("at", at);
+            map.put("collection", command.collection());
+            map.put("command", command.commandName());
+            map.put("repositoryMethod", command.method());
+            map.put("durationMs", elapsedNanos / 1_000_000.0);
+            map.put("docs", docs);
+            map.put("filterShape", filterShape);
+            map.put("plan", plan);
+            return map;
+        }
+    }
+
+    // Fixed log-scale buckets; percentiles resolve to the upper bound of the bucket they fall in
+    static class LatencyHistogram {
+
+        private static final long[] BOUNDS_MICROS = {100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+                100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000};
+
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder docs = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long elapsedNanos, long docsReturned, boolean failed) {
+            long micros = elapsedNanos / 1_000;
+            int bucket = 0;
+            while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            docs.add(docsReturned);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            double maxMs = maxNanos.get() / 1_000_000.0;
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("count", total);
+            snapshot.put("failures", failures.sum());
+            snapshot.put("docsReturned", docs.sum());
+            snapshot.put("meanMs", total == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / total);
+            snapshot.put("p50Ms", percentile(counts, total, 0.50, maxMs));
+            snapshot.put("p95Ms", percentile(counts, total, 0.95, maxMs));
+            snapshot.put("p99Ms", percentile(counts, total, 0.99, maxMs));
+            snapshot.put("maxMs", maxMs);
+
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                histogram.put(i < BOUNDS_MICROS.length ? "le" + BOUNDS_MICROS[i] / 1_000.0 + "ms" : "inf", counts[i]);
+            }
+            snapshot.put("histogram", histogram);
+            return snapshot;
+        }
+
+        private static double percentile(long[] counts, long total, double quantile, double maxMs) {
+            if (total == 0) {
+                return 0.0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(BOUNDS_MICROS[i] / 1_000.0, maxMs);
+                }
+            }
+            return maxMs;
+        }
+    }
+}
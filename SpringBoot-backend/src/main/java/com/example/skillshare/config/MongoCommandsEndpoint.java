@@ -0,0 +1,29 @@
+package com.example.skillshare.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// /actuator/mongocommands on the management port: latency histograms per collection, command and repository
+// method plus the slow-query log; DELETE starts a fresh window
+@Component
+@Endpoint(id = "mongocommands")
+@RequiredArgsConstructor
+public class MongoCommandsEndpoint {
+
+    private final MongoCommandMetrics mongoCommandMetrics;
+
+    @ReadOperation
+    public Map<String, Object> snapshot() {
+        return mongoCommandMetrics.snapshot();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        mongoCommandMetrics.reset();
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.skillshare.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+// Indexes are declared on the models (@CompoundIndex/@Indexed); this creates missing ones at startup and
+// reports drift between the declarations and what the database actually has
+@Slf4j
+@Component
+public class MongoIndexManager implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+    // create: build missing indexes; verify: only report them (missing unique indexes are always built)
+    private final String mode;
+    // warn: log drift; fail: stop startup on drift
+    private final String onDrift;
+
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    public MongoIndexManager(MongoTemplate mongoTemplate,
+                             @Value("${mongo.indexes.mode:create}") String mode,
+                             @Value("${mongo.indexes.on-drift:warn}") String onDrift) {
+        this.mongoTemplate = mongoTemplate;
+        this.mode = mode;
+        this.onDrift = onDrift;
+    }
+
+    // Runs once every singleton exists but before the web server starts, so nothing is served ahead of the check
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Duplicate-key handling (timeline fan-out, signup emails, likes) relies on the unique indexes, and
+        // writes served before one exists can leave duplicates that make its build fail, so these never wait
+        List<String> failed = createMissingUniqueIndexes();
+
+        if ("fail".equals(onDrift)) {
+            // Blocks startup on purpose: a drifted deployment should not start serving
+            List<String> drift = apply();
+            if (!drift.isEmpty()) {
+                throw new IllegalStateException("Mongo index drift: " + String.join("; ", drift));
+            }
+            return;
+        }
+        failed.forEach(index -> log.warn("Mongo unique index {}", index));
+
+        // Non-unique indexes only affect speed, so building them and reporting drift can follow in the background
+        Thread check = new Thread(this::apply, "mongo-index-check");
+        check.setDaemon(true);
+        check.start();
+    }
+
+    // Builds the declared unique indexes that have no index on the same keys or under the same name; anything
+    // else about them, such as changed options, is left to apply(). Returns the ones that could not be built.
+    public synchronized List<String> createMissingUniqueIndexes() {
+        List<String> failed = new ArrayList<>();
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (MongoPersistentEntity<?> entity : documentEntities()) {
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+                List<IndexInfo> existing = null;
+                for (IndexDefinition definition : resolver.resolveIndexFor(entity.getType())) {
+                    if (!definition.getIndexOptions().getBoolean("unique", false)) {
+                        continue;
+                    }
+                    if (existing == null) {
+                        existing = indexOps.getIndexInfo();
+                    }
+                    String name = definition.getIndexOptions().getString("name");
+                    List<String> keys = keySpec(definition);
+                    if (existing.stream().noneMatch(info -> keySpec(info).equals(keys)
+                            || Objects.equals(info.getName(), name))) {
+                        String label = entity.getCollection() + "." + name + " " + keys;
+                        try {
+                            indexOps.ensureIndex(definition);
+                            log.info("Created Mongo index {}", label);
+                        } catch (DataAccessException ex) {
+                            failed.add(label + " could not be created: " + ex.getMessage());
+                        }
+                    }
+                }
+            } catch (DataAccessException ex) {
+                failed.add("on " + entity.getCollection() + " could not be checked: " + ex.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    private List<MongoPersistentEntity<?>> documentEntities() {
+        List<MongoPersistentEntity<?>> entities = new ArrayList<>();
+        mongoTemplate.getConverter().getMappingContext().getPersistentEntities().stream()
+                .filter(entity -> entity.isAnnotationPresent(Document.class))
+                .sorted(Comparator.comparing(MongoPersistentEntity::getCollection))
+                .forEach(entities::add);
+        return entities;
+    }
+
+    // Returns the drift that remains after this run
+    public synchronized List<String> apply() {
+        List<String> created = new ArrayList<>();
+        List<String> retuned = new ArrayList<>();
+        List<String> drift = new ArrayList<>();
+        List<String> undeclared = new ArrayList<>();
+        try {
+            documentEntities().forEach(entity -> check(entity, created, retuned, drift, undeclared));
+        } catch (DataAccessException ex) {
+            log.warn("Could not verify Mongo indexes: {}", ex.getMessage());
+            drift.add("verification failed: " + ex.getMessage());
+        }
+
+        created.forEach(index -> log.info("Created Mongo index {}", index));
+        retuned.forEach(index -> log.info("Retuned Mongo index {}", index));
+        drift.forEach(index -> log.warn("Mongo index drift: {}", index));
+        undeclared.forEach(index -> log.info("Mongo index not declared on any model: {}", index));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("checkedAt", System.currentTimeMillis());
+        report.put("mode", mode);
+        report.put("created", created);
+        report.put("retuned", retuned);
+        report.put("drift", drift);
+        report.put("undeclared", undeclared);
+        lastReport = report;
+        return drift;
+    }
+
+    private void check(MongoPersistentEntity<?> entity, List<String> created, List<String> retuned,
+                       List<String> drift, List<String> undeclared) {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+        String collection = entity.getCollection();
+        List<IndexInfo> existing = indexOps.getIndexInfo();
+        List<IndexInfo> matched = new ArrayList<>();
+
+        for (IndexDefinition definition : resolver.resolveIndexFor(entity.getType())) {
+            String name = definition.getIndexOptions().getString("name");
+            List<String> keys = keySpec(definition);
+            String label = collection + "." + name + " " + keys;
+            Optional<IndexInfo> sameKeys = existing.stream()
+                    .filter(info -> keySpec(info).equals(keys))
+                    .findFirst();
+
+            if (sameKeys.isPresent()) {
+                matched.add(sameKeys.get());
+                List<String> differences = optionDrift(definition.getIndexOptions(), sameKeys.get());
+                if ("create".equals(mode) && retunable(definition.getIndexOptions(), sameKeys.get(), differences)) {
+                    try {
+                        retuneExpiry(collection, sameKeys.get().getName(), definition.getIndexOptions());
+                        retuned.add(label + " expireAfterSeconds="
+                                + definition.getIndexOptions().get("expireAfterSeconds"));
+                        continue;
+                    } catch (DataAccessException ex) {
+                        drift.add(label + " could not be retuned: " + ex.getMessage());
+                    }
+                }
+                differences.forEach(difference -> drift.add(label + " exists with " + difference));
+                continue;
+            }
+
+            Optional<IndexInfo> sameName = existing.stream()
+                    .filter(info -> Objects.equals(info.getName(), name))
+                    .findFirst();
+            if (sameName.isPresent()) {
+                matched.add(sameName.get());
+                drift.add(label + " exists with keys " + keySpec(sameName.get()));
+            } else if ("create".equals(mode)) {
+                try {
+                    indexOps.ensureIndex(definition);
+                    created.add(label);
+                } catch (DataAccessException ex) {
+                    // e.g. duplicate values under a unique declaration
+                    drift.add(label + " could not be created: " + ex.getMessage());
+                }
+            } else {
+                drift.add(label + " is missing");
+            }
+        }
+
+        existing.stream()
+                .filter(info -> !matched.contains(info) && !"_id_".equals(info.getName()))
+                .forEach(info -> undeclared.add(collection + "." + info.getName()));
+    }
+
+    // A changed TTL is the one difference collMod fixes in place, without dropping and rebuilding the index
+    private static boolean retunable(org.bson.Document declared, IndexInfo existing, List<String> differences) {
+        return differences.size() == 1 && differences.get(0).startsWith("expireAfterSeconds=")
+                && existing.getExpireAfter().isPresent() && declared.get("expireAfterSeconds") instanceof Number;
+    }
+
+    private void retuneExpiry(String collection, String indexName, org.bson.Document declared) {
+        mongoTemplate.executeCommand(new org.bson.Document("collMod", collection)
+                .append("index", new org.bson.Document("name", indexName)
+                        .append("expireAfterSeconds", ((Number) declared.get("expireAfterSeconds")).longValue())));
+    }
+
+    // The options that change what an index enforces or keeps: uniqueness, TTL expiry and the partial filter
+    static List<String> optionDrift(org.bson.Document declared, IndexInfo existing) {
+        List<String> differences = new ArrayList<>();
+        boolean unique = declared.getBoolean("unique", false);
+        if (existing.isUnique() != unique) {
+            differences.add("unique=" + existing.isUnique());
+        }
+
+        Long expireAfterSeconds = declared.get("expireAfterSeconds") instanceof Number seconds
+                ? seconds.longValue() : null;
+        Long existingExpiry = existing.getExpireAfter().map(Duration::getSeconds).orElse(null);
+        if (!Objects.equals(expireAfterSeconds, existingExpiry)) {
+            differences.add("expireAfterSeconds=" + existingExpiry);
+        }
+
+        // Compared as relaxed JSON so Int32 and Int64 literals of the same value match
+        String partial = declared.get("partialFilterExpression") instanceof org.bson.Document filter ? filter.toJson() : null;
+        String existingPartial = existing.getPartialFilterExpression() == null ? null
+                : org.bson.Document.parse(existing.getPartialFilterExpression()).toJson();
+        if (!Objects.equals(partial, existingPartial)) {
+            differences.add("partialFilterExpression=" + existingPartial);
+        }
+        return differences;
+    }
+
+    // Ordered "field:direction" list; key order is what makes a compound index
+    private static List<String> keySpec(IndexDefinition definition) {
+        List<String> keys = new ArrayList<>();
+        definition.getIndexKeys().forEach((key, direction) -> keys.add(key + ":"
+                + (direction instanceof Number number ? number.intValue() : direction)));
+        return keys;
+    }
+
+    private static List<String> keySpec(IndexInfo info) {
+        List<String> keys = new ArrayList<>();
+        for (IndexField field : info.getIndexFields()) {
+            keys.add(field.getKey() + ":" + (field.getDirection() == Sort.Direction.DESC ? -1 : 1));
+        }
+        return keys;
+    }
+
+    public Map<String, Object> report() {
+        return lastReport;
+    }
+}
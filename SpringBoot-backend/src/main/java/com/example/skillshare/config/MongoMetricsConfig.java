@@ -0,0 +1,49 @@
+package com.example.skillshare.config;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+// Wires MongoCommandMetrics into the driver and tags commands with the repository method that issued them
+@Configuration
+public class MongoMetricsConfig {
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer commandMetricsCustomizer(MongoCommandMetrics commandMetrics) {
+        return builder -> builder.addCommandListener(commandMetrics);
+    }
+
+    // Static so it is registered before the repository factory beans it customizes
+    @Bean
+    public static BeanPostProcessor repositoryMethodTagger() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, repositoryInformation) -> proxyFactory.addAdvice(
+                                    tagWith(repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    // The outermost repository call owns the tag, so default methods calling other queries stay attributed to it
+    private static MethodInterceptor tagWith(String repositoryName) {
+        return invocation -> {
+            if (MongoCommandMetrics.REPOSITORY_METHOD.get() != null) {
+                return invocation.proceed();
+            }
+            MongoCommandMetrics.REPOSITORY_METHOD.set(repositoryName + "." + invocation.getMethod().getName());
+            try {
+                return invocation.proceed();
+            } finally {
+                MongoCommandMetrics.REPOSITORY_METHOD.remove();
+            }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.example.skillshare.config;
 
 import com.example.skillshare.security.JwtAuthenticationEntryPoint;
 import com.example.skillshare.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -49,7 +50,13 @@ public class SecurityConfig {
                 .cors().and().csrf().disable()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
                 .authorizeHttpRequests()
+                // Async dispatches (SSE streams) were already authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**", "/api/public/**", "/uploads/**").permitAll()
+                // Only reachable on the loopback management port
+                .requestMatchers("/actuator/health", "/actuator/prometheus", "/actuator/mongocommands").permitAll()
+                // Cache sizing, index reports and bulk jobs such as notification compaction
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated();
 
         // Add our JWT filter
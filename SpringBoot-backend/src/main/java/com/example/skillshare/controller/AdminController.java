@@ -0,0 +1,66 @@
+package com.example.skillshare.controller;
+
+import com.example.skillshare.config.MongoIndexManager;
+import com.example.skillshare.service.ImageVariantService;
+import com.example.skillshare.service.NotificationFanOutService;
+import com.example.skillshare.service.NotificationRetentionService;
+import com.example.skillshare.service.PostCounterService;
+import com.example.skillshare.service.UserSummaryCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Operational endpoints for sizing caches and background jobs
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final UserSummaryCache userSummaryCache;
+    private final PostCounterService postCounterService;
+    private final NotificationFanOutService notificationFanOutService;
+    private final NotificationRetentionService notificationRetentionService;
+    private final MongoIndexManager mongoIndexManager;
+    private final ImageVariantService imageVariantService;
+
+    @GetMapping("/cache/user-summaries")
+    public ResponseEntity<Map<String, Object>> getUserSummaryCacheStats() {
+        return ResponseEntity.ok(userSummaryCache.stats());
+    }
+
+    @GetMapping("/counters/posts")
+    public ResponseEntity<Map<String, Object>> getPostCounterStats() {
+        return ResponseEntity.ok(postCounterService.stats());
+    }
+
+    @GetMapping("/notifications/fanout")
+    public ResponseEntity<Map<String, Object>> getNotificationFanOutStats() {
+        return ResponseEntity.ok(notificationFanOutService.stats());
+    }
+
+    @GetMapping("/notifications/retention")
+    public ResponseEntity<Map<String, Object>> getNotificationRetentionStats() {
+        return ResponseEntity.ok(notificationRetentionService.stats());
+    }
+
+    // Runs a compaction now; the response carries collection size before and after
+    @PostMapping("/notifications/compact")
+    public ResponseEntity<Map<String, Object>> compactNotifications() {
+        return ResponseEntity.ok(notificationRetentionService.compact());
+    }
+
+    @GetMapping("/indexes")
+    public ResponseEntity<Map<String, Object>> getIndexReport() {
+        return ResponseEntity.ok(mongoIndexManager.report());
+    }
+
+    @GetMapping("/media/variants")
+    public ResponseEntity<Map<String, Object>> getImageVariantStats() {
+        return ResponseEntity.ok(imageVariantService.stats());
+    }
+}
@@ -2,8 +2,7 @@ package com.example.skillshare.controller;
 
 import com.example.skillshare.dto.CommentDto;
 import com.example.skillshare.model.Comment;
-import com.example.skillshare.model.User;
-import com.example.skillshare.repository.UserRepository;
+import com.example.skillshare.service.AuthorResolver;
 import com.example.skillshare.service.CommentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -18,7 +17,7 @@ import org.springframework.web.bind.annotation.*;
 public class CommentController {
 
     private final CommentService commentService;
-    private final UserRepository userRepository;
+    private final AuthorResolver authorResolver;
     
     //create part 
     @GetMapping("/{commentId}")
@@ -26,11 +25,7 @@ public class CommentController {
         Comment comment = commentService.getCommentById(commentId);
 
         // Enrich with user data
-        User user = userRepository.findById(comment.getUserId()).orElse(null);
-        if (user != null) {
-            comment.setUserName(user.getName());
-            comment.setUserProfilePicture(user.getProfilePicture());
-        }
+        authorResolver.enrichComment(comment);
 
         return ResponseEntity.ok(comment);
     }
@@ -49,11 +44,7 @@ public class CommentController {
         Comment comment = commentService.updateComment(currentUser.getUsername(), commentId, commentDto);
 
         // Enrich with user data
-        User user = userRepository.findById(comment.getUserId()).orElse(null);
-        if (user != null) {
-            comment.setUserName(user.getName());
-            comment.setUserProfilePicture(user.getProfilePicture());
-        }
+        authorResolver.enrichComment(comment);
 
         return ResponseEntity.ok(comment);
     }
@@ -1,15 +1,19 @@
 package com.example.skillshare.controller;
 
 import com.example.skillshare.model.Notification;
+import com.example.skillshare.security.oauth2.UserPrincipal;
 import com.example.skillshare.service.NotificationService;
+import com.example.skillshare.service.NotificationStreamService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -17,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final NotificationStreamService notificationStreamService;
 
     @GetMapping
     public ResponseEntity<Page<Notification>> getCurrentUserNotifications(
@@ -29,10 +34,16 @@ public class NotificationController {
     }
 
     @GetMapping("/count")
-    public ResponseEntity<Integer> getUnreadNotificationsCount(
-            @AuthenticationPrincipal UserDetails currentUser) {
+    public ResponseEntity<Long> getUnreadNotificationsCount(
+            @AuthenticationPrincipal UserPrincipal currentUser) {
 
-        return ResponseEntity.ok(notificationService.getUnreadNotificationsCount(currentUser.getUsername()));
+        return ResponseEntity.ok(notificationService.getUnreadNotificationsCount(currentUser.getId()));
+    }
+
+    // Pushes "notification" and "unread-count" events; EventSource clients pass the JWT as access_token
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(@AuthenticationPrincipal UserPrincipal currentUser) {
+        return notificationStreamService.connect(currentUser.getId());
     }
 
     @PutMapping("/{notificationId}/read")
@@ -47,9 +58,9 @@ public class NotificationController {
 
     @PutMapping("/mark-all-read")
     public ResponseEntity<?> markAllNotificationsAsRead(
-            @AuthenticationPrincipal UserDetails currentUser) {
+            @AuthenticationPrincipal UserPrincipal currentUser) {
 
-        notificationService.markAllNotificationsAsRead(currentUser.getUsername());
+        notificationService.markAllNotificationsAsRead(currentUser.getId());
         return ResponseEntity.ok().build();
     }
 }
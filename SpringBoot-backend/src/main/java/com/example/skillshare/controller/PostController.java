@@ -1,15 +1,23 @@
 package com.example.skillshare.controller;
 
 import com.example.skillshare.dto.CommentDto;
+import com.example.skillshare.dto.CursorPage;
+import com.example.skillshare.dto.PostCursor;
 import com.example.skillshare.dto.PostDto;
 import com.example.skillshare.model.Comment;
 import com.example.skillshare.model.Post;
+import com.example.skillshare.model.PostLike;
 import com.example.skillshare.model.User;
-import com.example.skillshare.repository.UserRepository;
+import com.example.skillshare.security.oauth2.UserPrincipal;
+import com.example.skillshare.service.AuthorResolver;
 import com.example.skillshare.service.CommentService;
+import com.example.skillshare.service.ExploreService;
 import com.example.skillshare.service.FileStorageService;
+import com.example.skillshare.service.ImageVariantService;
+import com.example.skillshare.service.PostLikeService;
 import com.example.skillshare.service.PostService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -23,7 +31,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/posts")
 @RequiredArgsConstructor
@@ -32,47 +43,89 @@ public class PostController {
     private final PostService postService;
     private final CommentService commentService;
     private final FileStorageService fileStorageService;
-    private final UserRepository userRepository;
+    private final AuthorResolver authorResolver;
+    private final PostLikeService postLikeService;
+    private final ExploreService exploreService;
+    private final ImageVariantService imageVariantService;
+
+    private static final int DEFAULT_CURSOR_LIMIT = 10;
+    private static final int MAX_CURSOR_LIMIT = 50;
 
     @GetMapping
-    public ResponseEntity<Page<Post>> getAllPosts(
+    public ResponseEntity<?> getAllPosts(
+            @AuthenticationPrincipal UserDetails currentUser,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+
+        if (isCursorRequest(after, limit)) {
+            return cursorResponse(currentUser, after, cursor -> postService.getAllPosts(cursor, cursorLimit(limit)));
+        }
 
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts = postService.getAllPosts(pageable);
-        enrichPostsWithUserData(posts);
+        enrichPostsWithUserData(posts, currentUser);
         return ResponseEntity.ok(posts);
     }
 
     @GetMapping("/feed")
-    public ResponseEntity<Page<Post>> getFeedPosts(
+    public ResponseEntity<?> getFeedPosts(
             @AuthenticationPrincipal UserDetails currentUser,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+
+        if (isCursorRequest(after, limit)) {
+            return cursorResponse(currentUser, after,
+                    cursor -> postService.getFeedPosts(currentUser.getUsername(), cursor, cursorLimit(limit)));
+        }
 
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts = postService.getFeedPosts(currentUser.getUsername(), pageable);
-        enrichPostsWithUserData(posts);
+        enrichPostsWithUserData(posts, currentUser);
+        return ResponseEntity.ok(posts);
+    }
+
+    @GetMapping("/explore")
+    public ResponseEntity<Page<Post>> getExplorePosts(
+            @AuthenticationPrincipal UserDetails currentUser,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<Post> posts = exploreService.getExplorePosts(pageable);
+        enrichPostsWithUserData(posts, currentUser);
         return ResponseEntity.ok(posts);
     }
 
     @GetMapping("/{postId}")
-    public ResponseEntity<Post> getPostById(@PathVariable String postId) {
+    public ResponseEntity<Post> getPostById(
+            @AuthenticationPrincipal UserDetails currentUser,
+            @PathVariable String postId) {
         Post post = postService.getPostById(postId);
-        enrichPostWithUserData(post);
+        enrichPostWithUserData(post, currentUser);
         return ResponseEntity.ok(post);
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Page<Post>> getPostsByUserId(
+    public ResponseEntity<?> getPostsByUserId(
+            @AuthenticationPrincipal UserDetails currentUser,
             @PathVariable String userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+
+        if (isCursorRequest(after, limit)) {
+            return cursorResponse(currentUser, after,
+                    cursor -> postService.getPostsByUserId(userId, cursor, cursorLimit(limit)));
+        }
 
         Pageable pageable = PageRequest.of(page, size);
         Page<Post> posts = postService.getPostsByUserId(userId, pageable);
-        enrichPostsWithUserData(posts);
+        enrichPostsWithUserData(posts, currentUser);
         return ResponseEntity.ok(posts);
     }
 
@@ -83,27 +136,31 @@ public class PostController {
             @RequestParam(value = "skillCategory", required = false) String skillCategory,
             @RequestParam(value = "files", required = false) MultipartFile[] files) {
 
-        System.out.println("Received create post request from: " + currentUser.getUsername());
-        System.out.println("Content: " + content);
-        System.out.println("Skill Category: " + skillCategory);
+        log.debug("Create post by {} in {} with {} files", currentUser.getUsername(), skillCategory,
+                files == null ? 0 : files.length);
 
-        List<String> mediaUrls = new ArrayList<>();
+        List<FileStorageService.StoredUpload> uploads = new ArrayList<>();
 
         if (files != null) {
-            System.out.println("Files count: " + files.length);
-            for (MultipartFile file : files) {
-                String fileUrl = fileStorageService.storeFile(file);
-                mediaUrls.add(fileUrl);
-            }
+            // Stored concurrently; a failed file throws here after the others are cleaned up
+            uploads = fileStorageService.storeAll(List.of(files), ImageVariantService.Usage.FEED);
         }
 
         PostDto postDto = new PostDto();
         postDto.setContent(content);
         postDto.setSkillCategory(skillCategory);
-        postDto.setMediaUrls(mediaUrls);
-
-        Post post = postService.createPost(currentUser.getUsername(), postDto);
-        enrichPostWithUserData(post);
+        postDto.setMediaUrls(uploads.stream().map(FileStorageService.StoredUpload::url).collect(Collectors.toList()));
+
+        Post post;
+        try {
+            post = postService.createPost(currentUser.getUsername(), postDto);
+        } catch (RuntimeException ex) {
+            // Discard skips referenced files, and a post claims its media before it is inserted, so only
+            // uploads left without a post (a failed insert, or nothing written at all) are deleted
+            fileStorageService.discard(uploads);
+            throw ex;
+        }
+        enrichPostWithUserData(post, currentUser);
         return ResponseEntity.ok(post);
     }
 
@@ -123,7 +180,7 @@ public class PostController {
 
         // Update the post
         Post post = postService.updatePost(currentUser.getUsername(), postId, postDto);
-        enrichPostWithUserData(post);
+        enrichPostWithUserData(post, currentUser);
         return ResponseEntity.ok(post);
     }
 
@@ -154,6 +211,43 @@ public class PostController {
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/{postId}/likes")
+    public ResponseEntity<Map<String, Object>> getPostLikes(
+            @PathVariable String postId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        Pageable pageable = PageRequest.of(page, size);
+        Page<PostLike> likes = postLikeService.getLikes(postId, pageable);
+
+        Map<String, User> likers = authorResolver.resolve(
+                likes.getContent().stream().map(PostLike::getUserId).collect(Collectors.toList()));
+
+        List<Map<String, Object>> likerList = new ArrayList<>();
+        for (PostLike like : likes.getContent()) {
+            User liker = likers.get(like.getUserId());
+            if (liker == null) {
+                continue;
+            }
+
+            Map<String, Object> likerMap = new HashMap<>();
+            likerMap.put("id", liker.getId());
+            likerMap.put("name", liker.getName());
+            likerMap.put("username", liker.getUsername() != null ? liker.getUsername() : "");
+            likerMap.put("profilePicture", liker.getProfilePicture());
+            likerMap.put("likedAt", like.getCreatedAt());
+            likerList.add(likerMap);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", likerList);
+        response.put("totalElements", likes.getTotalElements());
+        response.put("totalPages", likes.getTotalPages());
+        response.put("currentPage", likes.getNumber());
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{postId}/comments")
     public ResponseEntity<Map<String, Object>> getPostComments(
             @PathVariable String postId,
@@ -161,18 +255,9 @@ public class PostController {
             @RequestParam(defaultValue = "10") int size) {
 
         Pageable pageable = PageRequest.of(page, size);
+        // Comments come back already enriched with user data
         Page<Comment> comments = commentService.getCommentsByPostId(postId, pageable);
 
-        // Enrich comments with user data
-        for (Comment comment : comments.getContent()) {
-            User user = userRepository.findById(comment.getUserId()).orElse(null);
-            if (user != null) {
-                comment.setUserName(user.getName());
-                comment.setUsername(user.getUsername());
-                comment.setUserProfilePicture(user.getProfilePicture());
-            }
-        }
-
         Map<String, Object> response = new HashMap<>();
         response.put("content", comments.getContent());
         response.put("totalElements", comments.getTotalElements());
@@ -188,36 +273,61 @@ public class PostController {
             @PathVariable String postId,
             @RequestBody CommentDto commentDto) {
 
-        System.out.println("Adding comment to post: " + postId);
-        System.out.println("By user: " + currentUser.getUsername());
-        System.out.println("Comment content: " + commentDto.getContent());
+        log.debug("Add comment to post {} by {}", postId, currentUser.getUsername());
 
         Comment comment = commentService.addComment(currentUser.getUsername(), postId, commentDto);
 
         // Enrich with user data
-        User user = userRepository.findByEmail(currentUser.getUsername()).orElse(null);
-        if (user != null) {
-            comment.setUserName(user.getName());
-            comment.setUsername(user.getUsername());
-            comment.setUserProfilePicture(user.getProfilePicture());
-        }
+        authorResolver.enrichComment(comment);
 
         return ResponseEntity.ok(comment);
     }
 
-    // Helper methods to enrich posts with user data
-    private void enrichPostsWithUserData(Page<Post> posts) {
-        for (Post post : posts.getContent()) {
-            enrichPostWithUserData(post);
+    // Cursor mode is opted into with ?after= and/or ?limit=; plain page/size keeps the Page response
+    private boolean isCursorRequest(String after, Integer limit) {
+        return after != null || limit != null;
+    }
+
+    private int cursorLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_CURSOR_LIMIT;
         }
+        return Math.max(1, Math.min(limit, MAX_CURSOR_LIMIT));
     }
 
-    private void enrichPostWithUserData(Post post) {
-        User user = userRepository.findById(post.getUserId()).orElse(null);
-        if (user != null) {
-            post.setUserName(user.getName());
-            post.setUsername(user.getUsername());
-            post.setUserProfilePicture(user.getProfilePicture());
+    // Only a malformed ?after= is the client's fault; anything thrown while loading or enriching is not
+    private ResponseEntity<?> cursorResponse(UserDetails currentUser, String after,
+                                             Function<PostCursor, CursorPage<Post>> loader) {
+        PostCursor cursor;
+        try {
+            cursor = after == null ? null : PostCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            Map<String, String> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         }
+
+        CursorPage<Post> posts = loader.apply(cursor);
+        authorResolver.enrichPosts(posts.getContent());
+        imageVariantService.applyVariants(posts.getContent());
+        postLikeService.markLikedByViewer(posts.getContent(), viewerId(currentUser));
+        return ResponseEntity.ok(posts);
+    }
+
+    // Helper methods to enrich posts with user data, image variants and the viewer's like state
+    private void enrichPostsWithUserData(Page<Post> posts, UserDetails currentUser) {
+        authorResolver.enrichPosts(posts.getContent());
+        imageVariantService.applyVariants(posts.getContent());
+        postLikeService.markLikedByViewer(posts.getContent(), viewerId(currentUser));
+    }
+
+    private void enrichPostWithUserData(Post post, UserDetails currentUser) {
+        authorResolver.enrichPost(post);
+        imageVariantService.applyVariants(List.of(post));
+        postLikeService.markLikedByViewer(List.of(post), viewerId(currentUser));
+    }
+
+    private String viewerId(UserDetails currentUser) {
+        return currentUser instanceof UserPrincipal principal ? principal.getId() : null;
     }
 }
@@ -3,7 +3,9 @@ package com.example.skillshare.controller;
 import com.example.skillshare.dto.UserProfileDto;
 import com.example.skillshare.model.User;
 import com.example.skillshare.repository.UserRepository;
+import com.example.skillshare.security.FreshUser;
 import com.example.skillshare.service.FileStorageService;
+import com.example.skillshare.service.ImageVariantService;
 import com.example.skillshare.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -25,6 +27,7 @@ public class UserController {
     private final UserRepository userRepository;
     private final UserService userService;
     private final FileStorageService fileStorageService;
+    private final ImageVariantService imageVariantService;
 
     @GetMapping("/me")
     public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal UserDetails currentUser) {
@@ -77,6 +80,7 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    @FreshUser
     @PutMapping("/profile")
     public ResponseEntity<?> updateProfile(
             @AuthenticationPrincipal UserDetails currentUser,
@@ -89,13 +93,14 @@ public class UserController {
 
     // Only the profile picture and cover photo methods need updates:
 
+    @FreshUser
     @PostMapping("/profile/picture")
     public ResponseEntity<?> updateProfilePicture(
             @AuthenticationPrincipal UserDetails currentUser,
             @RequestParam("profilePicture") MultipartFile file) {
 
         String email = currentUser.getUsername();
-        String imageUrl = fileStorageService.storeFile(file);
+        String imageUrl = fileStorageService.storeFile(file, ImageVariantService.Usage.AVATAR);
         User updatedUser = userService.updateProfilePicture(email, imageUrl);
 
         // Return the full user object with updated profile picture
@@ -104,13 +109,14 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    @FreshUser
     @PostMapping("/profile/cover")
     public ResponseEntity<?> updateCoverPicture(
             @AuthenticationPrincipal UserDetails currentUser,
             @RequestParam("coverPhoto") MultipartFile file) {
 
         String email = currentUser.getUsername();
-        String imageUrl = fileStorageService.storeFile(file);
+        String imageUrl = fileStorageService.storeFile(file, ImageVariantService.Usage.FEED);
         User updatedUser = userService.updateCoverPicture(email, imageUrl);
 
         // Return the full user object with updated cover photo
@@ -200,6 +206,8 @@ public class UserController {
             }
         }
 
+        imageVariantService.applyAvatarVariants(followers, User::getProfilePicture, User::setProfilePicture);
+
         // Convert each follower to a map with required fields
         for (User follower : followers) {
             Map<String, Object> followerMap = new HashMap<>();
@@ -238,6 +246,8 @@ public class UserController {
             }
         }
 
+        imageVariantService.applyAvatarVariants(following, User::getProfilePicture, User::setProfilePicture);
+
         // Convert each following to a map with required fields
         for (User followed : following) {
             Map<String, Object> followedMap = new HashMap<>();
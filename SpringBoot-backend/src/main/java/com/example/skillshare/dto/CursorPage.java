@@ -0,0 +1,17 @@
+package com.example.skillshare.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One slice of a keyset-paginated listing; nextCursor is null on the last slice
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content = new ArrayList<>();
+    private String nextCursor;
+}
@@ -21,6 +21,7 @@ public class LearningProgress {
     private String description;
     private ProgressType type;
     private String skill;
+    @Indexed
     private List<String> skills = new ArrayList<>();
     private String resourceUrl;
     private Integer completionPercentage;
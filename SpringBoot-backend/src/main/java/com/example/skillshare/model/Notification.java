@@ -1,17 +1,31 @@
 package com.example.skillshare.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "notifications")
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "user_unread_idx", def = "{'userId': 1, 'read': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "group_idx", def = "{'userId': 1, 'type': 1, 'entityId': 1, 'groupStartedAt': -1}"),
+        // At most one open group per key, so two first actors racing to start it can't both insert one
+        @CompoundIndex(name = "open_group_unique_idx", def = "{'userId': 1, 'type': 1, 'entityId': 1}",
+                unique = true, partialFilter = "{'groupOpen': true}")
+})
 public class Notification {
     @Id
     private String id;
@@ -21,5 +35,18 @@ public class Notification {
     private String content;
     private String entityId; // postId, commentId, etc.
     private boolean read = false;
+    // Notifications flagged read expire through this partial TTL index; ones read via the watermark are removed by
+    // NotificationRetentionService, since a TTL index can't compare against another collection
+    @Indexed(name = "read_ttl_idx", partialFilter = "{'read': true}",
+            expireAfter = "#{@environment.getProperty('notifications.retention.read-ttl-days', '30') + 'd'}")
     private Date createdAt = new Date();
+
+    // Grouped LIKE/COMMENT notifications: one document per (userId, type, entityId) and window
+    private String senderName; // latest actor
+    private String action; // e.g. "liked your post"
+    private int actorCount = 1;
+    private List<String> actorIds = new ArrayList<>(); // latest few actors, oldest first
+    private Date groupStartedAt;
+    @JsonIgnore
+    private Boolean groupOpen; // true from the group's start until a later group on the same key replaces it
 }
@@ -0,0 +1,24 @@
+package com.example.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Per-user notification state keyed by userId, so badge reads never scan notifications
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "notification_inboxes")
+public class NotificationInbox {
+    @Id
+    private String id; // userId
+    private long unreadCount;
+    private Date lastReadAt; // everything created at or before this is read, regardless of its own flag
+    @Indexed(name = "updated_idx") // the unread-count reconcile only visits inboxes touched since its last run
+    private Date updatedAt = new Date();
+}
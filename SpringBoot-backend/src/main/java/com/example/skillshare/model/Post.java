@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
@@ -15,6 +17,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document(collection = "posts")
+@CompoundIndexes({
+        @CompoundIndex(name = "created_idx", def = "{'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+})
 public class Post {
     @Id
     private String id;
@@ -24,7 +30,6 @@ public class Post {
     private String skillCategory;
     private int likesCount = 0;
     private int commentsCount = 0;
-    private List<String> likedBy = new ArrayList<>();
     private Date createdAt = new Date();
     private Date updatedAt = new Date();
 
@@ -35,6 +40,10 @@ public class Post {
     private String username;
     @Transient
     private String userProfilePicture;
+    @Transient
+    private List<String> mediaPreviewUrls; // per mediaUrls entry, the feed-sized variant or the original
+    @Transient
+    private Boolean likedByMe; // per-viewer, filled on list and detail responses
 
     // Manual getters and setters for transient fields
     public String getUserName() {
@@ -0,0 +1,33 @@
+package com.example.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "post_likes")
+@CompoundIndexes({
+        @CompoundIndex(name = "post_user_unique_idx", def = "{'postId': 1, 'userId': 1}", unique = true),
+        @CompoundIndex(name = "user_post_idx", def = "{'userId': 1, 'postId': 1}"),
+        @CompoundIndex(name = "post_created_idx", def = "{'postId': 1, 'createdAt': -1}")
+})
+public class PostLike {
+    @Id
+    private String id;
+    private String postId;
+    private String userId;
+    private Date createdAt = new Date();
+
+    public PostLike(String postId, String userId) {
+        this.postId = postId;
+        this.userId = userId;
+    }
+}
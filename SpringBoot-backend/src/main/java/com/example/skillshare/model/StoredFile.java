@@ -0,0 +1,36 @@
+package com.example.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// One content-addressed upload and the documents that point at it ("post:<id>", "user:<id>:profile", ...)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stored_files")
+@CompoundIndexes({
+        @CompoundIndex(name = "refs_idx", def = "{'refs': 1}"),
+        @CompoundIndex(name = "last_uploaded_idx", def = "{'lastUploadedAt': 1}")
+})
+public class StoredFile {
+    @Id
+    private String id; // file name under the upload dir: <sha256><extension>
+    @Indexed(name = "sha256_idx")
+    private String sha256;
+    private long size;
+    private String contentType;
+    private Date createdAt;
+    private Date lastUploadedAt; // refreshed on every dedup hit, so a file handed out again is not collected
+    private List<String> refs = new ArrayList<>();
+    private List<Integer> variants = new ArrayList<>(); // longest-side sizes on disk as <sha256>_<size><extension>
+}
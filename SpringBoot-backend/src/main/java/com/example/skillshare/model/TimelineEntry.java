@@ -0,0 +1,39 @@
+package com.example.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "timeline_entries")
+@CompoundIndexes({
+        // postId breaks createdAt ties for the keyset cursor, so the sort is served from the index
+        @CompoundIndex(name = "owner_created_post_idx", def = "{'ownerId': 1, 'createdAt': -1, 'postId': -1}"),
+        @CompoundIndex(name = "owner_post_unique_idx", def = "{'ownerId': 1, 'postId': 1}", unique = true),
+        @CompoundIndex(name = "owner_author_idx", def = "{'ownerId': 1, 'authorId': 1}")
+})
+public class TimelineEntry {
+    @Id
+    private String id;
+    private String ownerId; // user whose home timeline this entry belongs to
+    @Indexed
+    private String postId;
+    private String authorId;
+    private Date createdAt; // copied from the post so the timeline sorts without a join
+
+    public TimelineEntry(String ownerId, Post post) {
+        this.ownerId = ownerId;
+        this.postId = post.getId();
+        this.authorId = post.getUserId();
+        this.createdAt = post.getCreatedAt();
+    }
+}
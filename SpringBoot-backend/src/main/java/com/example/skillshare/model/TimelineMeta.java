@@ -0,0 +1,21 @@
+package com.example.skillshare.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Per-owner home timeline bookkeeping, kept off User so profile saves can't overwrite it and responses don't carry it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "timelines")
+public class TimelineMeta {
+    @Id
+    private String id; // ownerId
+    private Date builtAt; // null until the home timeline has been built from the posts collection
+    private long untrimmed; // entries fanned out to this timeline since its last trim
+}
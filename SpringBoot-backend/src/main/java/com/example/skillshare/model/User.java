@@ -2,6 +2,7 @@ package com.example.skillshare.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
@@ -14,6 +15,7 @@ public class User {
     @Id
     private String id;
     private String name;
+    @Indexed(name = "email_unique_idx", unique = true)
     private String email;
     private String username;
     private String password;
@@ -0,0 +1,23 @@
+package com.example.skillshare.repository;
+
+import com.example.skillshare.model.PostLike;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PostLikeRepository extends MongoRepository<PostLike, String> {
+    Page<PostLike> findByPostIdOrderByCreatedAtDesc(String postId, Pageable pageable);
+
+    @Query(value = "{ 'userId': ?0, 'postId': { $in: ?1 } }", fields = "{ 'postId': 1 }")
+    List<PostLike> findByUserIdAndPostIdIn(String userId, Collection<String> postIds);
+
+    long countByPostId(String postId);
+
+    long deleteByPostIdAndUserId(String postId, String userId);
+
+    void deleteByPostId(String postId);
+}
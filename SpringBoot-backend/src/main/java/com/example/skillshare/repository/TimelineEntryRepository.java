@@ -0,0 +1,17 @@
+package com.example.skillshare.repository;
+
+import com.example.skillshare.model.TimelineEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface TimelineEntryRepository extends MongoRepository<TimelineEntry, String> {
+    List<TimelineEntry> findByOwnerIdOrderByCreatedAtDesc(String ownerId, Pageable pageable);
+
+    long countByOwnerId(String ownerId);
+
+    void deleteByOwnerIdAndAuthorId(String ownerId, String authorId);
+
+    void deleteByPostId(String postId);
+}
@@ -2,8 +2,11 @@ package com.example.skillshare.repository;
 
 import com.example.skillshare.model.User;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +14,8 @@ public interface UserRepository extends MongoRepository<User, String> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    // Author summaries for list pages: only the fields shown next to a post or comment
+    @Query(value = "{ '_id': { $in: ?0 } }", fields = "{ 'name': 1, 'username': 1, 'profilePicture': 1 }")
+    List<User> findSummariesByIdIn(Collection<String> ids);
 }
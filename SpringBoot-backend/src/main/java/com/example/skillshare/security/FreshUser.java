@@ -0,0 +1,13 @@
+package com.example.skillshare.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks endpoints that must authenticate against the stored user rather than the
+// token's claims alone, e.g. so a deleted account or changed role takes effect at once
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FreshUser {
+}
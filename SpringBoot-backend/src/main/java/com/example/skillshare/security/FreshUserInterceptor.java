@@ -0,0 +1,52 @@
+package com.example.skillshare.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Reloads the authenticated user for handlers annotated with @FreshUser
+@Component
+@RequiredArgsConstructor
+public class FreshUserInterceptor implements HandlerInterceptor {
+
+    private final UserDetailsService userDetailsService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (!(handler instanceof HandlerMethod handlerMethod) || !requiresFreshUser(handlerMethod)) {
+            return true;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails current)) {
+            return true;
+        }
+
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(current.getUsername());
+            UsernamePasswordAuthenticationToken refreshed = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            refreshed.setDetails(authentication.getDetails());
+            SecurityContextHolder.getContext().setAuthentication(refreshed);
+            return true;
+        } catch (UsernameNotFoundException ex) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized");
+            return false;
+        }
+    }
+
+    private boolean requiresFreshUser(HandlerMethod handlerMethod) {
+        return handlerMethod.hasMethodAnnotation(FreshUser.class)
+                || handlerMethod.getBeanType().isAnnotationPresent(FreshUser.class);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.skillshare.security;
 
+import com.example.skillshare.security.oauth2.UserPrincipal;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,6 +22,8 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/api/notifications/stream";
+
     private final JwtTokenProvider tokenProvider;
     private final UserDetailsService userDetailsService;
 
@@ -32,11 +36,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             logger.info("Received JWT: " + (jwt != null ? "Token present" : "No token"));
 
             if (StringUtils.hasText(jwt)) {
-                if (tokenProvider.validateToken(jwt)) {
-                    String username = tokenProvider.getUsernameFromToken(jwt);
+                Claims claims = tokenProvider.getVerifiedClaims(jwt);
+                if (claims != null) {
+                    String username = claims.getSubject();
                     logger.info("Valid token for user: " + username);
 
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = buildPrincipal(claims);
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -53,11 +58,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // The principal comes straight from the signed claims. Only tokens issued before the
+    // claims were added fall back to a user lookup; endpoints that need the stored user
+    // opt in with @FreshUser.
+    private UserDetails buildPrincipal(Claims claims) {
+        String userId = claims.get(JwtTokenProvider.USER_ID_CLAIM, String.class);
+        String role = claims.get(JwtTokenProvider.ROLE_CLAIM, String.class);
+
+        if (userId != null && role != null) {
+            return UserPrincipal.create(userId, claims.getSubject(), role);
+        }
+        return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
             return bearerToken.substring(7);
         }
+        // EventSource can't set headers, so the notification stream alone accepts the token as a parameter
+        if (STREAM_PATH.equals(request.getRequestURI())) {
+            return request.getParameter("access_token");
+        }
         return null;
     }
 }
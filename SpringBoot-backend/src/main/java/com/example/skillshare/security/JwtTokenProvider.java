@@ -1,10 +1,12 @@
 package com.example.skillshare.security;
 
+import com.example.skillshare.security.oauth2.UserPrincipal;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
@@ -17,30 +19,59 @@ import java.util.function.Function;
 @Component
 public class JwtTokenProvider {
 
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
     @Value("${jwt.expiration}")
     private int jwtExpirationInMs;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private int verifiedTokenCacheSize = 10000;
+
     private Key key;
+    private JwtParser parser;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @PostConstruct
     public void init() {
         this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        // Parsers are immutable and thread-safe, so one is built and shared
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokenCache = new VerifiedTokenCache(verifiedTokenCacheSize);
     }
 
     public String generateToken(Authentication authentication) {
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        if (userDetails instanceof UserPrincipal userPrincipal) {
+            return generateToken(userPrincipal);
+        }
         return generateToken(userDetails.getUsername());
     }
 
+    // Carries the user id and role so requests can be authenticated without a user lookup
+    public String generateToken(UserPrincipal userPrincipal) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, userPrincipal.getId());
+        userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(authority -> authority.startsWith("ROLE_"))
+                .findFirst()
+                .ifPresent(authority -> claims.put(ROLE_CLAIM, authority.substring("ROLE_".length())));
+
+        return generateToken(userPrincipal.getUsername(), claims);
+    }
+
     public String generateToken(String username) {
+        return generateToken(username, new HashMap<>());
+    }
+
+    private String generateToken(String username, Map<String, Object> claims) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
 
-        Map<String, Object> claims = new HashMap<>();
-
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(username)
@@ -63,20 +94,27 @@ public class JwtTokenProvider {
         return claimsResolver.apply(claims);
     }
 
-    private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Claims getAllClaimsFromToken(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    public boolean validateToken(String token) {
+    // Verifies the token once and returns its claims, or null if it is invalid or expired
+    public Claims getVerifiedClaims(String token) {
+        Claims cached = verifiedTokenCache.get(token, System.currentTimeMillis());
+        if (cached != null) {
+            return cached;
+        }
+
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
-        } catch (MalformedJwtException | ExpiredJwtException | UnsupportedJwtException | IllegalArgumentException e) {
-            return false;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            verifiedTokenCache.put(token, claims);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
     }
+
+    public boolean validateToken(String token) {
+        return getVerifiedClaims(token) != null;
+    }
 }
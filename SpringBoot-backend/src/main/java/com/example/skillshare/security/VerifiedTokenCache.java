@@ -0,0 +1,87 @@
+package com.example.skillshare.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Claims of tokens whose signature has already been verified, keyed by a SHA-256
+// digest of the token and kept until the token's own expiry. A client repeating the
+// same bearer token then skips signature verification and JSON parsing entirely.
+public class VerifiedTokenCache {
+
+    private final int maxSize;
+    private final Map<String, CachedClaims> entries = new ConcurrentHashMap<>();
+
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Claims get(String token, long now) {
+        if (maxSize <= 0) {
+            return null;
+        }
+
+        String key = digest(token);
+        CachedClaims cached = entries.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expiresAt <= now) {
+            entries.remove(key, cached);
+            return null;
+        }
+        return cached.claims;
+    }
+
+    public void put(String token, Claims claims) {
+        if (maxSize <= 0 || claims.getExpiration() == null) {
+            return;
+        }
+
+        if (entries.size() >= maxSize) {
+            evict(System.currentTimeMillis());
+        }
+        entries.put(digest(token), new CachedClaims(claims, claims.getExpiration().getTime()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Drops expired tokens first; if the cache is still full, drops an arbitrary tenth
+    private void evict(long now) {
+        entries.values().removeIf(cached -> cached.expiresAt <= now);
+
+        int toRemove = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static final class CachedClaims {
+        private final Claims claims;
+        private final long expiresAt;
+
+        private CachedClaims(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.skillshare.security.oauth2;
 
 import com.example.skillshare.model.User;
 import com.example.skillshare.repository.UserRepository;
+import com.example.skillshare.service.UserSummaryCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.core.AuthenticationException;
@@ -18,6 +19,7 @@ import java.util.Optional;
 public class CustomOAuth2UserService extends DefaultOAuth2UserService {
 
     private final UserRepository userRepository;
+    private final UserSummaryCache userSummaryCache;
 
     @Override
     public OAuth2User loadUser(OAuth2UserRequest oAuth2UserRequest) throws OAuth2AuthenticationException {
@@ -66,6 +68,9 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService {
         existingUser.setName(oAuth2UserInfo.getName());
         existingUser.setProfilePicture(oAuth2UserInfo.getImageUrl());
 
-        return userRepository.save(existingUser);
+        User savedUser = userRepository.save(existingUser);
+        userSummaryCache.invalidate(savedUser.getId());
+
+        return savedUser;
     }
 }
@@ -36,7 +36,7 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
         String redirectUri = "http://localhost:5173/oauth2/redirect";
 
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        String token = tokenProvider.generateToken(userPrincipal.getUsername());
+        String token = tokenProvider.generateToken(userPrincipal);
 
         return UriComponentsBuilder.fromUriString(redirectUri)
                 .queryParam("token", token)
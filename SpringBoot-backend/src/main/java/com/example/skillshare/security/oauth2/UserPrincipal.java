@@ -36,6 +36,14 @@ public class UserPrincipal implements OAuth2User, UserDetails {
                 null);
     }
 
+    // Built from verified JWT claims; carries no password and was not read from the database
+    public static UserPrincipal create(String id, String email, String role) {
+        List<GrantedAuthority> authorities = Collections
+                .singletonList(new SimpleGrantedAuthority("ROLE_" + role));
+
+        return new UserPrincipal(id, email, null, email, authorities, null);
+    }
+
     public static UserPrincipal create(User user, Map<String, Object> attributes) {
         UserPrincipal userPrincipal = UserPrincipal.create(user);
         userPrincipal.setAttributes(attributes);
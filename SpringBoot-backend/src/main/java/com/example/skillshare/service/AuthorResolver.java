@@ -0,0 +1,105 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Comment;
+import com.example.skillshare.model.LearningProgress;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.User;
+import com.example.skillshare.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Fills the transient author fields of a page of posts, comments or learning
+// progress entries with a single $in lookup over the distinct author ids. Posts get their
+// avatar variant with the media previews (ImageVariantService.applyVariants); comments and
+// progress entries get it here.
+@Service
+@RequiredArgsConstructor
+public class AuthorResolver {
+
+    private final UserRepository userRepository;
+    private final UserSummaryCache userSummaryCache;
+    private final ImageVariantService imageVariantService;
+
+    public Map<String, User> resolve(Collection<String> userIds) {
+        Set<String> distinctIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        if (distinctIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        long epoch = userSummaryCache.currentEpoch();
+        Map<String, User> authors = new HashMap<>(userSummaryCache.getAll(distinctIds));
+        distinctIds.removeAll(authors.keySet());
+
+        // Only the authors not already cached cost a query
+        if (!distinctIds.isEmpty()) {
+            List<User> loaded = userRepository.findSummariesByIdIn(distinctIds);
+            userSummaryCache.putAll(loaded, epoch);
+            loaded.forEach(user -> authors.put(user.getId(), user));
+        }
+        return authors;
+    }
+
+    public void enrichPosts(Collection<Post> posts) {
+        enrich(posts, Post::getUserId, (post, user) -> {
+            post.setUserName(user.getName());
+            post.setUsername(user.getUsername());
+            post.setUserProfilePicture(user.getProfilePicture());
+        });
+    }
+
+    public void enrichPost(Post post) {
+        enrichPosts(Collections.singletonList(post));
+    }
+
+    public void enrichComments(Collection<Comment> comments) {
+        enrich(comments, Comment::getUserId, (comment, user) -> {
+            comment.setUserName(user.getName());
+            comment.setUsername(user.getUsername());
+            comment.setUserProfilePicture(user.getProfilePicture());
+        });
+        imageVariantService.applyAvatarVariants(comments, Comment::getUserProfilePicture,
+                Comment::setUserProfilePicture);
+    }
+
+    public void enrichComment(Comment comment) {
+        enrichComments(Collections.singletonList(comment));
+    }
+
+    public void enrichLearningProgress(Collection<LearningProgress> progressList) {
+        enrich(progressList, LearningProgress::getUserId, (progress, user) -> {
+            progress.setUserName(user.getName());
+            progress.setUserProfilePicture(user.getProfilePicture());
+        });
+        imageVariantService.applyAvatarVariants(progressList, LearningProgress::getUserProfilePicture,
+                LearningProgress::setUserProfilePicture);
+    }
+
+    private <T> void enrich(Collection<T> items, Function<T, String> userIdOf, BiConsumer<T, User> apply) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        Map<String, User> authors = resolve(items.stream().map(userIdOf).collect(Collectors.toList()));
+        for (T item : items) {
+            User author = authors.get(userIdOf.apply(item));
+            if (author != null) {
+                apply.accept(item, author);
+            }
+        }
+    }
+}
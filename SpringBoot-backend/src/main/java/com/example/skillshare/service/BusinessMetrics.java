@@ -0,0 +1,51 @@
+package com.example.skillshare.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+// Application-level counters; rates (likes/s, posts/s) come from rate() over these on the Prometheus side
+@Component
+public class BusinessMetrics {
+
+    private final Counter postsCreated;
+    private final Counter likes;
+    private final Counter unlikes;
+    private final DistributionSummary fanOutSize;
+
+    public BusinessMetrics(MeterRegistry registry) {
+        this.postsCreated = Counter.builder("skillshare.posts.created")
+                .description("Posts created")
+                .register(registry);
+        this.likes = Counter.builder("skillshare.likes")
+                .description("Likes recorded")
+                .register(registry);
+        this.unlikes = Counter.builder("skillshare.unlikes")
+                .description("Likes removed")
+                .register(registry);
+        this.fanOutSize = DistributionSummary.builder("skillshare.notifications.fanout.size")
+                .description("Recipients per notification fan-out")
+                .baseUnit("recipients")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(100_000.0)
+                .register(registry);
+    }
+
+    public void postCreated() {
+        postsCreated.increment();
+    }
+
+    public void liked() {
+        likes.increment();
+    }
+
+    public void unliked() {
+        unlikes.increment();
+    }
+
+    public void fanOut(int recipients) {
+        fanOutSize.record(recipients);
+    }
+}
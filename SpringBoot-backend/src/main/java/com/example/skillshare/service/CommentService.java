@@ -6,18 +6,14 @@ import com.example.skillshare.model.Notification;
 import com.example.skillshare.model.Post;
 import com.example.skillshare.model.User;
 import com.example.skillshare.repository.CommentRepository;
-import com.example.skillshare.repository.NotificationRepository;
 import com.example.skillshare.repository.PostRepository;
 import com.example.skillshare.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -26,7 +22,10 @@ public class CommentService {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
+    private final AuthorResolver authorResolver;
+    private final ExploreService exploreService;
+    private final PostCounterService postCounterService;
 
     public Comment getCommentById(String commentId) {
         return commentRepository.findById(commentId)
@@ -37,20 +36,9 @@ public class CommentService {
         Page<Comment> commentsPage = commentRepository.findByPostIdOrderByCreatedAtDesc(postId, pageable);
 
         // Enrich comments with user information
-        List<Comment> enrichedComments = commentsPage.getContent().stream()
-                .map(comment -> {
-                    User user = userRepository.findById(comment.getUserId())
-                            .orElse(null);
-                    if (user != null) {
-                        // Add user information to the comment
-                        comment.setUserName(user.getName());
-                        comment.setUserProfilePicture(user.getProfilePicture());
-                    }
-                    return comment;
-                })
-                .collect(Collectors.toList());
-
-        return new PageImpl<>(enrichedComments, pageable, commentsPage.getTotalElements());
+        authorResolver.enrichComments(commentsPage.getContent());
+
+        return commentsPage;
     }
 
     public Comment addComment(String email, String postId, CommentDto commentDto) {
@@ -69,13 +57,13 @@ public class CommentService {
 
         // Add user information directly to the comment
         comment.setUserName(user.getName());
+        comment.setUsername(user.getUsername());
         comment.setUserProfilePicture(user.getProfilePicture());
 
         Comment savedComment = commentRepository.save(comment);
 
-        // Update comment count in post
-        post.setCommentsCount(post.getCommentsCount() + 1);
-        postRepository.save(post);
+        postCounterService.incrementComments(postId, 1);
+        exploreService.recordComment(postId, 1);
 
         // Create notification if commenter is not the post owner
         if (!user.getId().equals(post.getUserId())) {
@@ -84,10 +72,12 @@ public class CommentService {
             notification.setSenderId(user.getId());
             notification.setType("COMMENT");
             notification.setContent(user.getName() + " commented on your post");
+            notification.setSenderName(user.getName());
+            notification.setAction("commented on your post");
             notification.setEntityId(postId);
             notification.setCreatedAt(new Date());
 
-            notificationRepository.save(notification);
+            notificationService.createGroupedNotification(notification);
         }
 
         return savedComment;
@@ -121,12 +111,8 @@ public class CommentService {
             throw new RuntimeException("You are not authorized to delete this comment");
         }
 
-        Post post = postRepository.findById(comment.getPostId())
-                .orElseThrow(() -> new RuntimeException("Post not found"));
-
-        // Update comment count in post
-        post.setCommentsCount(Math.max(0, post.getCommentsCount() - 1));
-        postRepository.save(post);
+        postCounterService.incrementComments(comment.getPostId(), -1);
+        exploreService.recordComment(comment.getPostId(), -1);
 
         commentRepository.delete(comment);
     }
@@ -0,0 +1,186 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Post;
+import com.example.skillshare.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Ranks recent posts by time-decayed engagement. Like/comment counters are kept in
+// memory and updated as engagement happens; a scheduled refresh turns them into a
+// bounded top-K list so /api/posts/explore never scans the posts collection.
+@Service
+@RequiredArgsConstructor
+public class ExploreService {
+
+    private static final double MILLIS_PER_HOUR = 3_600_000d;
+
+    private final PostRepository postRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${explore.decay:GRAVITY}")
+    private Decay decay;
+
+    @Value("${explore.gravity:1.8}")
+    private double gravity;
+
+    @Value("${explore.half-life-hours:24}")
+    private double halfLifeHours;
+
+    @Value("${explore.like-weight:1}")
+    private double likeWeight;
+
+    @Value("${explore.comment-weight:3}")
+    private double commentWeight;
+
+    @Value("${explore.window-hours:168}")
+    private long windowHours;
+
+    @Value("${explore.max-candidates:50000}")
+    private int maxCandidates;
+
+    @Value("${explore.top-k:200}")
+    private int topK;
+
+    private final Map<String, Engagement> candidates = new ConcurrentHashMap<>();
+    private volatile List<String> topPostIds = Collections.emptyList();
+    private volatile boolean seeded = false;
+
+    public enum Decay {
+        // engagement / (ageHours + 2) ^ gravity
+        GRAVITY,
+        // engagement * 0.5 ^ (ageHours / halfLifeHours)
+        EXPONENTIAL
+    }
+
+    public Page<Post> getExplorePosts(Pageable pageable) {
+        if (!seeded) {
+            refresh();
+        }
+
+        List<String> ranked = topPostIds;
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        List<String> pageIds = ranked.subList(from, to);
+
+        Map<String, Post> postsById = postRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = pageIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return new PageImpl<>(posts, pageable, ranked.size());
+    }
+
+    public void recordPost(Post post) {
+        if (candidates.size() < maxCandidates) {
+            candidates.put(post.getId(), new Engagement(post.getCreatedAt().getTime(), 0, 0));
+        }
+    }
+
+    public void recordLike(String postId, int delta) {
+        Engagement engagement = candidates.get(postId);
+        if (engagement != null) {
+            engagement.likes.addAndGet(delta);
+        }
+    }
+
+    public void recordComment(String postId, int delta) {
+        Engagement engagement = candidates.get(postId);
+        if (engagement != null) {
+            engagement.comments.addAndGet(delta);
+        }
+    }
+
+    public void removePost(String postId) {
+        candidates.remove(postId);
+    }
+
+    @Scheduled(fixedDelayString = "${explore.refresh-interval-ms:60000}",
+            initialDelayString = "${explore.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        long windowStart = now - windowHours * (long) MILLIS_PER_HOUR;
+
+        if (!seeded) {
+            seed(windowStart);
+        }
+
+        candidates.values().removeIf(engagement -> engagement.createdAt < windowStart);
+
+        // Min-heap of size K: O(n log K) and only K entries held beyond the counters
+        PriorityQueue<Map.Entry<String, Double>> heap = new PriorityQueue<>(topK + 1, Map.Entry.comparingByValue());
+        for (Map.Entry<String, Engagement> candidate : candidates.entrySet()) {
+            heap.offer(Map.entry(candidate.getKey(), score(candidate.getValue(), now)));
+            if (heap.size() > topK) {
+                heap.poll();
+            }
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(heap);
+        ranked.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+        topPostIds = Collections.unmodifiableList(ranked.stream()
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList()));
+    }
+
+    private double score(Engagement engagement, long now) {
+        double points = 1 + likeWeight * Math.max(0, engagement.likes.get())
+                + commentWeight * Math.max(0, engagement.comments.get());
+        double ageHours = Math.max(0, now - engagement.createdAt) / MILLIS_PER_HOUR;
+
+        if (decay == Decay.EXPONENTIAL) {
+            return points * Math.pow(0.5, ageHours / halfLifeHours);
+        }
+        return points / Math.pow(ageHours + 2, gravity);
+    }
+
+    // Loads the counters of every post inside the window once; afterwards they are
+    // maintained incrementally
+    private void seed(long windowStart) {
+        Query query = Query.query(Criteria.where("createdAt").gte(new Date(windowStart)))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                .limit(maxCandidates);
+        query.fields().include("createdAt", "likesCount", "commentsCount");
+
+        for (Post post : mongoTemplate.find(query, Post.class)) {
+            candidates.putIfAbsent(post.getId(),
+                    new Engagement(post.getCreatedAt().getTime(), post.getLikesCount(), post.getCommentsCount()));
+        }
+        seeded = true;
+    }
+
+    private static final class Engagement {
+        private final long createdAt;
+        private final AtomicInteger likes;
+        private final AtomicInteger comments;
+
+        Engagement(long createdAt, int likes, int comments) {
+            this.createdAt = createdAt;
+            this.likes = new AtomicInteger(likes);
+            this.comments = new AtomicInteger(comments);
+        }
+    }
+}
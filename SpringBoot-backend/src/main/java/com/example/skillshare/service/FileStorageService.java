@@ -1,55 +1,293 @@
 package com.example.skillshare.service;
 
+import com.example.skillshare.model.StoredFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+// Uploads are content-addressed: the stream is hashed while it is written to a temp file next to the
+// uploads, then renamed to <sha256><ext>. Identical content maps to the same name, so a re-upload just
+// returns the existing URL. stored_files records every name and the documents referencing it.
+@Slf4j
 @Service
-public class FileStorageService {
+public class FileStorageService implements MeterBinder {
+
+    private static final String URL_PREFIX = "/uploads/";
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("\\.[a-z0-9]{1,10}");
+
+    // An upload as storeAll hands it back: created is false when the bytes were already on disk
+    public record StoredUpload(String url, boolean created, Date uploadedAt) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageVariantService imageVariantService;
+    private final ThreadPoolExecutor uploadExecutor;
+
+    // Striped by file name; makes "record, then check and move" atomic against discard on this instance
+    private final Object[] nameLocks = new Object[64];
 
     @Value("${file.upload-dir}")
     private String uploadDir;
 
+    public FileStorageService(MongoTemplate mongoTemplate,
+                              ImageVariantService imageVariantService,
+                              @Value("${file.upload-threads:4}") int uploadThreads,
+                              @Value("${file.upload-queue-capacity:50}") int uploadQueueCapacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.imageVariantService = imageVariantService;
+        for (int i = 0; i < nameLocks.length; i++) {
+            nameLocks[i] = new Object();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // A full queue runs the store on the request thread, which bounds the backlog instead of failing it
+        this.uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "upload-io-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     public String storeFile(MultipartFile file) {
-        try {
-            // Validate file
-            if (file.isEmpty()) {
-                throw new RuntimeException("Failed to store empty file");
-            }
+        return storeFile(file, null);
+    }
 
-            Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+    // With a usage, images also get that usage's downscaled variants in the background
+    public String storeFile(MultipartFile file, ImageVariantService.Usage usage) {
+        return store(file, usage).url();
+    }
 
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+    // Stores the files concurrently on the upload pool, all or nothing: if any store fails, the others are
+    // waited for, the files this call created are discarded and the first failure is rethrown
+    public List<StoredUpload> storeAll(List<MultipartFile> files, ImageVariantService.Usage usage) {
+        List<CompletableFuture<StoredUpload>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> store(file, usage), uploadExecutor));
+        }
+
+        List<StoredUpload> stored = new ArrayList<>(files.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<StoredUpload> future : futures) {
+            try {
+                stored.add(future.join());
+            } catch (CompletionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause() instanceof RuntimeException cause ? cause : ex;
+                }
             }
+        }
+        if (failure != null) {
+            discard(stored);
+            throw failure;
+        }
+        return stored;
+    }
 
-            String fileName = StringUtils.cleanPath(file.getOriginalFilename());
-            String fileExtension = "";
-            if (fileName.contains(".")) {
-                fileExtension = fileName.substring(fileName.lastIndexOf("."));
+    // Undoes uploads whose owner was never saved. A file goes only if this call created it and it is still
+    // unreferenced and not uploaded again since; content someone else also holds stays.
+    public void discard(Collection<StoredUpload> uploads) {
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        for (StoredUpload upload : uploads) {
+            if (!upload.created()) {
+                continue;
+            }
+            String fileName = upload.url().substring(URL_PREFIX.length());
+            try {
+                synchronized (lockFor(fileName)) {
+                    Query unclaimed = Query.query(Criteria.where("id").is(fileName)
+                            .and("refs").size(0)
+                            .and("lastUploadedAt").is(upload.uploadedAt()));
+                    StoredFile removed = mongoTemplate.findAndRemove(unclaimed, StoredFile.class);
+                    if (removed == null) {
+                        continue;
+                    }
+                    Files.deleteIfExists(uploadPath.resolve(fileName));
+                    for (String variant : imageVariantService.variantFileNames(fileName)) {
+                        Files.deleteIfExists(uploadPath.resolve(variant));
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Could not discard upload {}", fileName, ex);
             }
+        }
+    }
 
-            // Generate unique file name
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
+    private StoredUpload store(MultipartFile file, ImageVariantService.Usage usage) {
+        // Validate file
+        if (file.isEmpty()) {
+            throw new RuntimeException("Failed to store empty file");
+        }
 
-            Path targetLocation = uploadPath.resolve(uniqueFileName);
+        try {
+            Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+            Files.createDirectories(uploadPath);
 
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            }
+            // Same directory as the target, so the final link stays on one filesystem. Not createTempFile:
+            // its owner-only permissions would carry over to the served file.
+            Path temp = uploadPath.resolve(".upload-" + UUID.randomUUID() + ".tmp");
+            try {
+                MessageDigest digest = sha256();
+                long size;
+                try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                     OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW,
+                             StandardOpenOption.WRITE)) {
+                    size = in.transferTo(out);
+                }
+
+                String hash = HexFormat.of().formatHex(digest.digest());
+                String fileName = hash + extensionOf(file.getOriginalFilename());
+                Path target = uploadPath.resolve(fileName);
+
+                Date uploadedAt = new Date();
+                boolean created = false;
+                synchronized (lockFor(fileName)) {
+                    // Recorded before the file appears, so the index never misses a file that is on disk
+                    recordUpload(fileName, hash, size, file.getContentType(), uploadedAt);
 
-            return "/uploads/" + uniqueFileName;
+                    if (Files.exists(target)) {
+                        log.debug("Upload {} deduplicated ({} bytes)", fileName, size);
+                    } else {
+                        // A hard link, unlike a rename, refuses an existing target, so only the instance whose
+                        // link lands counts as the creator; the temp name goes in the finally below
+                        try {
+                            Files.createLink(target, temp);
+                            created = true;
+                        } catch (FileAlreadyExistsException ex) {
+                            log.debug("Upload {} written concurrently by another instance", fileName);
+                        }
+                    }
+                }
+                if (usage != null) {
+                    imageVariantService.schedule(URL_PREFIX + fileName, usage);
+                }
+                return new StoredUpload(URL_PREFIX + fileName, created, uploadedAt);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
         } catch (IOException ex) {
             throw new RuntimeException("Could not store file. Please try again!", ex);
         }
     }
+
+    // ref names the referencing document, e.g. "post:<id>" or "user:<id>:profile"
+    public void addReferences(Collection<String> urls, String ref) {
+        List<String> fileNames = fileNames(urls);
+        if (!fileNames.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(fileNames)),
+                    new Update().addToSet("refs", ref), StoredFile.class);
+        }
+    }
+
+    public void removeReferences(Collection<String> urls, String ref) {
+        List<String> fileNames = fileNames(urls);
+        if (!fileNames.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(fileNames)),
+                    new Update().pull("refs", ref), StoredFile.class);
+        }
+    }
+
+    // Collection candidates: nothing references them and nobody uploaded them since the cutoff. The cutoff
+    // covers the gap between an upload returning its URL and the post or profile that uses it being saved.
+    public List<StoredFile> findUnreferenced(Date uploadedBefore, int limit) {
+        Query query = Query.query(Criteria.where("refs").size(0).and("lastUploadedAt").lt(uploadedBefore))
+                .with(Sort.by("lastUploadedAt"))
+                .limit(limit);
+        return mongoTemplate.find(query, StoredFile.class);
+    }
+
+    private void recordUpload(String fileName, String hash, long size, String contentType, Date now) {
+        Update update = new Update()
+                .setOnInsert("sha256", hash)
+                .setOnInsert("size", size)
+                .setOnInsert("contentType", contentType)
+                .setOnInsert("createdAt", now)
+                .setOnInsert("refs", List.of())
+                .set("lastUploadedAt", now);
+        mongoTemplate.upsert(Query.query(Criteria.where("id").is(fileName)), update, StoredFile.class);
+    }
+
+    private Object lockFor(String fileName) {
+        return nameLocks[Math.floorMod(fileName.hashCode(), nameLocks.length)];
+    }
+
+    // Pool size, active threads and queue depth as executor.* gauges tagged name=upload-io
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(uploadExecutor, "upload-io", Tags.empty()).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    private static List<String> fileNames(Collection<String> urls) {
+        List<String> fileNames = new ArrayList<>();
+        if (urls != null) {
+            for (String url : urls) {
+                if (url != null && url.startsWith(URL_PREFIX)) {
+                    fileNames.add(url.substring(URL_PREFIX.length()));
+                }
+            }
+        }
+        return fileNames;
+    }
+
+    // Lower-cased so photo.JPG and photo.jpg dedupe; anything odd is dropped rather than trusted
+    private static String extensionOf(String originalFilename) {
+        String fileName = StringUtils.cleanPath(originalFilename == null ? "" : originalFilename);
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        String extension = fileName.substring(dot).toLowerCase(Locale.ROOT);
+        return SAFE_EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
 }
@@ -0,0 +1,500 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.StoredFile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Downscaled copies of uploaded images, written next to the original as <sha256>_<size><ext> and listed in
+// the original's stored_files entry. Sizes bound the longest side, and only sizes smaller than the original
+// are produced. Responses swap in the smallest variant that still covers the display size; until the
+// variants exist (or for formats ImageIO cannot round-trip) the original is served. JPEGs are turned
+// upright from their EXIF orientation first, since the variants carry no metadata.
+@Slf4j
+@Service
+public class ImageVariantService implements MeterBinder {
+
+    // One size per usage: the display size at 2x density, which is what fit picks for every response
+    public enum Usage {
+        AVATAR(128),
+        FEED(1280);
+
+        private final int[] sizes;
+
+        Usage(int... sizes) {
+            this.sizes = sizes;
+        }
+    }
+
+    private static final String URL_PREFIX = "/uploads/";
+    private static final Pattern ORIGINAL = Pattern.compile("([0-9a-f]{64})(\\.(?:jpg|jpeg|png))");
+    // No longer generated, but earlier uploads may still have them on disk
+    private static final int[] RETIRED_SIZES = {64, 640};
+    private static final String JPEG_METADATA = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1 = 0xE1;
+
+    private final MongoTemplate mongoTemplate;
+    private final String uploadDir;
+    private final int avatarDisplaySize;
+    private final int feedDisplaySize;
+    private final long maxSourcePixels;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder generatedVariants = new LongAdder();
+    private final LongAdder failedImages = new LongAdder();
+    private final LongAdder skippedImages = new LongAdder();
+    private final LongAdder droppedImages = new LongAdder();
+
+    public ImageVariantService(MongoTemplate mongoTemplate,
+                               @Value("${file.upload-dir}") String uploadDir,
+                               @Value("${media.variants.avatar-display-size:128}") int avatarDisplaySize,
+                               @Value("${media.variants.feed-display-size:1280}") int feedDisplaySize,
+                               @Value("${media.variants.max-source-pixels:24000000}") long maxSourcePixels,
+                               @Value("${media.variants.threads:2}") int threads,
+                               @Value("${media.variants.queue-capacity:100}") int queueCapacity) {
+        this.mongoTemplate = mongoTemplate;
+        this.uploadDir = uploadDir;
+        this.avatarDisplaySize = avatarDisplaySize;
+        this.feedDisplaySize = feedDisplaySize;
+        this.maxSourcePixels = maxSourcePixels;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Decoding is CPU and memory heavy, so a full queue drops the job rather than running it on the
+        // upload request; the image is still served, just at full size
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, pool) -> droppedImages.increment());
+    }
+
+    // Queues variant generation for a stored upload; anything that is not a JPEG or PNG is ignored
+    public void schedule(String url, Usage usage) {
+        String fileName = originalName(url);
+        if (fileName != null) {
+            executor.execute(() -> generate(fileName, usage));
+        }
+    }
+
+    // Feed media get mediaPreviewUrls and authors' pictures the avatar variant, from one stored_files query
+    public void applyVariants(Collection<Post> posts) {
+        List<String> urls = new ArrayList<>();
+        for (Post post : posts) {
+            urls.addAll(mediaUrlsOf(post));
+            urls.add(post.getUserProfilePicture());
+        }
+        Map<String, List<Integer>> variants = variantsOf(urls);
+
+        for (Post post : posts) {
+            List<String> previews = new ArrayList<>(mediaUrlsOf(post).size());
+            for (String url : mediaUrlsOf(post)) {
+                previews.add(fit(url, variants.get(url), feedDisplaySize));
+            }
+            post.setMediaPreviewUrls(previews);
+            post.setUserProfilePicture(fit(post.getUserProfilePicture(),
+                    variants.get(post.getUserProfilePicture()), avatarDisplaySize));
+        }
+    }
+
+    // Swaps each item's author picture for the avatar variant, from one stored_files query; used wherever
+    // authors are listed outside of posts
+    public <T> void applyAvatarVariants(Collection<T> items, Function<T, String> pictureOf,
+                                        BiConsumer<T, String> setPicture) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<String, List<Integer>> variants = variantsOf(items.stream().map(pictureOf).toList());
+        if (variants.isEmpty()) {
+            return;
+        }
+        for (T item : items) {
+            String picture = pictureOf.apply(item);
+            setPicture.accept(item, fit(picture, variants.get(picture), avatarDisplaySize));
+        }
+    }
+
+    private static List<String> mediaUrlsOf(Post post) {
+        return post.getMediaUrls() == null ? List.of() : post.getMediaUrls();
+    }
+
+    // Recorded variant sizes per url, for the content-addressed images among the urls
+    Map<String, List<Integer>> variantsOf(Collection<String> urls) {
+        Map<String, String> urlsByName = new HashMap<>();
+        for (String url : urls) {
+            String fileName = originalName(url);
+            if (fileName != null) {
+                urlsByName.put(fileName, url);
+            }
+        }
+        if (urlsByName.isEmpty()) {
+            return Map.of();
+        }
+
+        Query query = Query.query(Criteria.where("id").in(urlsByName.keySet()));
+        query.fields().include("variants");
+        Map<String, List<Integer>> variants = new HashMap<>();
+        for (StoredFile storedFile : mongoTemplate.find(query, StoredFile.class)) {
+            if (storedFile.getVariants() != null && !storedFile.getVariants().isEmpty()) {
+                variants.put(urlsByName.get(storedFile.getId()), storedFile.getVariants());
+            }
+        }
+        return variants;
+    }
+
+    private static String originalName(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        String fileName = url.substring(URL_PREFIX.length());
+        return ORIGINAL.matcher(fileName).matches() ? fileName : null;
+    }
+
+    // The smallest variant at least displaySize on its longest side; a variant is only made when the original
+    // is larger, so with none that big the original is the better fit
+    static String fit(String url, List<Integer> variants, int displaySize) {
+        if (url == null || variants == null) {
+            return url;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int size : variants) {
+            if (size >= displaySize && size < best) {
+                best = size;
+            }
+        }
+        return best == Integer.MAX_VALUE ? url : variantUrl(url, best);
+    }
+
+    // Every name a variant of fileName could have, whether or not it was generated
+    public List<String> variantFileNames(String fileName) {
+        Matcher name = ORIGINAL.matcher(fileName);
+        if (!name.matches()) {
+            return List.of();
+        }
+        List<String> fileNames = new ArrayList<>();
+        for (Usage usage : Usage.values()) {
+            for (int size : usage.sizes) {
+                fileNames.add(name.group(1) + "_" + size + name.group(2));
+            }
+        }
+        for (int size : RETIRED_SIZES) {
+            fileNames.add(name.group(1) + "_" + size + name.group(2));
+        }
+        return fileNames;
+    }
+
+    static String variantUrl(String url, int size) {
+        int dot = url.lastIndexOf('.');
+        return url.substring(0, dot) + "_" + size + url.substring(dot);
+    }
+
+    void generate(String fileName, Usage usage) {
+        Matcher name = ORIGINAL.matcher(fileName);
+        if (!name.matches()) {
+            return;
+        }
+        String extension = name.group(2);
+        String format = extension.equals(".png") ? "png" : "jpeg";
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path original = uploadPath.resolve(fileName);
+
+        try {
+            // Sizes already on disk came from an earlier upload of the same bytes
+            List<Integer> missing = new ArrayList<>();
+            for (int size : usage.sizes) {
+                if (!Files.exists(uploadPath.resolve(name.group(1) + "_" + size + extension))) {
+                    missing.add(size);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+
+            Source source = read(original, Collections.max(missing));
+            if (source == null) {
+                skippedImages.increment();
+                return;
+            }
+
+            List<Integer> written = new ArrayList<>();
+            for (int size : missing) {
+                if (size >= source.longest()) {
+                    continue;
+                }
+                Path target = uploadPath.resolve(name.group(1) + "_" + size + extension);
+                write(scale(source.image(), size, format.equals("png")), format, uploadPath, target);
+                written.add(size);
+            }
+            if (!Files.exists(original)) {
+                // Discarded while it was being scaled; don't leave variants of a file that is gone
+                for (int size : written) {
+                    Files.deleteIfExists(uploadPath.resolve(name.group(1) + "_" + size + extension));
+                }
+                return;
+            }
+            if (!written.isEmpty()) {
+                generatedVariants.add(written.size());
+                mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(fileName)),
+                        new Update().addToSet("variants").each(written.toArray()), StoredFile.class);
+            }
+        } catch (IOException | RuntimeException ex) {
+            failedImages.increment();
+            log.warn("Could not create {} variants of {}", usage, fileName, ex);
+        }
+    }
+
+    // The original's longest side from the header, and its pixels
+    private record Source(BufferedImage image, int longest) {
+    }
+
+    // Null when the file is not decodable or larger than max-source-pixels; the header is checked before
+    // decoding so a small file claiming huge dimensions never gets its raster allocated. Large originals are
+    // decoded subsampled, never below twice largestSize, so the raster is sized by the variants, not the photo
+    private Source read(Path file, int largestSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxSourcePixels) {
+                    log.info("Skipping variants of {}: {}x{} exceeds max-source-pixels", file.getFileName(),
+                            reader.getWidth(0), reader.getHeight(0));
+                    return null;
+                }
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = subsampling(longest, largestSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage image = reader.read(0, param);
+                return new Source(orient(image, orientation(reader)), longest);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // The EXIF Orientation tag (1-8) of a JPEG, from the APP1 segment ImageIO keeps as an unknown marker;
+    // 1 (as stored) for other formats or when it is missing or unreadable
+    private static int orientation(ImageReader reader) {
+        try {
+            IIOMetadata metadata = reader.getImageMetadata(0);
+            if (metadata == null || !JPEG_METADATA.equals(metadata.getNativeMetadataFormatName())) {
+                return 1;
+            }
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA);
+            var markers = root.getElementsByTagName("unknown");
+            for (int i = 0; i < markers.getLength(); i++) {
+                IIOMetadataNode marker = (IIOMetadataNode) markers.item(i);
+                if (String.valueOf(APP1).equals(marker.getAttribute("MarkerTag"))
+                        && marker.getUserObject() instanceof byte[] data) {
+                    int orientation = exifOrientation(data);
+                    if (orientation != 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.debug("Could not read the orientation of an image, using it as stored", ex);
+        }
+        return 1;
+    }
+
+    // Tag 0x0112 of IFD0 in an "Exif\0\0" APP1 payload; 0 when the payload is not EXIF or has no such tag
+    static int exifOrientation(byte[] app1) {
+        int tiff = 6;
+        if (app1.length < tiff + 8 || app1[0] != 'E' || app1[1] != 'x' || app1[2] != 'i' || app1[3] != 'f') {
+            return 0;
+        }
+        boolean littleEndian = app1[tiff] == 'I' && app1[tiff + 1] == 'I';
+        int ifd = tiff + (int) unsigned(app1, tiff + 4, 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > app1.length) {
+            return 0;
+        }
+        int entries = (int) unsigned(app1, ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                return 0;
+            }
+            if (unsigned(app1, entry, 2, littleEndian) == 0x0112) {
+                int value = (int) unsigned(app1, entry + 8, 2, littleEndian);
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static long unsigned(byte[] data, int offset, int length, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + (littleEndian ? length - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    // Redraws the image the way a viewer honouring the orientation would show it; 5-8 swap width and height
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w);
+            default -> new AffineTransform(0, -1, 1, 0, 0, w);
+        };
+        boolean swap = orientation >= 5;
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage upright = new BufferedImage(swap ? h : w, swap ? w : h, type);
+        Graphics2D graphics = upright.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return upright;
+    }
+
+    // Every step-th pixel of every step-th row; the largest step that leaves the longest side at least 2x size
+    static int subsampling(int longest, int size) {
+        return Math.max(1, longest / (2 * size));
+    }
+
+    // Repeated halving down to twice the target, then one bilinear step: close to area averaging in quality
+    // at a fraction of getScaledInstance's cost
+    static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round((double) source.getWidth() * size / longest));
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * size / longest));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = currentWidth / 2 >= width * 2 ? currentWidth / 2 : width;
+            currentHeight = currentHeight / 2 >= height * 2 ? currentHeight / 2 : height;
+            if (currentWidth == width || currentHeight == height) {
+                currentWidth = width;
+                currentHeight = height;
+            }
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    // Temp file and rename, so MediaController never serves a half-written variant. A worker racing on the same
+    // variant renders the same bytes, so whichever rename lands last replacing the other is harmless.
+    private static void write(BufferedImage image, String format, Path uploadPath, Path target) throws IOException {
+        Path temp = uploadPath.resolve(".variant-" + UUID.randomUUID() + ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (format.equals("jpeg")) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(0.82f);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Pool size, active threads and queue depth as executor.* gauges tagged name=image-variants
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "image-variants", Tags.empty()).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queuedImages", executor.getQueue().size());
+        stats.put("activeImages", executor.getActiveCount());
+        stats.put("generatedVariants", generatedVariants.sum());
+        stats.put("skippedImages", skippedImages.sum());
+        stats.put("failedImages", failedImages.sum());
+        stats.put("droppedImages", droppedImages.sum());
+        return stats;
+    }
+}
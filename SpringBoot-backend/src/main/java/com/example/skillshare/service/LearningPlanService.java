@@ -6,7 +6,6 @@ import com.example.skillshare.model.LearningStep;
 import com.example.skillshare.model.Notification;
 import com.example.skillshare.model.User;
 import com.example.skillshare.repository.LearningPlanRepository;
-import com.example.skillshare.repository.NotificationRepository;
 import com.example.skillshare.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -25,7 +24,7 @@ public class LearningPlanService {
 
     private final LearningPlanRepository learningPlanRepository;
     private final UserRepository userRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationFanOutService notificationFanOutService;
 
     public LearningPlan getLearningPlanById(String planId) {
         return learningPlanRepository.findById(planId)
@@ -395,22 +394,20 @@ public class LearningPlanService {
             return;
         }
 
-        for (String followerId : user.getFollowers()) {
-            Notification notification = new Notification();
-            notification.setUserId(followerId);
-            notification.setSenderId(user.getId());
-            notification.setType("LEARNING_UPDATE");
+        Notification notification = new Notification();
+        notification.setSenderId(user.getId());
+        notification.setType("LEARNING_UPDATE");
 
-            String progressMessage = learningPlan.getProgress() == 100
-                    ? "completed"
-                    : "reached " + learningPlan.getProgress() + "% progress on";
+        String progressMessage = learningPlan.getProgress() == 100
+                ? "completed"
+                : "reached " + learningPlan.getProgress() + "% progress on";
 
-            notification
-                    .setContent(user.getName() + " " + progressMessage + " learning plan: " + learningPlan.getTitle());
-            notification.setEntityId(learningPlan.getId());
-            notification.setCreatedAt(new Date());
+        notification
+                .setContent(user.getName() + " " + progressMessage + " learning plan: " + learningPlan.getTitle());
+        notification.setEntityId(learningPlan.getId());
+        notification.setCreatedAt(new Date());
 
-            notificationRepository.save(notification);
-        }
+        // Written in batches off the request thread, large follower lists don't hold up the step toggle
+        notificationFanOutService.fanOut(user.getFollowers(), notification);
     }
 }
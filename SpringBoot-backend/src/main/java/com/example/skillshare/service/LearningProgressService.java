@@ -11,6 +11,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -24,6 +25,9 @@ public class LearningProgressService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AuthorResolver authorResolver;
+
     public LearningProgress createLearningProgress(String email, LearningProgressDto progressDto) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -119,12 +123,7 @@ public class LearningProgressService {
         List<LearningProgress> progressList = learningProgressRepository.findByUserId(userId);
 
         // Populate user information
-        progressList.forEach(progress -> {
-            userRepository.findById(progress.getUserId()).ifPresent(user -> {
-                progress.setUserName(user.getName());
-                progress.setUserProfilePicture(user.getProfilePicture());
-            });
-        });
+        authorResolver.enrichLearningProgress(progressList);
 
         return progressList;
     }
@@ -133,12 +132,7 @@ public class LearningProgressService {
         Page<LearningProgress> progressPage = learningProgressRepository.findByUserId(userId, pageable);
 
         // Populate user information
-        progressPage.forEach(progress -> {
-            userRepository.findById(progress.getUserId()).ifPresent(user -> {
-                progress.setUserName(user.getName());
-                progress.setUserProfilePicture(user.getProfilePicture());
-            });
-        });
+        authorResolver.enrichLearningProgress(progressPage.getContent());
 
         return progressPage;
     }
@@ -148,10 +142,7 @@ public class LearningProgressService {
                 .orElseThrow(() -> new RuntimeException("Learning progress not found"));
 
         // Populate user information
-        userRepository.findById(progress.getUserId()).ifPresent(user -> {
-            progress.setUserName(user.getName());
-            progress.setUserProfilePicture(user.getProfilePicture());
-        });
+        authorResolver.enrichLearningProgress(Collections.singletonList(progress));
 
         return progress;
     }
@@ -160,12 +151,7 @@ public class LearningProgressService {
         Page<LearningProgress> progressPage = learningProgressRepository.findBySkillsContaining(skill, pageable);
 
         // Populate user information
-        progressPage.forEach(progress -> {
-            userRepository.findById(progress.getUserId()).ifPresent(user -> {
-                progress.setUserName(user.getName());
-                progress.setUserProfilePicture(user.getProfilePicture());
-            });
-        });
+        authorResolver.enrichLearningProgress(progressPage.getContent());
 
         return progressPage;
     }
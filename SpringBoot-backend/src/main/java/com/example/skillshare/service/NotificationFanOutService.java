@@ -0,0 +1,163 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.repository.NotificationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Writes one notification per recipient off the request thread, in insertMany chunks
+@Slf4j
+@Service
+public class NotificationFanOutService implements MeterBinder {
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationInboxService notificationInboxService;
+    private final NotificationStreamService notificationStreamService;
+    private final BusinessMetrics businessMetrics;
+    private final int batchSize;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder pendingNotifications = new LongAdder();
+    private final LongAdder insertedNotifications = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+    private final AtomicLong maxBatchNanos = new AtomicLong();
+
+    private volatile MeterRegistry registry;
+
+    public NotificationFanOutService(NotificationRepository notificationRepository,
+                                     NotificationInboxService notificationInboxService,
+                                     NotificationStreamService notificationStreamService,
+                                     BusinessMetrics businessMetrics,
+                                     @Value("${notifications.fanout.batch-size:500}") int batchSize,
+                                     @Value("${notifications.fanout.threads:2}") int threads,
+                                     @Value("${notifications.fanout.queue-capacity:200}") int queueCapacity) {
+        this.notificationRepository = notificationRepository;
+        this.notificationInboxService = notificationInboxService;
+        this.notificationStreamService = notificationStreamService;
+        this.businessMetrics = businessMetrics;
+        this.batchSize = batchSize;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // When the queue is full the submitting thread writes the batch itself, which slows producers down
+        // instead of buffering an unbounded backlog
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "notification-fanout-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Every recipient gets a copy of the template with its own userId
+    public void fanOut(List<String> recipientIds, Notification template) {
+        if (recipientIds == null || recipientIds.isEmpty()) {
+            return;
+        }
+
+        List<String> recipients = new ArrayList<>(recipientIds);
+        businessMetrics.fanOut(recipients.size());
+        for (int from = 0; from < recipients.size(); from += batchSize) {
+            List<String> chunk = recipients.subList(from, Math.min(from + batchSize, recipients.size()));
+            pendingNotifications.add(chunk.size());
+            executor.execute(() -> writeBatch(chunk, template));
+        }
+    }
+
+    private void writeBatch(List<String> recipientIds, Notification template) {
+        List<Notification> notifications = new ArrayList<>(recipientIds.size());
+        for (String recipientId : recipientIds) {
+            Notification notification = new Notification();
+            notification.setUserId(recipientId);
+            notification.setSenderId(template.getSenderId());
+            notification.setType(template.getType());
+            notification.setContent(template.getContent());
+            notification.setEntityId(template.getEntityId());
+            notification.setCreatedAt(template.getCreatedAt());
+            notifications.add(notification);
+        }
+
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            List<Notification> inserted = notificationRepository.insert(notifications);
+            notificationInboxService.incrementUnread(inserted);
+            inserted.forEach(notificationStreamService::publish);
+            insertedNotifications.add(inserted.size());
+        } catch (RuntimeException ex) {
+            failed = true;
+            failedBatches.increment();
+            log.warn("Failed to write {} {} notifications from {}", notifications.size(), template.getType(),
+                    template.getSenderId(), ex);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            batches.increment();
+            batchNanos.add(elapsed);
+            maxBatchNanos.accumulateAndGet(elapsed, Math::max);
+            pendingNotifications.add(-recipientIds.size());
+
+            MeterRegistry meters = registry;
+            if (meters != null) {
+                Timer.builder("skillshare.notifications.fanout.batch")
+                        .description("Time to insert, count and publish one fan-out batch")
+                        .tag("outcome", failed ? "failure" : "success")
+                        .register(meters)
+                        .record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    // Pool size, active threads and queue depth as executor.* gauges tagged name=notification-fanout, plus the
+    // batch timer and the notifications still waiting in the queue
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "notification-fanout", Tags.empty()).bindTo(registry);
+        Gauge.builder("skillshare.notifications.fanout.pending", pendingNotifications, LongAdder::sum)
+                .description("Notifications accepted for fan-out but not yet written")
+                .register(registry);
+        this.registry = registry;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Notification fan-out did not drain, {} notifications dropped", pendingNotifications.sum());
+            executor.shutdownNow();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long batchCount = batches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queuedBatches", executor.getQueue().size());
+        stats.put("activeBatches", executor.getActiveCount());
+        stats.put("pendingNotifications", pendingNotifications.sum());
+        stats.put("insertedNotifications", insertedNotifications.sum());
+        stats.put("batches", batchCount);
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("avgBatchMs", batchCount == 0 ? 0.0 : batchNanos.sum() / 1_000_000.0 / batchCount);
+        stats.put("maxBatchMs", maxBatchNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.NotificationInbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Materialized unread counts, one document per user, kept in step with notification writes
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationInboxService {
+
+    private static final long RECONCILE_SETTLE_MILLIS = 60_000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${notifications.unread-reconcile-interval-ms:3600000}")
+    private long reconcileIntervalMillis = 3_600_000;
+
+    @Value("${notifications.unread-reconcile-batch-size:500}")
+    private int reconcileBatchSize = 500;
+
+    @Value("${notifications.unread-backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    // Where the last reconcile run stopped; the first run after startup looks back one interval
+    private volatile Date reconciledUntil;
+
+    public NotificationInbox getInbox(String userId) {
+        NotificationInbox inbox = mongoTemplate.findById(userId, NotificationInbox.class);
+        if (inbox == null) {
+            inbox = new NotificationInbox();
+            inbox.setId(userId);
+        }
+        return inbox;
+    }
+
+    public long getUnreadCount(String userId) {
+        return getInbox(userId).getUnreadCount();
+    }
+
+    // A notification's own read flag is an override; the watermark covers everything older in one field
+    public static boolean isRead(Notification notification, NotificationInbox inbox) {
+        return notification.isRead() || (inbox.getLastReadAt() != null && notification.getCreatedAt() != null
+                && !notification.getCreatedAt().after(inbox.getLastReadAt()));
+    }
+
+    public void incrementUnread(String userId) {
+        mongoTemplate.upsert(byUser(userId),
+                new Update().inc("unreadCount", 1).set("updatedAt", new Date()), NotificationInbox.class);
+    }
+
+    // One upsert per recipient for a fan-out batch
+    public void incrementUnread(Collection<Notification> notifications) {
+        Map<String, Long> perUser = notifications.stream()
+                .collect(Collectors.groupingBy(Notification::getUserId, Collectors.counting()));
+        if (perUser.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationInbox.class);
+        Date now = new Date();
+        perUser.forEach((userId, count) -> bulk.upsert(byUser(userId),
+                new Update().inc("unreadCount", count).set("updatedAt", now)));
+        bulk.execute();
+    }
+
+    public void decrementUnread(String userId) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(userId).and("unreadCount").gt(0)),
+                new Update().inc("unreadCount", -1).set("updatedAt", new Date()), NotificationInbox.class);
+    }
+
+    // Unread notifications removed by retention, one update per user in a single bulk
+    public void removeUnread(Map<String, Long> removedPerUser) {
+        if (removedPerUser.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationInbox.class);
+        Date now = new Date();
+        removedPerUser.forEach((userId, count) -> bulk.updateOne(byUser(userId),
+                new Update().inc("unreadCount", -count).set("updatedAt", now)));
+        bulk.execute();
+    }
+
+    // Mark-all-read is a single write however large the backlog: move the watermark and zero the counter
+    public void markAllRead(String userId) {
+        Date now = new Date();
+        mongoTemplate.upsert(byUser(userId),
+                new Update().set("lastReadAt", now).set("unreadCount", 0).set("updatedAt", now),
+                NotificationInbox.class);
+    }
+
+    // Recounts unread notifications (flag unset and newer than the owner's watermark) for inboxes touched since the
+    // last run and repairs counters that drifted (failed writes, crashes mid-request). Only inboxes that have been
+    // quiet for a settle period are checked, and only notifications inserted before it are counted: an increment
+    // still in flight lands after the repair and is kept. Each repair is conditional on the unreadCount and updatedAt
+    // it read, so a write that lands in between wins and the inbox is checked again on the next run.
+    @Scheduled(fixedDelayString = "${notifications.unread-reconcile-interval-ms:3600000}",
+            initialDelayString = "${notifications.unread-reconcile-interval-ms:3600000}")
+    public synchronized int reconcileUnreadCounts() {
+        // Whole seconds, the resolution of the ObjectId timestamps the notification cutoff is taken from
+        long untilSeconds = (System.currentTimeMillis() - RECONCILE_SETTLE_MILLIS) / 1000;
+        Date until = new Date(untilSeconds * 1000);
+        Date since = reconciledUntil != null ? reconciledUntil : new Date(until.getTime() - reconcileIntervalMillis);
+        ObjectId insertedBefore = new ObjectId(String.format("%08x%016x", untilSeconds, 0));
+
+        Query touched = Query.query(Criteria.where("updatedAt").gte(since).lt(until));
+        int repairs = 0;
+        List<NotificationInbox> batch = new ArrayList<>(reconcileBatchSize);
+        try (Stream<NotificationInbox> inboxes = mongoTemplate.stream(touched, NotificationInbox.class)) {
+            for (NotificationInbox inbox : (Iterable<NotificationInbox>) inboxes::iterator) {
+                batch.add(inbox);
+                if (batch.size() == reconcileBatchSize) {
+                    repairs += reconcile(batch, insertedBefore);
+                    batch.clear();
+                }
+            }
+        }
+        repairs += reconcile(batch, insertedBefore);
+
+        reconciledUntil = until;
+        if (repairs > 0) {
+            log.info("Reconciled {} unread notification counters", repairs);
+        }
+        return repairs;
+    }
+
+    private int reconcile(List<NotificationInbox> inboxes, ObjectId insertedBefore) {
+        if (inboxes.isEmpty()) {
+            return 0;
+        }
+
+        // One branch per user on user_unread_idx, against the watermark already in hand instead of a $lookup
+        List<Criteria> unread = inboxes.stream()
+                .map(inbox -> Criteria.where("userId").is(inbox.getId()).and("read").is(false)
+                        .and("createdAt").gt(inbox.getLastReadAt() != null ? inbox.getLastReadAt() : new Date(0)))
+                .collect(Collectors.toList());
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().orOperator(unread).and("_id").lt(insertedBefore)),
+                Aggregation.group("userId").count().as("unread"));
+        Map<String, Long> actual = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Notification.class, Document.class)) {
+            actual.put(row.getString("_id"), ((Number) row.get("unread")).longValue());
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationInbox.class);
+        int repairs = 0;
+        for (NotificationInbox inbox : inboxes) {
+            long expected = actual.getOrDefault(inbox.getId(), 0L);
+            if (inbox.getUnreadCount() != expected) {
+                // updatedAt is left alone so the repair itself doesn't queue the inbox for the next run
+                bulk.updateOne(Query.query(Criteria.where("id").is(inbox.getId())
+                                .and("unreadCount").is(inbox.getUnreadCount())
+                                .and("updatedAt").is(inbox.getUpdatedAt())),
+                        new Update().set("unreadCount", expected));
+                repairs++;
+            }
+        }
+        if (repairs > 0) {
+            bulk.execute();
+        }
+        return repairs;
+    }
+
+    // Runs off the startup thread like the likes migration, so a large backlog doesn't delay serving requests
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        if (backfillOnStartup) {
+            Thread backfill = new Thread(this::backfillMissingInboxes, "notification-inbox-backfill");
+            backfill.setDaemon(true);
+            backfill.start();
+        }
+    }
+
+    // Creates the inboxes of users whose unread notifications predate the materialized counter; reconcile only
+    // visits inboxes that exist, so without one their badge would stay at 0. Existing inboxes are left alone, and
+    // a created one gets updatedAt now so the next reconcile rechecks it against increments that raced the backfill.
+    public int backfillMissingInboxes() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("read").is(false).and("userId").ne(null)),
+                Aggregation.group("userId").count().as("unread"));
+        int created = 0;
+        try {
+            List<Document> batch = new ArrayList<>(reconcileBatchSize);
+            try (Stream<Document> rows = mongoTemplate.aggregateStream(aggregation, Notification.class, Document.class)) {
+                for (Document row : (Iterable<Document>) rows::iterator) {
+                    batch.add(row);
+                    if (batch.size() == reconcileBatchSize) {
+                        created += createMissing(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            created += createMissing(batch);
+        } catch (DataAccessException ex) {
+            log.warn("Could not backfill notification inboxes: {}", ex.getMessage());
+        }
+
+        if (created > 0) {
+            log.info("Backfilled {} notification inboxes", created);
+        }
+        return created;
+    }
+
+    private int createMissing(List<Document> unreadPerUser) {
+        if (unreadPerUser.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationInbox.class);
+        Date now = new Date();
+        unreadPerUser.forEach(row -> bulk.upsert(byUser(row.getString("_id")),
+                new Update().setOnInsert("unreadCount", ((Number) row.get("unread")).longValue())
+                        .setOnInsert("updatedAt", now)));
+        return bulk.execute().getUpserts().size();
+    }
+
+    private Query byUser(String userId) {
+        return Query.query(Criteria.where("id").is(userId));
+    }
+}
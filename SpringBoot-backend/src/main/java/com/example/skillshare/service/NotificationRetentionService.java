@@ -0,0 +1,189 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.NotificationInbox;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Keeps the notifications collection bounded: read notifications expire, unread backlogs are capped per user
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationRetentionService {
+
+    private final MongoTemplate mongoTemplate;
+    private final NotificationInboxService notificationInboxService;
+
+    // Also the expiry of read_ttl_idx, declared on Notification
+    @Value("${notifications.retention.read-ttl-days:30}")
+    private int readTtlDays = 30;
+
+    @Value("${notifications.retention.max-unread-per-user:1000}")
+    private int maxUnreadPerUser = 1000;
+
+    @Value("${notifications.retention.batch-size:100}")
+    private int batchSize = 100;
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    @Scheduled(fixedDelayString = "${notifications.retention.compact-interval-ms:3600000}",
+            initialDelayString = "${notifications.retention.compact-interval-ms:3600000}")
+    public synchronized Map<String, Object> compact() {
+        long start = System.currentTimeMillis();
+        Map<String, Object> before = collectionStats();
+        long expired = expireWatermarkRead();
+        long[] trimmed = trimUnreadBacklogs();
+        Map<String, Object> after = collectionStats();
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("ranAt", new Date(start));
+        run.put("durationMs", System.currentTimeMillis() - start);
+        run.put("expiredRead", expired);
+        run.put("trimmedUnread", trimmed[0]);
+        run.put("usersTrimmed", trimmed[1]);
+        run.put("before", before);
+        run.put("after", after);
+        lastRun = run;
+
+        if (expired > 0 || trimmed[0] > 0) {
+            log.info("Notification compaction removed {} read and {} unread notifications", expired, trimmed[0]);
+        }
+        return run;
+    }
+
+    // Deletes notifications older than the TTL that each user's watermark already covers, batchSize users per bulk
+    private long expireWatermarkRead() {
+        Date ttlCutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(readTtlDays));
+        Query inboxes = Query.query(Criteria.where("lastReadAt").ne(null));
+        inboxes.fields().include("lastReadAt");
+
+        long removed = 0;
+        List<NotificationInbox> batch = new ArrayList<>(batchSize);
+        try (Stream<NotificationInbox> stream = mongoTemplate.stream(inboxes, NotificationInbox.class)) {
+            for (NotificationInbox inbox : (Iterable<NotificationInbox>) stream::iterator) {
+                batch.add(inbox);
+                if (batch.size() == batchSize) {
+                    removed += expireBatch(batch, ttlCutoff);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            removed += expireBatch(batch, ttlCutoff);
+        }
+        return removed;
+    }
+
+    private long expireBatch(List<NotificationInbox> inboxes, Date ttlCutoff) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class);
+        for (NotificationInbox inbox : inboxes) {
+            Date cutoff = inbox.getLastReadAt().before(ttlCutoff) ? inbox.getLastReadAt() : ttlCutoff;
+            bulk.remove(Query.query(Criteria.where("userId").is(inbox.getId()).and("createdAt").lte(cutoff)));
+        }
+        return bulk.execute().getDeletedCount();
+    }
+
+    // Keeps only the newest maxUnreadPerUser unread notifications of each over-quota user. The materialized
+    // counters pick the users, so only their notifications are read, batchSize users at a time.
+    private long[] trimUnreadBacklogs() {
+        Query overQuota = Query.query(Criteria.where("unreadCount").gt(maxUnreadPerUser));
+        overQuota.fields().include("lastReadAt");
+
+        long removed = 0;
+        long users = 0;
+        List<NotificationInbox> batch = new ArrayList<>(batchSize);
+        try (Stream<NotificationInbox> stream = mongoTemplate.stream(overQuota, NotificationInbox.class)) {
+            for (NotificationInbox inbox : (Iterable<NotificationInbox>) stream::iterator) {
+                batch.add(inbox);
+                if (batch.size() == batchSize) {
+                    Map<String, Long> trimmed = trimBatch(batch);
+                    removed += trimmed.values().stream().mapToLong(Long::longValue).sum();
+                    users += trimmed.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            Map<String, Long> trimmed = trimBatch(batch);
+            removed += trimmed.values().stream().mapToLong(Long::longValue).sum();
+            users += trimmed.size();
+        }
+        return new long[]{removed, users};
+    }
+
+    // Returns the notifications removed per user. They are counted before the bulk delete so each inbox loses what
+    // its user lost; if one is marked read in between, the inbox is off by one until the next reconcile repairs it.
+    private Map<String, Long> trimBatch(List<NotificationInbox> inboxes) {
+        List<Criteria> older = new ArrayList<>();
+        for (NotificationInbox inbox : inboxes) {
+            Date readUpTo = inbox.getLastReadAt() != null ? inbox.getLastReadAt() : new Date(0);
+            Criteria unread = Criteria.where("userId").is(inbox.getId()).and("read").is(false)
+                    .and("createdAt").gt(readUpTo);
+
+            // The newest notification past the quota, on user_unread_idx
+            Query boundaryQuery = Query.query(unread).with(Sort.by(Sort.Direction.DESC, "createdAt"))
+                    .skip(maxUnreadPerUser).limit(1);
+            boundaryQuery.fields().include("createdAt");
+            Notification boundary = mongoTemplate.findOne(boundaryQuery, Notification.class);
+            if (boundary != null) {
+                older.add(Criteria.where("userId").is(inbox.getId()).and("read").is(false)
+                        .and("createdAt").gt(readUpTo).lte(boundary.getCreatedAt()));
+            }
+        }
+        if (older.isEmpty()) {
+            return Map.of();
+        }
+
+        Aggregation count = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().orOperator(older)),
+                Aggregation.group("userId").count().as("trimmed"));
+        Map<String, Long> trimmed = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(count, Notification.class, Document.class)) {
+            trimmed.put(row.getString("_id"), ((Number) row.get("trimmed")).longValue());
+        }
+
+        BulkOperations removals = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class);
+        older.forEach(criteria -> removals.remove(Query.query(criteria)));
+        removals.execute();
+        notificationInboxService.removeUnread(trimmed);
+        return trimmed;
+    }
+
+    private Map<String, Object> collectionStats() {
+        Document stats = mongoTemplate.executeCommand(
+                new Document("collStats", mongoTemplate.getCollectionName(Notification.class)));
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", stats.get("count"));
+        summary.put("sizeBytes", stats.get("size"));
+        summary.put("storageSizeBytes", stats.get("storageSize"));
+        summary.put("totalIndexSizeBytes", stats.get("totalIndexSize"));
+        return summary;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("readTtlDays", readTtlDays);
+        stats.put("maxUnreadPerUser", maxUnreadPerUser);
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+}
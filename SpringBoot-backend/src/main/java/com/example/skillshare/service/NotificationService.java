@@ -1,15 +1,27 @@
 package com.example.skillshare.service;
 
 import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.NotificationInbox;
 import com.example.skillshare.model.User;
 import com.example.skillshare.repository.NotificationRepository;
 import com.example.skillshare.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -17,19 +29,146 @@ public class NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
+    private final NotificationStreamService notificationStreamService;
+    private final NotificationInboxService notificationInboxService;
+    private final MongoTemplate mongoTemplate;
 
-    public Page<Notification> getNotificationsByEmail(String email, Pageable pageable) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    @Value("${notifications.group.window-minutes:1440}")
+    private long groupWindowMinutes = 1440;
+
+    @Value("${notifications.group.max-actor-ids:5}")
+    private int maxActorIds = 5;
+
+    // Single write path for notifications so unread counters and open streams see every insert
+    public Notification createNotification(Notification notification) {
+        Notification saved = notificationRepository.save(notification);
+        notificationInboxService.incrementUnread(saved.getUserId());
+        notificationStreamService.publish(saved);
+        return saved;
+    }
 
-        return notificationRepository.findByUserIdOrderByCreatedAtDesc(user.getId(), pageable);
+    // Collapses repeated LIKE/COMMENT notifications on one entity into a single upserted document per recipient
+    // while its window is open; the notification only counts as new unread if the group was new or already read.
+    // actorCount counts distinct actors: a sender already in actorIds (like, unlike, like again) only refreshes the
+    // group. actorIds is capped, so an actor who has aged out of it counts again.
+    public Notification createGroupedNotification(Notification notification) {
+        try {
+            return upsertGroup(notification);
+        } catch (DuplicateKeyException ex) {
+            // Another first actor started the group meanwhile (open_group_unique_idx); this time it is found and joined
+            return upsertGroup(notification);
+        }
     }
 
-    public int getUnreadNotificationsCount(String email) {
+    private Notification upsertGroup(Notification notification) {
+        Date now = new Date();
+        Date windowStart = new Date(now.getTime() - groupWindowMinutes * 60_000);
+        String senderId = notification.getSenderId();
+        Criteria key = Criteria.where("userId").is(notification.getUserId())
+                .and("type").is(notification.getType())
+                .and("entityId").is(notification.getEntityId());
+        Criteria group = Criteria.where("userId").is(notification.getUserId())
+                .and("type").is(notification.getType())
+                .and("entityId").is(notification.getEntityId())
+                .and("groupStartedAt").gte(windowStart);
+        FindAndModifyOptions returnPrevious = FindAndModifyOptions.options().returnNew(false);
+
+        // The common case first: a new actor on an open group
+        Notification previous = mongoTemplate.findAndModify(
+                Query.query(new Criteria().andOperator(group, Criteria.where("actorIds").ne(senderId))),
+                addActor(notification, now), returnPrevious, Notification.class);
+        boolean newActor = previous != null;
+
+        if (previous == null) {
+            previous = mongoTemplate.findAndModify(
+                    Query.query(new Criteria().andOperator(group, Criteria.where("actorIds").is(senderId))),
+                    latestActor(notification, now), returnPrevious, Notification.class);
+        }
+
+        ObjectId id = new ObjectId();
+        if (previous == null) {
+            // No open group: close the expired one so the unique index admits a new one, then start it.
+            // The upsert still matches a group created in the meantime.
+            mongoTemplate.updateMulti(Query.query(new Criteria().andOperator(key,
+                            Criteria.where("groupOpen").is(true), Criteria.where("groupStartedAt").lt(windowStart))),
+                    new Update().unset("groupOpen"), Notification.class);
+            Update start = addActor(notification, now)
+                    .setOnInsert("_id", id)
+                    .setOnInsert("groupStartedAt", now)
+                    .setOnInsert("groupOpen", true);
+            previous = mongoTemplate.findAndModify(Query.query(group), start,
+                    FindAndModifyOptions.options().upsert(true).returnNew(false), Notification.class);
+            newActor = true;
+        }
+
+        boolean becameUnread;
+        Notification current;
+        if (previous == null) {
+            notification.setId(id.toHexString());
+            notification.setActorIds(new ArrayList<>(List.of(senderId)));
+            notification.setGroupStartedAt(now);
+            current = notification;
+            becameUnread = true;
+        } else {
+            becameUnread = previous.isRead() || NotificationInboxService.isRead(previous,
+                    notificationInboxService.getInbox(previous.getUserId()));
+            if (newActor) {
+                List<String> actorIds = new ArrayList<>(previous.getActorIds());
+                actorIds.add(senderId);
+                previous.setActorIds(new ArrayList<>(
+                        actorIds.subList(Math.max(0, actorIds.size() - maxActorIds), actorIds.size())));
+                previous.setActorCount(previous.getActorCount() + 1);
+            }
+            previous.setSenderId(senderId);
+            previous.setSenderName(notification.getSenderName());
+            previous.setAction(notification.getAction());
+            previous.setContent(notification.getContent());
+            current = previous;
+        }
+        current.setRead(false);
+        current.setCreatedAt(now);
+
+        if (becameUnread) {
+            notificationInboxService.incrementUnread(current.getUserId());
+        }
+        notificationStreamService.publish(describe(current));
+        return current;
+    }
+
+    private static Update latestActor(Notification notification, Date now) {
+        return new Update()
+                .set("senderId", notification.getSenderId())
+                .set("senderName", notification.getSenderName())
+                .set("action", notification.getAction())
+                .set("content", notification.getContent())
+                .set("read", false)
+                .set("createdAt", now);
+    }
+
+    private Update addActor(Notification notification, Date now) {
+        Update update = latestActor(notification, now).inc("actorCount", 1);
+        update.push("actorIds").slice(-maxActorIds).each(notification.getSenderId());
+        return update;
+    }
+
+    public Page<Notification> getNotificationsByEmail(String email, Pageable pageable) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        return notificationRepository.countByUserIdAndReadFalse(user.getId());
+        Page<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(user.getId(),
+                pageable);
+
+        // Resolve the effective read state against the user's watermark
+        NotificationInbox inbox = notificationInboxService.getInbox(user.getId());
+        notifications.forEach(notification -> {
+            notification.setRead(NotificationInboxService.isRead(notification, inbox));
+            describe(notification);
+        });
+        return notifications;
+    }
+
+    public long getUnreadNotificationsCount(String userId) {
+        return notificationInboxService.getUnreadCount(userId);
     }
 
     public Notification markNotificationAsRead(String email, String notificationId) {
@@ -43,20 +182,35 @@ public class NotificationService {
             throw new RuntimeException("You are not authorized to access this notification");
         }
 
+        if (NotificationInboxService.isRead(notification, notificationInboxService.getInbox(user.getId()))) {
+            notification.setRead(true);
+            return notification;
+        }
+
+        // Conditional on read:false, so of two concurrent marks only one decrements the counter
+        UpdateResult result = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("id").is(notificationId).and("read").is(false)),
+                Update.update("read", true), Notification.class);
         notification.setRead(true);
-        return notificationRepository.save(notification);
+        if (result.getModifiedCount() > 0) {
+            notificationInboxService.decrementUnread(user.getId());
+            notificationStreamService.publishUnreadCount(user.getId());
+        }
+        return notification;
     }
 
-    public void markAllNotificationsAsRead(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Page<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(user.getId(),
-                Pageable.unpaged());
+    public void markAllNotificationsAsRead(String userId) {
+        notificationInboxService.markAllRead(userId);
+        notificationStreamService.publishUnreadCount(userId);
+    }
 
-        for (Notification notification : notifications) {
-            notification.setRead(true);
-            notificationRepository.save(notification);
+    // "Alice and 41 others liked your post" for grouped notifications, stored content otherwise
+    private static Notification describe(Notification notification) {
+        int others = notification.getActorCount() - 1;
+        if (others > 0 && notification.getSenderName() != null && notification.getAction() != null) {
+            notification.setContent(notification.getSenderName() + " and " + others
+                    + (others == 1 ? " other " : " others ") + notification.getAction());
         }
+        return notification;
     }
 }
@@ -0,0 +1,237 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Per-user SSE emitters for pushing new notifications and the unread count
+@Slf4j
+@Service
+public class NotificationStreamService implements MeterBinder {
+
+    private final NotificationInboxService notificationInboxService;
+    private final long timeoutMillis;
+    private final int maxPerUser;
+    private final int maxPendingPerConnection;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder discardedEvents = new LongAdder();
+
+    private final Map<String, List<Connection>> connections = new ConcurrentHashMap<>();
+
+    public NotificationStreamService(NotificationInboxService notificationInboxService,
+                                     @Value("${notifications.stream.timeout-ms:1800000}") long timeoutMillis,
+                                     @Value("${notifications.stream.max-per-user:5}") int maxPerUser,
+                                     @Value("${notifications.stream.max-pending-per-connection:100}") int maxPendingPerConnection,
+                                     @Value("${notifications.stream.threads:8}") int threads) {
+        this.notificationInboxService = notificationInboxService;
+        this.timeoutMillis = timeoutMillis;
+        this.maxPerUser = maxPerUser;
+        this.maxPendingPerConnection = maxPendingPerConnection;
+
+        // Sends happen off the writer's thread so a slow client never holds up a like or comment. Each connection
+        // queues its own events and has at most one drain task in the pool, so the pool queue is bounded by the
+        // number of open connections and a client stuck in a blocking write only ties up its own events.
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "notification-stream-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public SseEmitter connect(String userId) {
+        Connection connection = new Connection(userId, createEmitter(timeoutMillis));
+        List<Connection> evicted = new ArrayList<>();
+        connections.compute(userId, (id, userConnections) -> {
+            if (userConnections == null) {
+                userConnections = new CopyOnWriteArrayList<>();
+            }
+            userConnections.add(connection);
+            // Drop the oldest connection once a user has too many open tabs
+            while (userConnections.size() > maxPerUser) {
+                evicted.add(userConnections.remove(0));
+            }
+            return userConnections;
+        });
+        evicted.forEach(old -> old.emitter.complete());
+
+        SseEmitter emitter = connection.emitter;
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(ex -> remove(connection));
+
+        connection.offerUnreadCount();
+        return emitter;
+    }
+
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    // No-op unless the recipient has an open stream, so writers can call it unconditionally
+    public void publish(Notification notification) {
+        for (Connection connection : connections.getOrDefault(notification.getUserId(), List.of())) {
+            connection.offer(() -> SseEmitter.event().name("notification").data(notification));
+            connection.offerUnreadCount();
+        }
+    }
+
+    public void publishUnreadCount(String userId) {
+        connections.getOrDefault(userId, List.of()).forEach(Connection::offerUnreadCount);
+    }
+
+    // Keeps proxies from closing idle streams and flushes out connections whose clients have gone away
+    @Scheduled(fixedRateString = "${notifications.stream.heartbeat-ms:25000}",
+            initialDelayString = "${notifications.stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        connections.values().forEach(userConnections -> userConnections.forEach(
+                connection -> connection.offer(() -> SseEmitter.event().comment("heartbeat"))));
+    }
+
+    public int connectionCount() {
+        return connections.values().stream().mapToInt(List::size).sum();
+    }
+
+    public long discardedEvents() {
+        return discardedEvents.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new ExecutorServiceMetrics(executor, "notification-stream", Tags.empty()).bindTo(registry);
+        Gauge.builder("skillshare.notifications.stream.connections", this, NotificationStreamService::connectionCount)
+                .description("Open notification SSE connections")
+                .register(registry);
+        FunctionCounter.builder("skillshare.notifications.stream.discarded", discardedEvents, LongAdder::sum)
+                .description("Events dropped because a connection had too many unsent")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        connections.values().forEach(userConnections -> userConnections.forEach(
+                connection -> connection.emitter.complete()));
+        connections.clear();
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.userId, (id, userConnections) -> {
+            userConnections.remove(connection);
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+
+    private final class Connection {
+        private final String userId;
+        private final SseEmitter emitter;
+        // Event builders are single-use, so events are queued as suppliers and built at send time
+        private final Queue<Supplier<SseEmitter.SseEventBuilder>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // One queued unread count is enough: it is read when it is sent
+        private final AtomicBoolean unreadCountPending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Connection(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offerUnreadCount() {
+            if (unreadCountPending.compareAndSet(false, true) && !offer(() -> {
+                unreadCountPending.set(false);
+                long unread = notificationInboxService.getUnreadCount(userId);
+                return SseEmitter.event().name("unread-count").data(unread);
+            })) {
+                unreadCountPending.set(false);
+            }
+        }
+
+        // Past the limit the event is dropped and counted; the client catches up on the next count push
+        boolean offer(Supplier<SseEmitter.SseEventBuilder> event) {
+            if (closed) {
+                return false;
+            }
+            if (pendingCount.incrementAndGet() > maxPendingPerConnection) {
+                pendingCount.decrementAndGet();
+                discardedEvents.increment();
+                return false;
+            }
+            pending.add(event);
+            scheduleDrain();
+            return true;
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException ex) {
+                    // Shutting down
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            Supplier<SseEmitter.SseEventBuilder> event;
+            while (!closed && (event = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                send(event);
+            }
+            draining.set(false);
+            // An offer that raced with the end of the loop
+            if (!closed && !pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(Supplier<SseEmitter.SseEventBuilder> event) {
+            SseEmitter.SseEventBuilder built;
+            try {
+                built = event.get();
+            } catch (RuntimeException ex) {
+                log.warn("Could not build notification stream event for user {}: {}", userId, ex.getMessage());
+                return;
+            }
+            try {
+                emitter.send(built);
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("Dropping notification stream for user {}: {}", userId, ex.getMessage());
+                closed = true;
+                pending.clear();
+                remove(this);
+                emitter.completeWithError(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Post;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Write-behind likesCount/commentsCount: deltas are summed in memory and applied as one bulk $inc per flush
+@Slf4j
+@Service
+public class PostCounterService implements MeterBinder {
+
+    private static final int STRIPES = 32;
+
+    private final MongoTemplate mongoTemplate;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder flushedUpdates = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final AtomicLong lastFlushAt = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong lastFlushLagMillis = new AtomicLong();
+
+    public PostCounterService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void incrementLikes(String postId, int delta) {
+        add(postId, delta, 0);
+    }
+
+    public void incrementComments(String postId, int delta) {
+        add(postId, 0, delta);
+    }
+
+    private void add(String postId, long likes, long comments) {
+        Stripe stripe = stripes[(postId.hashCode() & 0x7fffffff) % STRIPES];
+        synchronized (stripe) {
+            if (stripe.pending.isEmpty()) {
+                stripe.oldestPendingAt = System.currentTimeMillis();
+            }
+            long[] deltas = stripe.pending.computeIfAbsent(postId, id -> new long[2]);
+            deltas[0] += likes;
+            deltas[1] += comments;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${counters.flush-interval-ms:1000}",
+            initialDelayString = "${counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<String, long[]> batch = new HashMap<>();
+        long oldest = Long.MAX_VALUE;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.pending.isEmpty()) {
+                    continue;
+                }
+                batch.putAll(stripe.pending);
+                oldest = Math.min(oldest, stripe.oldestPendingAt);
+                stripe.pending = new HashMap<>();
+            }
+        }
+        batch.values().removeIf(deltas -> deltas[0] == 0 && deltas[1] == 0);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+        batch.forEach((postId, deltas) -> {
+            Update update = new Update();
+            if (deltas[0] != 0) {
+                update.inc("likesCount", deltas[0]);
+            }
+            if (deltas[1] != 0) {
+                update.inc("commentsCount", deltas[1]);
+            }
+            bulk.updateOne(Query.query(Criteria.where("id").is(postId)), update);
+        });
+
+        try {
+            bulk.execute();
+            clampAtZero(batch);
+        } catch (BulkOperationException ex) {
+            // Per-operation errors would fail again on retry, the rest of the batch was applied
+            failedFlushes.increment();
+            log.warn("Counter flush applied with {} write errors", ex.getErrors().size(), ex);
+            clampAtZero(batch);
+        } catch (RuntimeException ex) {
+            // Put the deltas back so the next flush retries them instead of dropping counts
+            failedFlushes.increment();
+            log.warn("Counter flush of {} posts failed, retrying next cycle", batch.size(), ex);
+            batch.forEach((postId, deltas) -> add(postId, deltas[0], deltas[1]));
+            return;
+        }
+
+        long end = System.currentTimeMillis();
+        flushedUpdates.add(batch.size());
+        lastFlushAt.set(end);
+        lastFlushMillis.set(end - start);
+        lastFlushLagMillis.set(end - oldest);
+    }
+
+    // A decrement can land on a counter that is already 0 (a like or comment removed twice, or one that
+    // predates the counter), so counters the batch lowered are floored at 0 as the old read-modify-write did
+    private void clampAtZero(Map<String, long[]> batch) {
+        List<String> likesLowered = new ArrayList<>();
+        List<String> commentsLowered = new ArrayList<>();
+        batch.forEach((postId, deltas) -> {
+            if (deltas[0] < 0) {
+                likesLowered.add(postId);
+            }
+            if (deltas[1] < 0) {
+                commentsLowered.add(postId);
+            }
+        });
+
+        try {
+            clampAtZero("likesCount", likesLowered);
+            clampAtZero("commentsCount", commentsLowered);
+        } catch (RuntimeException ex) {
+            log.warn("Could not clamp negative post counters", ex);
+        }
+    }
+
+    private void clampAtZero(String field, List<String> postIds) {
+        if (!postIds.isEmpty()) {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("id").in(postIds).and(field).lt(0)),
+                    Update.update(field, 0), Post.class);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public int pendingPosts() {
+        int pendingPosts = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                pendingPosts += stripe.pending.size();
+            }
+        }
+        return pendingPosts;
+    }
+
+    public long oldestPendingAgeMillis() {
+        long oldest = Long.MAX_VALUE;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (!stripe.pending.isEmpty()) {
+                    oldest = Math.min(oldest, stripe.oldestPendingAt);
+                }
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("skillshare.counters.pending.posts", this, PostCounterService::pendingPosts)
+                .description("Posts with counter deltas not yet flushed")
+                .register(registry);
+        Gauge.builder("skillshare.counters.pending.age", this, PostCounterService::oldestPendingAgeMillis)
+                .description("Age in ms of the oldest unflushed counter delta")
+                .register(registry);
+        Gauge.builder("skillshare.counters.flush.lag", lastFlushLagMillis, AtomicLong::get)
+                .description("Age in ms of the oldest delta applied by the last flush")
+                .register(registry);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingPosts", pendingPosts());
+        stats.put("oldestPendingAgeMs", oldestPendingAgeMillis());
+        stats.put("lastFlushAt", lastFlushAt.get());
+        stats.put("lastFlushDurationMs", lastFlushMillis.get());
+        stats.put("lastFlushLagMs", lastFlushLagMillis.get());
+        stats.put("flushedUpdates", flushedUpdates.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        return stats;
+    }
+
+    private static class Stripe {
+        private Map<String, long[]> pending = new HashMap<>();
+        private long oldestPendingAt;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.config.MongoIndexManager;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.PostLike;
+import com.example.skillshare.repository.PostLikeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Likes live in their own post_likes collection, one document per (postId, userId),
+// so posts stay small and the per-viewer likedByMe flag is one batched lookup per page.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostLikeService implements SmartInitializingSingleton {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final PostLikeRepository postLikeRepository;
+    private final MongoTemplate mongoTemplate;
+    private final PostCounterService postCounterService;
+    private final BusinessMetrics businessMetrics;
+    private final MongoIndexManager mongoIndexManager;
+
+    @Value("${likes.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    // The unique (postId, userId) index, built by MongoIndexManager before serving, makes the insert
+    // the like/no-like transition
+    public boolean like(String userId, String postId) {
+        if (!mongoTemplate.exists(Query.query(Criteria.where("id").is(postId)), Post.class)) {
+            throw new RuntimeException("Post not found");
+        }
+
+        try {
+            postLikeRepository.insert(new PostLike(postId, userId));
+        } catch (DuplicateKeyException ex) {
+            return false;
+        }
+
+        postCounterService.incrementLikes(postId, 1);
+        businessMetrics.liked();
+        return true;
+    }
+
+    public boolean unlike(String userId, String postId) {
+        if (postLikeRepository.deleteByPostIdAndUserId(postId, userId) == 0) {
+            if (!mongoTemplate.exists(Query.query(Criteria.where("id").is(postId)), Post.class)) {
+                throw new RuntimeException("Post not found");
+            }
+            return false;
+        }
+
+        postCounterService.incrementLikes(postId, -1);
+        businessMetrics.unliked();
+        return true;
+    }
+
+    public void markLikedByViewer(Collection<Post> posts, String viewerId) {
+        if (viewerId == null || posts.isEmpty()) {
+            return;
+        }
+
+        List<String> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        Set<String> liked = postLikeRepository.findByUserIdAndPostIdIn(viewerId, postIds).stream()
+                .map(PostLike::getPostId)
+                .collect(Collectors.toSet());
+
+        for (Post post : posts) {
+            post.setLikedByMe(liked.contains(post.getId()));
+        }
+    }
+
+    public Page<PostLike> getLikes(String postId, Pageable pageable) {
+        return postLikeRepository.findByPostIdOrderByCreatedAtDesc(postId, pageable);
+    }
+
+    public void removeLikesForPost(String postId) {
+        postLikeRepository.deleteByPostId(postId);
+    }
+
+    // Runs before the web server starts: while a post still has its embedded likedBy, a like by a legacy liker
+    // would count twice, an unlike would be undone by the migration, and likedByMe would read false
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (migrateOnStartup) {
+            migrateEmbeddedLikes();
+        }
+    }
+
+    // Moves the legacy embedded posts.likedBy arrays into post_likes. Safe to re-run:
+    // duplicates from an interrupted run are rejected by the unique index, so it waits for that index.
+    public void migrateEmbeddedLikes() {
+        try {
+            List<String> missing = mongoIndexManager.createMissingUniqueIndexes();
+            if (!missing.isEmpty()) {
+                log.warn("Not migrating embedded likes without the unique indexes: {}", String.join("; ", missing));
+                return;
+            }
+
+            Query legacy = Query.query(Criteria.where("likedBy").exists(true));
+            legacy.fields().include("likedBy");
+
+            int migrated = 0;
+            int failed = 0;
+            try (Stream<Document> posts = mongoTemplate.stream(legacy, Document.class, "posts")) {
+                for (Document post : (Iterable<Document>) posts::iterator) {
+                    try {
+                        migratePost(post);
+                        migrated++;
+                    } catch (DataAccessException ex) {
+                        failed++;
+                        log.warn("Could not migrate embedded likes of post {}: {}",
+                                post.getObjectId("_id").toHexString(), ex.getMessage());
+                    }
+                }
+            }
+
+            if (migrated > 0) {
+                log.info("Migrated embedded likes of {} posts into post_likes", migrated);
+            }
+            if (failed > 0) {
+                log.warn("{} posts keep their embedded likes until the next migration run", failed);
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Could not migrate embedded likes: {}", ex.getMessage());
+        }
+    }
+
+    // likedBy is only removed once every liker is in post_likes; any error other than a duplicate from an
+    // earlier run leaves it for the next run
+    private void migratePost(Document post) {
+        String postId = post.getObjectId("_id").toHexString();
+        List<String> likedBy = post.getList("likedBy", String.class);
+
+        if (likedBy != null && !likedBy.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostLike.class);
+            bulk.insert(likedBy.stream().map(userId -> new PostLike(postId, userId)).collect(Collectors.toList()));
+            try {
+                bulk.execute();
+            } catch (BulkOperationException ex) {
+                if (ex.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                    throw ex;
+                }
+                log.debug("Some likes of post {} were already migrated", postId);
+            }
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(post.getObjectId("_id"))),
+                new Update().unset("likedBy"), "posts");
+    }
+}
@@ -1,20 +1,29 @@
 package com.example.skillshare.service;
 
+import com.example.skillshare.dto.CursorPage;
+import com.example.skillshare.dto.PostCursor;
 import com.example.skillshare.dto.PostDto;
 import com.example.skillshare.model.Notification;
 import com.example.skillshare.model.Post;
 import com.example.skillshare.model.User;
 import com.example.skillshare.repository.CommentRepository;
-import com.example.skillshare.repository.NotificationRepository;
 import com.example.skillshare.repository.PostRepository;
 import com.example.skillshare.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -23,12 +32,22 @@ public class PostService {
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
-    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
+    private final TimelineService timelineService;
+    private final PostLikeService postLikeService;
+    private final ExploreService exploreService;
+    private final MongoTemplate mongoTemplate;
+    private final BusinessMetrics businessMetrics;
+    private final FileStorageService fileStorageService;
 
     public Page<Post> getAllPosts(Pageable pageable) {
         return postRepository.findAllByOrderByCreatedAtDesc(pageable);
     }
 
+    public CursorPage<Post> getAllPosts(PostCursor after, int limit) {
+        return findPostsAfter(new Criteria(), after, limit);
+    }
+
     public Post getPostById(String postId) {
         return postRepository.findById(postId)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
@@ -38,14 +57,22 @@ public class PostService {
         return postRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
     }
 
+    public CursorPage<Post> getPostsByUserId(String userId, PostCursor after, int limit) {
+        return findPostsAfter(Criteria.where("userId").is(userId), after, limit);
+    }
+
     public Page<Post> getFeedPosts(String email, Pageable pageable) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        List<String> followingIds = user.getFollowing();
-        followingIds.add(user.getId()); // Include user's own posts
+        return timelineService.getTimeline(user, pageable);
+    }
 
-        return postRepository.findAllByOrderByCreatedAtDesc(pageable);
+    public CursorPage<Post> getFeedPosts(String email, PostCursor after, int limit) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return timelineService.getTimeline(user, after, limit);
     }
 
     public Post createPost(String email, PostDto postDto) {
@@ -60,7 +87,29 @@ public class PostService {
         post.setCreatedAt(new Date());
         post.setUpdatedAt(new Date());
 
-        return postRepository.save(post);
+        // The media are claimed before the insert, so nothing that fails after it can leave the files of a
+        // saved post unreferenced and open to discard
+        post.setId(new ObjectId().toHexString());
+        String ref = "post:" + post.getId();
+        fileStorageService.addReferences(post.getMediaUrls(), ref);
+
+        Post savedPost;
+        try {
+            savedPost = postRepository.insert(post);
+        } catch (RuntimeException ex) {
+            // No post after all; release the claim so the caller can discard the uploads
+            try {
+                fileStorageService.removeReferences(post.getMediaUrls(), ref);
+            } catch (RuntimeException cleanup) {
+                ex.addSuppressed(cleanup);
+            }
+            throw ex;
+        }
+        timelineService.fanOutPost(user, savedPost);
+        exploreService.recordPost(savedPost);
+        businessMetrics.postCreated();
+
+        return savedPost;
     }
 
     public Post updatePost(String email, String postId, PostDto postDto) {
@@ -75,20 +124,31 @@ public class PostService {
         }
 
         post.setContent(postDto.getContent());
+        Update update = new Update().set("content", post.getContent());
 
         // Only update skill category if provided
         if (postDto.getSkillCategory() != null) {
             post.setSkillCategory(postDto.getSkillCategory());
+            update.set("skillCategory", post.getSkillCategory());
         }
 
         // Only update media URLs if provided and not empty
+        List<String> replacedMediaUrls = List.of();
         if (postDto.getMediaUrls() != null && !postDto.getMediaUrls().isEmpty()) {
+            replacedMediaUrls = new ArrayList<>(Objects.requireNonNullElse(post.getMediaUrls(), List.<String>of()));
+            replacedMediaUrls.removeAll(postDto.getMediaUrls());
             post.setMediaUrls(postDto.getMediaUrls());
+            update.set("mediaUrls", post.getMediaUrls());
         }
 
         post.setUpdatedAt(new Date());
+        update.set("updatedAt", post.getUpdatedAt());
 
-        return postRepository.save(post);
+        // Set only the edited fields so a full save can't overwrite counters flushed in the meantime
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(postId)), update, Post.class);
+        fileStorageService.addReferences(post.getMediaUrls(), "post:" + postId);
+        fileStorageService.removeReferences(replacedMediaUrls, "post:" + postId);
+        return post;
     }
 
     public void deletePost(String email, String postId) {
@@ -104,48 +164,84 @@ public class PostService {
 
         // Delete all comments related to the post
         commentRepository.deleteByPostId(postId);
+        timelineService.removePost(postId);
+        postLikeService.removeLikesForPost(postId);
+        exploreService.removePost(postId);
 
         postRepository.delete(post);
+        fileStorageService.removeReferences(post.getMediaUrls(), "post:" + postId);
     }
 
-    public void likePost(String email, String postId) {
+    // Returns true only when this call actually added the like
+    public boolean likePost(String email, String postId) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
-
-        if (!post.getLikedBy().contains(user.getId())) {
-            post.getLikedBy().add(user.getId());
-            post.setLikesCount(post.getLikesCount() + 1);
-            postRepository.save(post);
-
-            // Create notification if the liker is not the post owner
-            if (!user.getId().equals(post.getUserId())) {
-                Notification notification = new Notification();
-                notification.setUserId(post.getUserId());
-                notification.setSenderId(user.getId());
-                notification.setType("LIKE");
-                notification.setContent(user.getName() + " liked your post");
-                notification.setEntityId(postId);
-                notification.setCreatedAt(new Date());
-
-                notificationRepository.save(notification);
-            }
+        if (!postLikeService.like(user.getId(), postId)) {
+            return false;
         }
+        exploreService.recordLike(postId, 1);
+
+        String postOwnerId = findPostOwnerId(postId);
+
+        // Create notification if the liker is not the post owner
+        if (postOwnerId != null && !user.getId().equals(postOwnerId)) {
+            Notification notification = new Notification();
+            notification.setUserId(postOwnerId);
+            notification.setSenderId(user.getId());
+            notification.setType("LIKE");
+            notification.setContent(user.getName() + " liked your post");
+            notification.setSenderName(user.getName());
+            notification.setAction("liked your post");
+            notification.setEntityId(postId);
+            notification.setCreatedAt(new Date());
+
+            notificationService.createGroupedNotification(notification);
+        }
+
+        return true;
     }
 
-    public void unlikePost(String email, String postId) {
+    // Returns true only when this call actually removed the like
+    public boolean unlikePost(String email, String postId) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
+        if (!postLikeService.unlike(user.getId(), postId)) {
+            return false;
+        }
+        exploreService.recordLike(postId, -1);
 
-        if (post.getLikedBy().contains(user.getId())) {
-            post.getLikedBy().remove(user.getId());
-            post.setLikesCount(Math.max(0, post.getLikesCount() - 1));
-            postRepository.save(post);
+        return true;
+    }
+
+    private String findPostOwnerId(String postId) {
+        Query query = Query.query(Criteria.where("id").is(postId));
+        query.fields().include("userId");
+
+        Post post = mongoTemplate.findOne(query, Post.class);
+        return post != null ? post.getUserId() : null;
+    }
+
+    // Keyset pagination on (createdAt, id): no count query and no skip, so every
+    // slice costs the same index range scan however deep the client has scrolled
+    private CursorPage<Post> findPostsAfter(Criteria filter, PostCursor after, int limit) {
+        Criteria criteria = after == null
+                ? filter
+                : new Criteria().andOperator(filter, after.toCriteria("id"));
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")))
+                .limit(limit + 1);
+
+        List<Post> posts = mongoTemplate.find(query, Post.class);
+        String nextCursor = null;
+        if (posts.size() > limit) {
+            posts = posts.subList(0, limit);
+            Post last = posts.get(limit - 1);
+            nextCursor = new PostCursor(last.getCreatedAt(), last.getId()).encode();
         }
+
+        return new CursorPage<>(posts, nextCursor);
     }
 }
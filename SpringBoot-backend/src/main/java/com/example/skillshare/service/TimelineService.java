@@ -0,0 +1,343 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.dto.CursorPage;
+import com.example.skillshare.dto.PostCursor;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.TimelineEntry;
+import com.example.skillshare.model.TimelineMeta;
+import com.example.skillshare.model.User;
+import com.example.skillshare.repository.PostRepository;
+import com.example.skillshare.repository.TimelineEntryRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Fan-out-on-write home timelines: every post id is pushed to the author's and
+// their followers' timelines at write time so reading the feed is one range scan
+// over (ownerId, createdAt) instead of a sort over the whole posts collection.
+// Followers' entries are written off the request thread; the author's own entry is not.
+@Slf4j
+@Service
+public class TimelineService implements MeterBinder {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final PostRepository postRepository;
+    private final MongoTemplate mongoTemplate;
+    // Null when timeline.fanout.threads is 0: followers' entries are then written on the request thread
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder failedBatches = new LongAdder();
+
+    @Value("${timeline.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${timeline.backfill-size:50}")
+    private int backfillSize;
+
+    // Fan-out trims an owner once it has gained trimEvery entries, so a timeline holds at most maxEntries + trimEvery
+    @Value("${timeline.trim-every:50}")
+    private int trimEvery = 50;
+
+    public TimelineService(TimelineEntryRepository timelineEntryRepository,
+                           PostRepository postRepository,
+                           MongoTemplate mongoTemplate,
+                           @Value("${timeline.fanout.threads:2}") int threads,
+                           @Value("${timeline.fanout.queue-capacity:200}") int queueCapacity) {
+        this.timelineEntryRepository = timelineEntryRepository;
+        this.postRepository = postRepository;
+        this.mongoTemplate = mongoTemplate;
+
+        if (threads == 0) {
+            this.executor = null;
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        // When the queue is full the posting request writes the batch itself, which slows authors down
+        // instead of buffering an unbounded backlog
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "timeline-fanout-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public Page<Post> getTimeline(User user, Pageable pageable) {
+        if (pageable.getOffset() >= maxEntries) {
+            return Page.empty(pageable);
+        }
+
+        if (pageable.getOffset() == 0) {
+            ensureBuilt(user);
+        }
+        List<TimelineEntry> entries = timelineEntryRepository.findByOwnerIdOrderByCreatedAtDesc(user.getId(),
+                pageable);
+
+        List<Post> posts = loadPosts(entries);
+        return PageableExecutionUtils.getPage(posts, pageable,
+                () -> Math.min(timelineEntryRepository.countByOwnerId(user.getId()), maxEntries));
+    }
+
+    public CursorPage<Post> getTimeline(User user, PostCursor after, int limit) {
+        if (after == null) {
+            ensureBuilt(user);
+        }
+        List<TimelineEntry> entries = findEntriesAfter(user.getId(), after, limit + 1);
+
+        String nextCursor = null;
+        if (entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            TimelineEntry last = entries.get(limit - 1);
+            nextCursor = new PostCursor(last.getCreatedAt(), last.getPostId()).encode();
+        }
+
+        return new CursorPage<>(loadPosts(entries), nextCursor);
+    }
+
+    // The author's entry is written before returning so their own feed shows the post at once; followers'
+    // entries go to the fan-out pool in INSERT_BATCH_SIZE chunks
+    public void fanOutPost(User author, Post post) {
+        List<TimelineEntry> own = List.of(new TimelineEntry(author.getId(), post));
+        insertIgnoringDuplicates(own);
+        trimWhereDue(own);
+
+        Set<String> followerIds = new LinkedHashSet<>();
+        if (author.getFollowers() != null) {
+            followerIds.addAll(author.getFollowers());
+        }
+        followerIds.remove(author.getId());
+
+        List<TimelineEntry> batch = new ArrayList<>(Math.min(followerIds.size(), INSERT_BATCH_SIZE));
+        for (String ownerId : followerIds) {
+            batch.add(new TimelineEntry(ownerId, post));
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                submit(batch);
+                batch = new ArrayList<>(INSERT_BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private void submit(List<TimelineEntry> batch) {
+        if (executor == null) {
+            writeBatch(batch);
+        } else {
+            executor.execute(() -> writeBatch(batch));
+        }
+    }
+
+    // A failed batch leaves those followers without the post; their feeds still show everything else
+    private void writeBatch(List<TimelineEntry> batch) {
+        try {
+            insertIgnoringDuplicates(batch);
+            trimWhereDue(batch);
+        } catch (RuntimeException ex) {
+            failedBatches.increment();
+            log.warn("Failed to write {} timeline entries for post {}", batch.size(), batch.get(0).getPostId(), ex);
+        }
+    }
+
+    // Pool size, active threads and queue depth as executor.* gauges tagged name=timeline-fanout
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (executor != null) {
+            new ExecutorServiceMetrics(executor, "timeline-fanout", Tags.empty()).bindTo(registry);
+        }
+        FunctionCounter.builder("skillshare.timeline.fanout.failed", failedBatches, LongAdder::sum)
+                .description("Timeline fan-out batches that could not be written")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Timeline fan-out did not drain, {} batches dropped", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+
+    // A trim skips over maxEntries index keys, too much to pay per follower on every post. Instead each owner counts
+    // the entries it receives and is trimmed when the count reaches trimEvery; of concurrent fan-outs that see the
+    // same count, the one whose conditional reset lands does the trim.
+    private void trimWhereDue(List<TimelineEntry> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+
+        BulkOperations counts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimelineMeta.class);
+        added.forEach(entry -> counts.upsert(byOwner(entry.getOwnerId()), new Update().inc("untrimmed", 1)));
+        counts.execute();
+
+        List<String> ownerIds = added.stream().map(TimelineEntry::getOwnerId).collect(Collectors.toList());
+        Query due = Query.query(Criteria.where("id").in(ownerIds).and("untrimmed").gte(trimEvery));
+        for (TimelineMeta meta : mongoTemplate.find(due, TimelineMeta.class)) {
+            UpdateResult claimed = mongoTemplate.updateFirst(
+                    Query.query(Criteria.where("id").is(meta.getId()).and("untrimmed").is(meta.getUntrimmed())),
+                    new Update().inc("untrimmed", -meta.getUntrimmed()), TimelineMeta.class);
+            if (claimed.getModifiedCount() > 0) {
+                trimTimeline(meta.getId());
+            }
+        }
+    }
+
+    public void backfillFromAuthor(String ownerId, String authorId) {
+        List<Post> recentPosts = postRepository.findByUserIdInOrderByCreatedAtDesc(List.of(authorId),
+                PageRequest.of(0, backfillSize));
+
+        if (!recentPosts.isEmpty()) {
+            insertIgnoringDuplicates(recentPosts.stream()
+                    .map(post -> new TimelineEntry(ownerId, post))
+                    .collect(Collectors.toList()));
+            trimTimeline(ownerId);
+        }
+    }
+
+    public void pruneAuthor(String ownerId, String authorId) {
+        timelineEntryRepository.deleteByOwnerIdAndAuthorId(ownerId, authorId);
+    }
+
+    public void removePost(String postId) {
+        timelineEntryRepository.deleteByPostId(postId);
+    }
+
+    private void trimTimeline(String ownerId) {
+        Query boundaryQuery = Query.query(Criteria.where("ownerId").is(ownerId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "postId"))
+                .skip(maxEntries)
+                .limit(1);
+
+        // The boundary and everything after it in the same (createdAt desc, postId desc) order the cursor pages by,
+        // so entries sharing the boundary's createdAt but ranked above it stay
+        TimelineEntry boundary = mongoTemplate.findOne(boundaryQuery, TimelineEntry.class);
+        if (boundary != null) {
+            mongoTemplate.remove(Query.query(Criteria.where("ownerId").is(ownerId).orOperator(
+                    Criteria.where("createdAt").lt(boundary.getCreatedAt()),
+                    Criteria.where("createdAt").is(boundary.getCreatedAt()).and("postId").lte(boundary.getPostId()))),
+                    TimelineEntry.class);
+        }
+    }
+
+    private List<TimelineEntry> findEntriesAfter(String ownerId, PostCursor after, int limit) {
+        Criteria criteria = Criteria.where("ownerId").is(ownerId);
+        if (after != null) {
+            criteria = criteria.andOperator(after.toCriteria("postId"));
+        }
+
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "postId"))
+                .limit(limit);
+
+        return mongoTemplate.find(query, TimelineEntry.class);
+    }
+
+    // Timelines are built from the posts collection on first read. Fan-out and follow backfill write to them
+    // regardless, so an empty timeline is not the signal; builtAt on the owner's TimelineMeta is.
+    private void ensureBuilt(User user) {
+        Query built = byOwner(user.getId());
+        built.fields().include("builtAt");
+        TimelineMeta meta = mongoTemplate.findOne(built, TimelineMeta.class);
+        if (meta != null && meta.getBuiltAt() != null) {
+            return;
+        }
+
+        rebuildTimeline(user);
+        mongoTemplate.upsert(byOwner(user.getId()), Update.update("builtAt", new Date()), TimelineMeta.class);
+    }
+
+    private static Query byOwner(String ownerId) {
+        return Query.query(Criteria.where("id").is(ownerId));
+    }
+
+    private void rebuildTimeline(User user) {
+        List<String> authorIds = new ArrayList<>();
+        if (user.getFollowing() != null) {
+            authorIds.addAll(user.getFollowing());
+        }
+        authorIds.add(user.getId());
+
+        List<Post> posts = postRepository.findByUserIdInOrderByCreatedAtDesc(authorIds,
+                PageRequest.of(0, maxEntries));
+
+        if (!posts.isEmpty()) {
+            insertIgnoringDuplicates(posts.stream()
+                    .map(post -> new TimelineEntry(user.getId(), post))
+                    .collect(Collectors.toList()));
+            trimTimeline(user.getId());
+        }
+    }
+
+    // Unordered against the unique (ownerId, postId) index: entries a concurrent rebuild, fan-out or backfill
+    // already wrote are skipped without stopping the rest of the batch
+    private void insertIgnoringDuplicates(List<TimelineEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TimelineEntry.class)
+                    .insert(entries)
+                    .execute();
+        } catch (BulkOperationException ex) {
+            if (ex.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw ex;
+            }
+        }
+    }
+
+    private List<Post> loadPosts(List<TimelineEntry> entries) {
+        if (entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<String> postIds = entries.stream().map(TimelineEntry::getPostId).collect(Collectors.toList());
+        Map<String, Post> postsById = postRepository.findAllById(postIds).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+
+        // Keep timeline order; entries whose post has since been deleted are skipped
+        return postIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+}
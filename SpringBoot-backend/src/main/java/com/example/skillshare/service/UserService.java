@@ -8,6 +8,9 @@ import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,6 +18,9 @@ import java.util.stream.Collectors;
 public class UserService {
 
         private final UserRepository userRepository;
+        private final TimelineService timelineService;
+        private final UserSummaryCache userSummaryCache;
+        private final FileStorageService fileStorageService;
 
         public User updateUserProfile(String email, UserProfileDto userProfileDto) {
                 User user = userRepository.findByEmail(email)
@@ -29,27 +35,50 @@ public class UserService {
                 user.setInterests(userProfileDto.getInterests());
                 user.setUpdatedAt(new Date());
 
-                return userRepository.save(user);
+                User savedUser = userRepository.save(user);
+                userSummaryCache.invalidate(savedUser.getId());
+
+                return savedUser;
         }
 
         public User updateProfilePicture(String email, String imageUrl) {
                 User user = userRepository.findByEmail(email)
                                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+                String previousUrl = user.getProfilePicture();
                 user.setProfilePicture(imageUrl);
                 user.setUpdatedAt(new Date());
 
-                return userRepository.save(user);
+                User savedUser = userRepository.save(user);
+                userSummaryCache.invalidate(savedUser.getId());
+
+                String ref = "user:" + savedUser.getId() + ":profile";
+                fileStorageService.addReferences(List.of(imageUrl), ref);
+                if (previousUrl != null && !previousUrl.equals(imageUrl)) {
+                        fileStorageService.removeReferences(List.of(previousUrl), ref);
+                }
+
+                return savedUser;
         }
 
         public User updateCoverPicture(String email, String imageUrl) {
                 User user = userRepository.findByEmail(email)
                                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+                String previousUrl = user.getCoverPicture();
                 user.setCoverPicture(imageUrl);
                 user.setUpdatedAt(new Date());
 
-                return userRepository.save(user);
+                User savedUser = userRepository.save(user);
+                userSummaryCache.invalidate(savedUser.getId());
+
+                String ref = "user:" + savedUser.getId() + ":cover";
+                fileStorageService.addReferences(List.of(imageUrl), ref);
+                if (previousUrl != null && !previousUrl.equals(imageUrl)) {
+                        fileStorageService.removeReferences(List.of(previousUrl), ref);
+                }
+
+                return savedUser;
         }
 
         public void followUser(String followerEmail, String followedUserId) {
@@ -70,6 +99,8 @@ public class UserService {
 
                         followed.getFollowers().add(follower.getId());
                         userRepository.save(followed);
+
+                        timelineService.backfillFromAuthor(follower.getId(), followedUserId);
                 }
         }
 
@@ -85,25 +116,33 @@ public class UserService {
 
                 followed.getFollowers().remove(follower.getId());
                 userRepository.save(followed);
+
+                timelineService.pruneAuthor(follower.getId(), followedUserId);
         }
 
         public List<User> getUserFollowers(String userId) {
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-                return user.getFollowers().stream()
-                                .map(followerId -> userRepository.findById(followerId)
-                                                .orElseThrow(() -> new RuntimeException("Follower not found")))
-                                .collect(Collectors.toList());
+                return resolveInOrder(user.getFollowers());
         }
 
         public List<User> getUserFollowing(String userId) {
                 User user = userRepository.findById(userId)
                                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-                return user.getFollowing().stream()
-                                .map(followingId -> userRepository.findById(followingId)
-                                                .orElseThrow(() -> new RuntimeException("Following user not found")))
+                return resolveInOrder(user.getFollowing());
+        }
+
+        // Whole user documents, as these endpoints have always returned, in list order from one $in query.
+        // Ids whose user no longer exists are skipped.
+        private List<User> resolveInOrder(List<String> userIds) {
+                Map<String, User> users = userRepository.findAllById(userIds).stream()
+                                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+                return userIds.stream()
+                                .map(users::get)
+                                .filter(Objects::nonNull)
                                 .collect(Collectors.toList());
         }
 }
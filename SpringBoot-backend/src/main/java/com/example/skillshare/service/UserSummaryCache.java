@@ -0,0 +1,165 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded cache of author summaries (id, name, username, profilePicture) with a
+// time-to-live. Writers to those fields must call invalidate(userId).
+// Reads take no lock: getAll runs on every feed, post and comment page. Eviction runs on the
+// writer that overflows the cache and drops the least recently read tenth.
+@Service
+public class UserSummaryCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Map<String, CachedUser> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // Bumped on every invalidation so a load that raced with an update is not cached
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    public UserSummaryCache(@Value("${user-cache.max-size:10000}") int maxSize,
+            @Value("${user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public long currentEpoch() {
+        return invalidationEpoch.get();
+    }
+
+    public Map<String, User> getAll(Collection<String> userIds) {
+        long now = System.currentTimeMillis();
+        Map<String, User> found = new HashMap<>();
+
+        for (String userId : userIds) {
+            CachedUser cached = entries.get(userId);
+            if (cached != null && cached.expiresAt <= now) {
+                if (entries.remove(userId, cached)) {
+                    expirations.increment();
+                }
+                cached = null;
+            }
+
+            if (cached != null) {
+                cached.lastReadAt = now;
+                found.put(userId, cached.user);
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+        return found;
+    }
+
+    public void putAll(Collection<User> users, long loadedAtEpoch) {
+        if (loadedAtEpoch != invalidationEpoch.get()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<CachedUser> added = new ArrayList<>(users.size());
+        for (User user : users) {
+            CachedUser cached = new CachedUser(user, now + ttlMillis, now);
+            entries.put(user.getId(), cached);
+            added.add(cached);
+        }
+
+        // An invalidation that bumped the epoch after the check above may have run before these puts;
+        // take them back so the stale load is not served
+        if (loadedAtEpoch != invalidationEpoch.get()) {
+            added.forEach(cached -> entries.remove(cached.user.getId(), cached));
+            return;
+        }
+
+        if (entries.size() > maxSize && evictionLock.tryLock()) {
+            try {
+                evict(now);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    public void invalidate(String userId) {
+        invalidationEpoch.incrementAndGet();
+        if (entries.remove(userId) != null) {
+            invalidations.increment();
+        }
+    }
+
+    // Drops expired entries first; if the cache is still over its bound, drops the least recently read
+    // entries down to nine tenths of it, so the sort is paid once per tenth of the capacity
+    private void evict(long now) {
+        entries.entrySet().removeIf(entry -> {
+            boolean expired = entry.getValue().expiresAt <= now;
+            if (expired) {
+                expirations.increment();
+            }
+            return expired;
+        });
+        if (entries.size() <= maxSize) {
+            return;
+        }
+
+        List<Map.Entry<String, CachedUser>> byLastRead = new ArrayList<>(entries.entrySet());
+        byLastRead.sort(Comparator.comparingLong(entry -> entry.getValue().lastReadAt));
+        int toRemove = entries.size() - maxSize + maxSize / 10;
+        for (int i = 0; i < toRemove && i < byLastRead.size(); i++) {
+            Map.Entry<String, CachedUser> entry = byLastRead.get(i);
+            if (entries.remove(entry.getKey(), entry.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", requestCount == 0 ? 0.0 : (double) hitCount / requestCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private static final class CachedUser {
+        private final User user;
+        private final long expiresAt;
+        // Written without synchronization on every hit; eviction only needs an approximate order
+        private volatile long lastReadAt;
+
+        private CachedUser(User user, long expiresAt, long lastReadAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+            this.lastReadAt = lastReadAt;
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.example.skillshare;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
+// On the in-memory store: startup now builds indexes, which would wait out server selection without a database
 @SpringBootTest
+@ActiveProfiles("perf")
 class SkillshareApplicationTests {
 
 	@Test
@@ -0,0 +1,13 @@
+package com.example.skillshare;
+
+import org.springframework.boot.SpringApplication;
+
+// The app on the in-memory store (perf profile, com.example.skillshare.perf), which lives in the test
+// sources so it never ships in the boot jar: mvn spring-boot:test-run
+public class TestSkillshareApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.from(SkillshareApplication::main).withAdditionalProfiles("perf").run(args);
+	}
+
+}
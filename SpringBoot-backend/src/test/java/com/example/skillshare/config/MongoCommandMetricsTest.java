@@ -0,0 +1,84 @@
+package com.example.skillshare.config;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class MongoCommandMetricsTest {
+
+    private static final ConnectionDescription CONNECTION =
+            new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void commandsAreAttributedAndSlowOnesLoggedByShape() {
+        MongoCommandMetrics metrics = new MongoCommandMetrics(mock(ObjectProvider.class), 50, 10, false);
+
+        MongoCommandMetrics.REPOSITORY_METHOD.set("PostRepository.findByUserId");
+        try {
+            run(metrics, 1, "find", "{find: 'posts', filter: {userId: 'u1'}, sort: {createdAt: -1}}",
+                    "{cursor: {firstBatch: [{}, {}, {}], id: 0}, ok: 1}", 2);
+        } finally {
+            MongoCommandMetrics.REPOSITORY_METHOD.remove();
+        }
+        run(metrics, 2, "find", "{find: 'posts', filter: {userId: 'u2', tags: {$in: ['a', 'b']}}}",
+                "{cursor: {firstBatch: [], id: 0}, ok: 1}", 120);
+        run(metrics, 3, "ping", "{ping: 1}", "{ok: 1}", 1);
+
+        Map<String, Object> snapshot = metrics.snapshot();
+        Map<String, Map<String, Object>> collections = (Map<String, Map<String, Object>>) snapshot.get("collections");
+        assertEquals(2L, collections.get("posts").get("count"));
+        assertEquals(3L, collections.get("posts").get("docsReturned"));
+        assertEquals(2.5, collections.get("posts").get("p50Ms"));
+        assertEquals(120.0, collections.get("posts").get("p99Ms"));
+
+        Map<String, Object> methods = (Map<String, Object>) snapshot.get("repositoryMethods");
+        assertTrue(methods.containsKey("PostRepository.findByUserId"));
+        assertTrue(methods.containsKey("(MongoTemplate)"));
+        assertEquals(List.of("find"), List.copyOf(((Map<String, Object>) snapshot.get("commands")).keySet()));
+
+        List<Map<String, Object>> slow = (List<Map<String, Object>>) snapshot.get("slowQueries");
+        assertEquals(1, slow.size());
+        assertEquals("{\"userId\": \"?string\", \"tags\": {\"$in\": [\"?string\"]}}", slow.get(0).get("filterShape"));
+    }
+
+    @Test
+    void boundRegistryGetsTimersAndSlowCountsThatSurviveReset() {
+        MongoCommandMetrics metrics = new MongoCommandMetrics(mock(ObjectProvider.class), 50, 10, false);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+
+        run(metrics, 1, "find", "{find: 'posts', filter: {}}", "{cursor: {firstBatch: [], id: 0}, ok: 1}", 2);
+        run(metrics, 2, "find", "{find: 'posts', filter: {}}", "{cursor: {firstBatch: [], id: 0}, ok: 1}", 80);
+        metrics.reset();
+
+        assertEquals(2, registry.get("skillshare.mongo.commands")
+                .tags("collection", "posts", "command", "find", "method", "(MongoTemplate)", "outcome", "success")
+                .timer().count());
+        assertEquals(1.0, registry.get("skillshare.mongo.commands.slow").tag("collection", "posts").counter().count());
+    }
+
+    private static void run(MongoCommandMetrics metrics, int requestId, String commandName, String command,
+                            String response, long elapsedMillis) {
+        metrics.commandStarted(new CommandStartedEvent(null, requestId, requestId, CONNECTION, "skillshare",
+                commandName, BsonDocument.parse(command)));
+        metrics.commandSucceeded(new CommandSucceededEvent(null, requestId, requestId, CONNECTION, "skillshare",
+                commandName, BsonDocument.parse(response), TimeUnit.MILLISECONDS.toNanos(elapsedMillis)));
+    }
+}
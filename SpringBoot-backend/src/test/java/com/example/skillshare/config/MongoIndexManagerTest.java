@@ -0,0 +1,176 @@
+package com.example.skillshare.config;
+
+import com.example.skillshare.model.Comment;
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.User;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MongoIndexManagerTest {
+
+    private MongoTemplate mongoTemplate;
+    private IndexOperations commentIndexes;
+    private IndexOperations userIndexes;
+    private MongoIndexManager indexManager;
+
+    @BeforeEach
+    void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(Set.of(Comment.class, User.class));
+        mappingContext.initialize();
+
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        commentIndexes = mock(IndexOperations.class);
+        userIndexes = mock(IndexOperations.class);
+        when(mongoTemplate.indexOps(Comment.class)).thenReturn(commentIndexes);
+        when(mongoTemplate.indexOps(User.class)).thenReturn(userIndexes);
+
+        // comments has nothing yet; users has the email index but without the unique constraint
+        when(commentIndexes.getIndexInfo()).thenReturn(List.of(idIndex()));
+        when(userIndexes.getIndexInfo()).thenReturn(List.of(idIndex(),
+                new IndexInfo(List.of(IndexField.create("email", Sort.Direction.ASC)), "email_1", false, false, null)));
+
+        indexManager = new MongoIndexManager(mongoTemplate, "create", "warn");
+    }
+
+    @Test
+    void createsMissingIndexesAndReportsChangedOnes() {
+        List<String> drift = indexManager.apply();
+
+        verify(commentIndexes).ensureIndex(any(IndexDefinition.class));
+        verify(userIndexes, never()).ensureIndex(any(IndexDefinition.class));
+        assertEquals(1, drift.size());
+        assertTrue(drift.get(0).startsWith("users.email_unique_idx"));
+        assertEquals(1, ((List<?>) indexManager.report().get("created")).size());
+    }
+
+    @Test
+    void verifyModeOnlyReports() {
+        indexManager = new MongoIndexManager(mongoTemplate, "verify", "warn");
+
+        List<String> drift = indexManager.apply();
+
+        verify(commentIndexes, never()).ensureIndex(any(IndexDefinition.class));
+        assertEquals(2, drift.size());
+        assertTrue(drift.stream().anyMatch(entry -> entry.startsWith("comments.post_created_idx")
+                && entry.endsWith("is missing")));
+        Map<String, Object> report = indexManager.report();
+        assertEquals("verify", report.get("mode"));
+    }
+
+    // Built before serving whatever the mode; the non-unique comments index is left to the background check
+    @Test
+    void missingUniqueIndexesAreBuiltAtStartupEvenInVerifyMode() {
+        indexManager = new MongoIndexManager(mongoTemplate, "verify", "warn");
+        when(userIndexes.getIndexInfo()).thenReturn(List.of(idIndex()));
+
+        assertEquals(List.of(), indexManager.createMissingUniqueIndexes());
+
+        ArgumentCaptor<IndexDefinition> created = ArgumentCaptor.forClass(IndexDefinition.class);
+        verify(userIndexes).ensureIndex(created.capture());
+        assertEquals("email_unique_idx", created.getValue().getIndexOptions().getString("name"));
+        verify(commentIndexes, never()).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    void uniqueIndexesPresentUnderTheSameKeysAreLeftToDriftReporting() {
+        assertEquals(List.of(), indexManager.createMissingUniqueIndexes());
+
+        verify(userIndexes, never()).ensureIndex(any(IndexDefinition.class));
+    }
+
+    @Test
+    void ttlAndPartialFilterChangesAreDrift() {
+        Document declared = new Document("unique", true).append("expireAfterSeconds", 3600L)
+                .append("partialFilterExpression", new Document("read", true));
+
+        IndexInfo same = IndexInfo.indexInfoOf(new Document("key", new Document("createdAt", 1))
+                .append("name", "ttl_idx").append("unique", true).append("expireAfterSeconds", 3600)
+                .append("partialFilterExpression", new Document("read", true)));
+        assertEquals(List.of(), MongoIndexManager.optionDrift(declared, same));
+
+        IndexInfo changed = IndexInfo.indexInfoOf(new Document("key", new Document("createdAt", 1))
+                .append("name", "ttl_idx").append("unique", true).append("expireAfterSeconds", 60)
+                .append("partialFilterExpression", new Document("read", false)));
+        assertEquals(List.of("expireAfterSeconds=60", "partialFilterExpression={\"read\": false}"),
+                MongoIndexManager.optionDrift(declared, changed));
+
+        IndexInfo plain = IndexInfo.indexInfoOf(new Document("key", new Document("createdAt", 1))
+                .append("name", "ttl_idx"));
+        assertEquals(List.of("unique=false", "expireAfterSeconds=null", "partialFilterExpression=null"),
+                MongoIndexManager.optionDrift(declared, plain));
+    }
+
+    // read_ttl_idx takes its expiry from configuration; an existing index with another TTL is retuned, not drift
+    @Test
+    void declaredTtlComesFromConfigurationAndIsRetunedInPlace() {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.setEnvironment(new MockEnvironment().withProperty("notifications.retention.read-ttl-days", "7"));
+        context.refresh();
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setApplicationContext(context);
+        mappingContext.setInitialEntitySet(Set.of(Notification.class));
+        mappingContext.initialize();
+        MongoTemplate notificationTemplate = mock(MongoTemplate.class);
+        when(notificationTemplate.getConverter())
+                .thenReturn(new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext));
+        IndexOperations notificationIndexes = mock(IndexOperations.class);
+        when(notificationTemplate.indexOps(Notification.class)).thenReturn(notificationIndexes);
+        when(notificationIndexes.getIndexInfo()).thenReturn(List.of(idIndex(),
+                compound("user_created_idx", new Document("userId", 1).append("createdAt", -1)),
+                compound("user_unread_idx", new Document("userId", 1).append("read", 1).append("createdAt", -1)),
+                compound("group_idx", new Document("userId", 1).append("type", 1).append("entityId", 1)
+                        .append("groupStartedAt", -1)),
+                IndexInfo.indexInfoOf(new Document("key", new Document("userId", 1).append("type", 1)
+                        .append("entityId", 1)).append("name", "open_group_unique_idx").append("unique", true)
+                        .append("partialFilterExpression", new Document("groupOpen", true))),
+                IndexInfo.indexInfoOf(new Document("key", new Document("createdAt", 1)).append("name", "read_ttl_idx")
+                        .append("expireAfterSeconds", 2_592_000)
+                        .append("partialFilterExpression", new Document("read", true)))));
+
+        MongoIndexManager notificationIndexManager = new MongoIndexManager(notificationTemplate, "create", "warn");
+
+        assertEquals(List.of(), notificationIndexManager.apply());
+
+        verify(notificationTemplate).executeCommand(new Document("collMod", "notifications")
+                .append("index", new Document("name", "read_ttl_idx").append("expireAfterSeconds", 604_800L)));
+        verify(notificationIndexes, never()).ensureIndex(any(IndexDefinition.class));
+        Map<String, Object> report = notificationIndexManager.report();
+        assertEquals(List.of(), report.get("undeclared"));
+        assertEquals(1, ((List<?>) report.get("retuned")).size());
+    }
+
+    private static IndexInfo compound(String name, Document keys) {
+        return IndexInfo.indexInfoOf(new Document("key", keys).append("name", name));
+    }
+
+    private static IndexInfo idIndex() {
+        return new IndexInfo(List.of(IndexField.create("_id", Sort.Direction.ASC)), "_id_", false, false, null);
+    }
+}
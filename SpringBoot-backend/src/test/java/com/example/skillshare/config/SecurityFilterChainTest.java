@@ -0,0 +1,108 @@
+package com.example.skillshare.config;
+
+import com.example.skillshare.security.JwtTokenProvider;
+import com.example.skillshare.security.oauth2.UserPrincipal;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Requests through the real Tomcat and security filter chain, on the in-memory store (perf profile)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "management.server.port=0")
+@ActiveProfiles("perf")
+class SecurityFilterChainTest {
+
+    private static final String MEDIA = "d".repeat(64) + ".mp4";
+
+    private static Path uploadDir;
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void createUploads() throws Exception {
+        uploadDir = Files.createTempDirectory("filter-chain-uploads");
+        Files.write(uploadDir.resolve(MEDIA), new byte[300_000]);
+    }
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("file.upload-dir", () -> uploadDir.toString());
+    }
+
+    private HttpResponse<String> send(String method, String path, String role, String... headers)
+            throws Exception {
+        return send(port, method, path, role, headers);
+    }
+
+    private HttpResponse<String> send(int port, String method, String path, String role, String... headers)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        if (role != null) {
+            String token = jwtTokenProvider.generateToken(UserPrincipal.create("u-" + role, role + "@example.com", role));
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void adminEndpointsRequireTheAdminRole() throws Exception {
+        assertEquals(403, send("GET", "/api/admin/indexes", "USER").statusCode());
+        assertEquals(403, send("POST", "/api/admin/notifications/compact", "USER").statusCode());
+        assertEquals(403, send("GET", "/api/admin/cache/user-summaries", "USER").statusCode());
+        assertEquals(403, send("GET", "/api/admin/indexes", null).statusCode());
+
+        assertEquals(200, send("GET", "/api/admin/indexes", "ADMIN").statusCode());
+    }
+
+    // Command timings live on the management port, next to /actuator/prometheus
+    @Test
+    void mongoCommandMetricsAreAnActuatorEndpoint() throws Exception {
+        HttpResponse<String> snapshot = send(managementPort, "GET", "/actuator/mongocommands", null);
+        assertEquals(200, snapshot.statusCode());
+        assertTrue(snapshot.body().contains("\"slowQueries\""));
+        assertEquals(204, send(managementPort, "DELETE", "/actuator/mongocommands", null).statusCode());
+    }
+
+    // Media errors must reach anonymous clients as themselves, not as the 403 of a rejected /error dispatch
+    @Test
+    void uploadErrorsKeepTheirStatusForAnonymousRequests() throws Exception {
+        assertEquals(404, send("GET", "/uploads/" + "e".repeat(64) + ".png", null).statusCode());
+
+        HttpResponse<String> beyond = send("GET", "/uploads/" + MEDIA, null, "Range", "bytes=400000-");
+        assertEquals(416, beyond.statusCode());
+        assertEquals("bytes */300000", beyond.headers().firstValue("Content-Range").orElse(null));
+
+        HttpResponse<String> range = send("GET", "/uploads/" + MEDIA, null, "Range", "bytes=0-99");
+        assertEquals(206, range.statusCode());
+        assertEquals(100, range.body().length());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.skillshare.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MediaControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @TempDir
+    Path uploadDir;
+
+    private MediaController mediaController;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mediaController = new MediaController();
+        ReflectionTestUtils.setField(mediaController, "uploadDir", uploadDir.toString());
+
+        content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(uploadDir.resolve(HASH + ".mp4"), content);
+        Files.write(uploadDir.resolve("legacy.png"), new byte[]{1, 2, 3});
+    }
+
+    private MockHttpServletResponse get(String fileName, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        mediaController.serve(fileName, request, response);
+        return response;
+    }
+
+    @Test
+    void contentAddressedFilesAreImmutableWithTheirHashAsEtag() throws Exception {
+        MockHttpServletResponse response = get(HASH + ".mp4", new MockHttpServletRequest("GET", "/"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("\"" + HASH + "\"", response.getHeader("ETag"));
+        assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+        assertEquals("video/mp4", response.getContentType());
+        assertArrayEquals(content, response.getContentAsByteArray());
+
+        MockHttpServletResponse legacy = get("legacy.png", new MockHttpServletRequest("GET", "/"));
+        assertEquals("public, max-age=86400", legacy.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("If-None-Match", "\"other\", W/\"" + HASH + "\"");
+
+        MockHttpServletResponse response = get(HASH + ".mp4", request);
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void rangesArePartialContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("Range", "bytes=10-19");
+        MockHttpServletResponse response = get(HASH + ".mp4", request);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100000", response.getHeader("Content-Range"));
+        assertEquals(10, response.getContentAsByteArray().length);
+        assertEquals((byte) 10, response.getContentAsByteArray()[0]);
+
+        MockHttpServletRequest suffix = new MockHttpServletRequest("GET", "/");
+        suffix.addHeader("Range", "bytes=-500");
+        assertEquals("bytes 99500-99999/100000", get(HASH + ".mp4", suffix).getHeader("Content-Range"));
+
+        MockHttpServletRequest beyond = new MockHttpServletRequest("GET", "/");
+        beyond.addHeader("Range", "bytes=100000-");
+        MockHttpServletResponse unsatisfiable = get(HASH + ".mp4", beyond);
+        assertEquals(416, unsatisfiable.getStatus());
+        assertEquals("bytes */100000", unsatisfiable.getHeader("Content-Range"));
+
+        // A stale If-Range gets the whole file
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/");
+        stale.addHeader("Range", "bytes=0-9");
+        stale.addHeader("If-Range", "\"stale\"");
+        assertEquals(200, get(HASH + ".mp4", stale).getStatus());
+    }
+
+    @Test
+    void largeBodiesAreHandedToSendfile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute(MediaController.SENDFILE_SUPPORT, Boolean.TRUE);
+        request.addHeader("Range", "bytes=1000-");
+
+        MockHttpServletResponse response = get(HASH + ".mp4", request);
+        assertEquals(206, response.getStatus());
+        assertEquals(uploadDir.resolve(HASH + ".mp4").toAbsolutePath().toString(),
+                request.getAttribute(MediaController.SENDFILE_FILENAME));
+        assertEquals(1000L, request.getAttribute(MediaController.SENDFILE_START));
+        assertEquals(100_000L, request.getAttribute(MediaController.SENDFILE_END));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void tempFilesAndTraversalAreNotServed() throws Exception {
+        Files.write(uploadDir.resolve(".upload-123.tmp"), new byte[]{1});
+        assertEquals(404, get(".upload-123.tmp", new MockHttpServletRequest("GET", "/")).getStatus());
+        assertEquals(404, get("..", new MockHttpServletRequest("GET", "/")).getStatus());
+        assertEquals(404, get("missing.png", new MockHttpServletRequest("GET", "/")).getStatus());
+        assertNull(get("missing.png", new MockHttpServletRequest("GET", "/")).getHeader("ETag"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.skillshare.controller;
+
+import com.example.skillshare.dto.CursorPage;
+import com.example.skillshare.dto.PostCursor;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.service.AuthorResolver;
+import com.example.skillshare.service.CommentService;
+import com.example.skillshare.service.ExploreService;
+import com.example.skillshare.service.FileStorageService;
+import com.example.skillshare.service.ImageVariantService;
+import com.example.skillshare.service.PostLikeService;
+import com.example.skillshare.service.PostService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Cursor requests: which failures come back as 400 and which do not
+class PostControllerTest {
+
+    private PostService postService;
+    private AuthorResolver authorResolver;
+    private PostController postController;
+
+    @BeforeEach
+    void setUp() {
+        postService = mock(PostService.class);
+        authorResolver = mock(AuthorResolver.class);
+        postController = new PostController(postService, mock(CommentService.class), mock(FileStorageService.class),
+                authorResolver, mock(PostLikeService.class), mock(ExploreService.class),
+                mock(ImageVariantService.class));
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() {
+        ResponseEntity<?> response = postController.getAllPosts(null, 0, 10, "not-a-cursor", null);
+
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals(Map.of("error", "Invalid cursor"), response.getBody());
+        verifyNoInteractions(postService);
+    }
+
+    @Test
+    void decodedCursorIsPassedToTheService() {
+        when(postService.getPostsByUserId(eq("u1"), any(PostCursor.class), anyInt()))
+                .thenReturn(new CursorPage<>(List.of(), null));
+
+        ResponseEntity<?> response = postController.getPostsByUserId(null, "u1", 0, 10,
+                new PostCursor(new Date(1_000), "p1").encode(), null);
+
+        assertEquals(200, response.getStatusCode().value());
+        ArgumentCaptor<PostCursor> cursor = ArgumentCaptor.forClass(PostCursor.class);
+        verify(postService).getPostsByUserId(eq("u1"), cursor.capture(), eq(10));
+        assertEquals(new Date(1_000), cursor.getValue().getCreatedAt());
+        assertEquals("p1", cursor.getValue().getId());
+    }
+
+    // An IllegalArgumentException from enrichment is a server fault, not a bad cursor
+    @Test
+    void enrichmentFailuresAreNotReportedAsBadCursors() {
+        when(postService.getAllPosts(any(PostCursor.class), anyInt()))
+                .thenReturn(new CursorPage<>(List.of(new Post()), null));
+        doThrow(new IllegalArgumentException("Unexpected author id")).when(authorResolver).enrichPosts(anyList());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> postController.getAllPosts(null, 0, 10, new PostCursor(new Date(1_000), "p1").encode(), null));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.skillshare.dto;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PostCursorTest {
+
+    private static String encoded(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encodeAndDecodeRoundTrip() {
+        PostCursor cursor = new PostCursor(new Date(1_700_000_000_123L), "65a1f0c2e4b0a1b2c3d4e5f6");
+
+        String token = cursor.encode();
+        PostCursor decoded = PostCursor.decode(token);
+
+        assertFalse(token.contains("=") || token.contains("+") || token.contains("/"));
+        assertEquals(cursor.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(cursor.getId(), decoded.getId());
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String token : List.of("not base64!", encoded("1700000000123"), encoded(":abc"),
+                encoded("1700000000123:"), encoded("yesterday:abc"), "")) {
+            assertThrows(IllegalArgumentException.class, () -> PostCursor.decode(token), token);
+        }
+    }
+
+    // Strictly after the position: older posts, or the same instant with a smaller id
+    @Test
+    void criteriaBreaksCreatedAtTiesOnTheIdField() {
+        Date createdAt = new Date(1_700_000_000_123L);
+
+        Document criteria = new PostCursor(createdAt, "p5").toCriteria("postId").getCriteriaObject();
+
+        assertEquals(new Document("$or", List.of(
+                new Document("createdAt", new Document("$lt", createdAt)),
+                new Document("createdAt", createdAt).append("postId", new Document("$lt", "p5")))), criteria);
+    }
+}
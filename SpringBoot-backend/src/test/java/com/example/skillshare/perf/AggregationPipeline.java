@@ -0,0 +1,249 @@
+package com.example.skillshare.perf;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// The aggregation stages the services use ($match, $group, $lookup, ...). A leading $match (and a $sort
+// right after it) is pushed into the collection query so it can use an index; later stages run on copies.
+final class AggregationPipeline {
+
+    private AggregationPipeline() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Document> run(InMemoryCollection source, List<Document> pipeline,
+                              Function<String, InMemoryCollection> collections) {
+        int stage = 0;
+        Map<String, Object> filter = null;
+        Map<String, Object> sort = null;
+        if (stage < pipeline.size() && pipeline.get(stage).containsKey("$match")) {
+            filter = (Map<String, Object>) pipeline.get(stage++).get("$match");
+        }
+        if (stage < pipeline.size() && pipeline.get(stage).containsKey("$sort")) {
+            sort = (Map<String, Object>) pipeline.get(stage++).get("$sort");
+        }
+        List<Document> documents = source.find(new InMemoryCollection.Find(filter, sort, 0, 0, null));
+
+        for (; stage < pipeline.size(); stage++) {
+            Document definition = pipeline.get(stage);
+            if (definition.size() != 1) {
+                throw new IllegalArgumentException("A pipeline stage specification object must contain exactly one field");
+            }
+            String operator = definition.keySet().iterator().next();
+            Object argument = definition.get(operator);
+            documents = switch (operator) {
+                case "$match" -> documents.stream()
+                        .filter(document -> DocumentMatcher.matches(document, (Map<String, Object>) argument)).toList();
+                case "$sort" -> {
+                    List<Document> sorted = new ArrayList<>(documents);
+                    sorted.sort(InMemoryCollection.sortComparator((Map<String, Object>) argument));
+                    yield sorted;
+                }
+                case "$skip" -> documents.subList(Math.min(documents.size(), ((Number) argument).intValue()),
+                        documents.size());
+                case "$limit" -> documents.subList(0, Math.min(documents.size(), ((Number) argument).intValue()));
+                case "$project" -> project(documents, (Map<String, Object>) argument);
+                case "$addFields", "$set" -> documents.stream().map(document -> {
+                    Document result = BsonValues.copy(document);
+                    ((Map<String, Object>) argument).forEach((path, expression) ->
+                            BsonValues.set(result, path, Expressions.evaluate(expression, document)));
+                    return result;
+                }).toList();
+                case "$group" -> group(documents, (Map<String, Object>) argument);
+                case "$lookup" -> lookup(documents, (Map<String, Object>) argument, collections);
+                case "$unwind" -> unwind(documents, argument);
+                case "$count" -> List.of(new Document(argument.toString(), documents.size()));
+                default -> throw new UnsupportedOperationException("Pipeline stage " + operator + " is not supported in memory");
+            };
+        }
+        return new ArrayList<>(documents);
+    }
+
+    private static List<Document> project(List<Document> documents, Map<String, Object> projection) {
+        boolean computed = projection.values().stream()
+                .anyMatch(value -> !(value instanceof Number) && !(value instanceof Boolean));
+        if (!computed) {
+            return documents.stream().map(document -> InMemoryCollection.project(document, projection)).toList();
+        }
+
+        List<Document> projected = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Document result = new Document();
+            if (!projection.containsKey("_id") || Expressions.isTrue(projection.get("_id"))) {
+                result.put("_id", document.get("_id"));
+            }
+            projection.forEach((path, expression) -> {
+                if (path.equals("_id") && (expression instanceof Number || expression instanceof Boolean)) {
+                    return;
+                }
+                Object value = expression instanceof Number || expression instanceof Boolean
+                        ? (Expressions.isTrue(expression) ? BsonValues.get(document, path) : BsonValues.MISSING)
+                        : Expressions.evaluate(expression, document);
+                if (value != BsonValues.MISSING) {
+                    BsonValues.set(result, path, value);
+                }
+            });
+            projected.add(result);
+        }
+        return projected;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> group(List<Document> documents, Map<String, Object> specification) {
+        Map<Object, Document> groups = new LinkedHashMap<>();
+        Map<Object, Map<String, List<Object>>> inputs = new LinkedHashMap<>();
+        for (Document document : documents) {
+            Object id = Expressions.evaluate(specification.get("_id"), document);
+            id = id == BsonValues.MISSING ? null : id;
+            // Group keys compare by value, so documents and arrays go through their canonical JSON-ish form
+            Object key = id instanceof Map || BsonValues.isList(id) ? new Document("k", id).toJson() : id;
+            Object groupId = id;
+            groups.computeIfAbsent(key, ignored -> new Document("_id", groupId));
+            Map<String, List<Object>> accumulated = inputs.computeIfAbsent(key, ignored -> new LinkedHashMap<>());
+            for (Map.Entry<String, Object> field : specification.entrySet()) {
+                if (field.getKey().equals("_id")) {
+                    continue;
+                }
+                Map<String, Object> accumulator = (Map<String, Object>) field.getValue();
+                Object value = Expressions.evaluate(accumulator.values().iterator().next(), document);
+                accumulated.computeIfAbsent(field.getKey(), ignored -> new ArrayList<>()).add(value);
+            }
+        }
+
+        List<Document> result = new ArrayList<>(groups.size());
+        groups.forEach((key, group) -> {
+            for (Map.Entry<String, Object> field : specification.entrySet()) {
+                if (field.getKey().equals("_id")) {
+                    continue;
+                }
+                Map<String, Object> accumulator = (Map<String, Object>) field.getValue();
+                String operator = accumulator.keySet().iterator().next();
+                group.put(field.getKey(), accumulate(operator, inputs.get(key).get(field.getKey())));
+            }
+            result.add(group);
+        });
+        return result;
+    }
+
+    private static Object accumulate(String operator, List<Object> values) {
+        List<Object> present = values.stream()
+                .filter(value -> value != null && value != BsonValues.MISSING).toList();
+        switch (operator) {
+            case "$sum": {
+                long integral = 0;
+                double floating = 0;
+                boolean isDouble = false;
+                for (Object value : present) {
+                    if (value instanceof Double || value instanceof Float) {
+                        isDouble = true;
+                        floating += ((Number) value).doubleValue();
+                    } else if (value instanceof Number number) {
+                        integral += number.longValue();
+                    }
+                }
+                if (isDouble) {
+                    return floating + integral;
+                }
+                return integral == (int) integral ? (Object) (int) integral : (Object) integral;
+            }
+            case "$count":
+                return values.size();
+            case "$avg":
+                return present.isEmpty() ? null
+                        : present.stream().mapToDouble(value -> ((Number) value).doubleValue()).average().orElse(0);
+            case "$min":
+                return present.stream().min(BsonValues::compare).orElse(null);
+            case "$max":
+                return present.stream().max(BsonValues::compare).orElse(null);
+            case "$first":
+                return values.isEmpty() || values.get(0) == BsonValues.MISSING ? null : values.get(0);
+            case "$last":
+                return values.isEmpty() || values.get(values.size() - 1) == BsonValues.MISSING
+                        ? null : values.get(values.size() - 1);
+            case "$push":
+                return new ArrayList<>(values.stream().filter(value -> value != BsonValues.MISSING).toList());
+            case "$addToSet": {
+                List<Object> distinct = new ArrayList<>();
+                for (Object value : present) {
+                    if (distinct.stream().noneMatch(existing -> BsonValues.valueEquals(existing, value))) {
+                        distinct.add(value);
+                    }
+                }
+                return distinct;
+            }
+            default:
+                throw new UnsupportedOperationException("Accumulator " + operator + " is not supported in memory");
+        }
+    }
+
+    // Equality $lookup; each local value becomes an $in against the foreign field so its indexes apply
+    private static List<Document> lookup(List<Document> documents, Map<String, Object> specification,
+                                         Function<String, InMemoryCollection> collections) {
+        if (specification.containsKey("pipeline")) {
+            throw new UnsupportedOperationException("$lookup with a pipeline is not supported in memory");
+        }
+        InMemoryCollection foreign = collections.apply(specification.get("from").toString());
+        String localField = specification.get("localField").toString();
+        String foreignField = specification.get("foreignField").toString();
+        String as = specification.get("as").toString();
+
+        List<Document> joined = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            List<Object> locals = new ArrayList<>();
+            for (Object value : DocumentMatcher.resolve(document, localField)) {
+                if (BsonValues.isList(value)) {
+                    locals.addAll(BsonValues.asList(value));
+                } else {
+                    locals.add(value == BsonValues.MISSING ? null : value);
+                }
+            }
+            Document filter = new Document(foreignField, new Document("$in", locals));
+            Document result = BsonValues.copy(document);
+            BsonValues.set(result, as, foreign.find(new InMemoryCollection.Find(filter, null, 0, 0, null)));
+            joined.add(result);
+        }
+        return joined;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Document> unwind(List<Document> documents, Object argument) {
+        String path;
+        boolean preserve = false;
+        if (argument instanceof Map<?, ?> options) {
+            path = options.get("path").toString();
+            preserve = Expressions.isTrue(options.get("preserveNullAndEmptyArrays"));
+            if (options.containsKey("includeArrayIndex")) {
+                throw new UnsupportedOperationException("$unwind includeArrayIndex is not supported in memory");
+            }
+        } else {
+            path = argument.toString();
+        }
+        String field = path.substring(1);
+
+        List<Document> unwound = new ArrayList<>();
+        for (Document document : documents) {
+            Object value = BsonValues.get(document, field);
+            if (BsonValues.isList(value) && !BsonValues.asList(value).isEmpty()) {
+                for (Object element : BsonValues.asList(value)) {
+                    Document copy = BsonValues.copy(document);
+                    BsonValues.set(copy, field, BsonValues.copy(element));
+                    unwound.add(copy);
+                }
+            } else if (value != null && value != BsonValues.MISSING && !BsonValues.isList(value)) {
+                unwound.add(document);
+            } else if (preserve) {
+                Document copy = BsonValues.copy(document);
+                if (BsonValues.isList(value)) {
+                    BsonValues.remove(copy, field);
+                }
+                unwound.add(copy);
+            }
+        }
+        return unwound;
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.skillshare.perf;
+
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.Decimal128;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Value helpers shared by the in-memory engine: MongoDB's cross-type sort order, dotted paths and copies
+final class BsonValues {
+
+    // Marks a path that does not exist, which sorts and compares like null
+    static final Object MISSING = new Object() {
+        @Override
+        public String toString() {
+            return "MISSING";
+        }
+    };
+
+    private BsonValues() {
+    }
+
+    // https://www.mongodb.com/docs/manual/reference/bson-type-comparison-order/
+    static int typeRank(Object value) {
+        if (value instanceof MinKey) {
+            return 0;
+        }
+        if (value == null || value == MISSING) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof String || value instanceof Character) {
+            return 3;
+        }
+        if (value instanceof Map) {
+            return 4;
+        }
+        if (value instanceof Collection || value instanceof Object[]) {
+            return 5;
+        }
+        if (value instanceof Binary || value instanceof byte[]) {
+            return 6;
+        }
+        if (value instanceof ObjectId) {
+            return 7;
+        }
+        if (value instanceof Boolean) {
+            return 8;
+        }
+        if (value instanceof Date) {
+            return 9;
+        }
+        if (value instanceof Pattern) {
+            return 11;
+        }
+        if (value instanceof MaxKey) {
+            return 12;
+        }
+        return 10;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        int leftRank = typeRank(left);
+        int rightRank = typeRank(right);
+        if (leftRank != rightRank) {
+            return Integer.compare(leftRank, rightRank);
+        }
+
+        switch (leftRank) {
+            case 0, 1, 12:
+                return 0;
+            case 2:
+                return compareNumbers((Number) left, (Number) right);
+            case 3:
+                return left.toString().compareTo(right.toString());
+            case 4:
+                return compareDocuments((Map<String, Object>) left, (Map<String, Object>) right);
+            case 5:
+                return compareLists(asList(left), asList(right));
+            case 6:
+                return Arrays.compare(bytes(left), bytes(right));
+            case 7:
+                return ((ObjectId) left).compareTo((ObjectId) right);
+            case 8:
+                return Boolean.compare((Boolean) left, (Boolean) right);
+            case 9:
+                return ((Date) left).compareTo((Date) right);
+            case 11:
+                return ((Pattern) left).pattern().compareTo(((Pattern) right).pattern());
+            default:
+                if (left instanceof Comparable comparable && left.getClass() == right.getClass()) {
+                    return comparable.compareTo(right);
+                }
+                return left.toString().compareTo(right.toString());
+        }
+    }
+
+    static boolean valueEquals(Object left, Object right) {
+        return typeRank(left) == typeRank(right) && compare(left, right) == 0;
+    }
+
+    private static int compareNumbers(Number left, Number right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        return toBigDecimal(left).compareTo(toBigDecimal(right));
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof Decimal128 decimal) {
+            return decimal.bigDecimalValue();
+        }
+        if (number instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        double value = number.doubleValue();
+        if (Double.isNaN(value)) {
+            // NaN sorts below every other number
+            return BigDecimal.valueOf(-Double.MAX_VALUE).subtract(BigDecimal.ONE);
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? BigDecimal.valueOf(Double.MAX_VALUE).add(BigDecimal.ONE)
+                    : BigDecimal.valueOf(-Double.MAX_VALUE).subtract(BigDecimal.ONE);
+        }
+        return BigDecimal.valueOf(value);
+    }
+
+    private static int compareDocuments(Map<String, Object> left, Map<String, Object> right) {
+        var leftEntries = left.entrySet().iterator();
+        var rightEntries = right.entrySet().iterator();
+        while (leftEntries.hasNext() && rightEntries.hasNext()) {
+            Map.Entry<String, Object> l = leftEntries.next();
+            Map.Entry<String, Object> r = rightEntries.next();
+            int byValueType = Integer.compare(typeRank(l.getValue()), typeRank(r.getValue()));
+            if (byValueType != 0) {
+                return byValueType;
+            }
+            int byKey = l.getKey().compareTo(r.getKey());
+            if (byKey != 0) {
+                return byKey;
+            }
+            int byValue = compare(l.getValue(), r.getValue());
+            if (byValue != 0) {
+                return byValue;
+            }
+        }
+        return Boolean.compare(leftEntries.hasNext(), rightEntries.hasNext());
+    }
+
+    private static int compareLists(List<?> left, List<?> right) {
+        for (int i = 0; i < Math.min(left.size(), right.size()); i++) {
+            int byElement = compare(left.get(i), right.get(i));
+            if (byElement != 0) {
+                return byElement;
+            }
+        }
+        return Integer.compare(left.size(), right.size());
+    }
+
+    private static byte[] bytes(Object value) {
+        return value instanceof Binary binary ? binary.getData() : (byte[]) value;
+    }
+
+    static boolean isList(Object value) {
+        return value instanceof Collection || value instanceof Object[];
+    }
+
+    static List<?> asList(Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+        if (value instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        }
+        return Arrays.asList((Object[]) value);
+    }
+
+    // Resolves "a.b.c"; arrays on the way are not traversed here (see DocumentMatcher for that)
+    @SuppressWarnings("unchecked")
+    static Object get(Map<String, Object> document, String path) {
+        Object current = document;
+        for (String part : path.split("\\.")) {
+            if (current instanceof Map<?, ?> map) {
+                if (!map.containsKey(part)) {
+                    return MISSING;
+                }
+                current = ((Map<String, Object>) map).get(part);
+            } else if (current instanceof List<?> list && isIndex(part)) {
+                int index = Integer.parseInt(part);
+                if (index >= list.size()) {
+                    return MISSING;
+                }
+                current = list.get(index);
+            } else {
+                return MISSING;
+            }
+        }
+        return current;
+    }
+
+    // Writes "a.b.c", creating intermediate documents
+    @SuppressWarnings("unchecked")
+    static void set(Map<String, Object> document, String path, Object value) {
+        String[] parts = path.split("\\.");
+        Map<String, Object> current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object next = current.get(parts[i]);
+            if (!(next instanceof Map)) {
+                next = new Document();
+                current.put(parts[i], next);
+            }
+            current = (Map<String, Object>) next;
+        }
+        current.put(parts[parts.length - 1], value);
+    }
+
+    @SuppressWarnings("unchecked")
+    static void remove(Map<String, Object> document, String path) {
+        String[] parts = path.split("\\.");
+        Map<String, Object> current = document;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object next = current.get(parts[i]);
+            if (!(next instanceof Map)) {
+                return;
+            }
+            current = (Map<String, Object>) next;
+        }
+        current.remove(parts[parts.length - 1]);
+    }
+
+    private static boolean isIndex(String part) {
+        return !part.isEmpty() && part.chars().allMatch(Character::isDigit);
+    }
+
+    // Stored documents are never handed out, so callers cannot mutate the collection behind its indexes
+    @SuppressWarnings("unchecked")
+    static Object copy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Document copy = new Document();
+            ((Map<String, Object>) map).forEach((key, nested) -> copy.put(key, copy(nested)));
+            return copy;
+        }
+        if (value instanceof Collection<?> collection) {
+            List<Object> copy = new ArrayList<>(collection.size());
+            collection.forEach(element -> copy.add(copy(element)));
+            return copy;
+        }
+        if (value instanceof Object[] array) {
+            return copy(Arrays.asList(array));
+        }
+        if (value instanceof Date date) {
+            return new Date(date.getTime());
+        }
+        if (value instanceof BsonValue bsonValue) {
+            return DriverAdapters.toJava(bsonValue);
+        }
+        return value;
+    }
+
+    static Document copy(Document document) {
+        return (Document) copy((Object) document);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.skillshare.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Query filter evaluation with MongoDB semantics: missing fields equal null, array fields match when any
+// element does, and comparison operators only match values of the same type bracket
+final class DocumentMatcher {
+
+    private DocumentMatcher() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static boolean matches(Map<String, Object> document, Map<String, Object> filter) {
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            String key = entry.getKey();
+            Object condition = entry.getValue();
+            boolean matched = switch (key) {
+                case "$and" -> BsonValues.asList(condition).stream()
+                        .allMatch(clause -> matches(document, (Map<String, Object>) clause));
+                case "$or" -> BsonValues.asList(condition).stream()
+                        .anyMatch(clause -> matches(document, (Map<String, Object>) clause));
+                case "$nor" -> BsonValues.asList(condition).stream()
+                        .noneMatch(clause -> matches(document, (Map<String, Object>) clause));
+                case "$expr" -> Expressions.isTrue(Expressions.evaluate(condition, document));
+                case "$comment" -> true;
+                default -> {
+                    if (key.startsWith("$")) {
+                        throw new UnsupportedOperationException("Query operator " + key + " is not supported in memory");
+                    }
+                    yield fieldMatches(resolve(document, key), condition);
+                }
+            };
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    static boolean fieldMatches(List<Object> values, Object condition) {
+        if (isOperatorDocument(condition)) {
+            Map<String, Object> operators = (Map<String, Object>) condition;
+            for (Map.Entry<String, Object> operator : operators.entrySet()) {
+                if (operator.getKey().equals("$options")) {
+                    continue;
+                }
+                if (!operatorMatches(values, operator.getKey(), operator.getValue(), operators)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (condition instanceof Pattern pattern) {
+            return anyElement(values, value -> value instanceof String text && pattern.matcher(text).find());
+        }
+        return equalsAny(values, condition);
+    }
+
+    static boolean isOperatorDocument(Object condition) {
+        if (!(condition instanceof Map<?, ?> map) || map.isEmpty()) {
+            return false;
+        }
+        Object firstKey = map.keySet().iterator().next();
+        return firstKey instanceof String key && key.startsWith("$");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean operatorMatches(List<Object> values, String operator, Object argument,
+                                           Map<String, Object> operators) {
+        switch (operator) {
+            case "$eq":
+                return equalsAny(values, argument);
+            case "$ne":
+                return !equalsAny(values, argument);
+            case "$gt":
+                return compareAny(values, argument, result -> result > 0);
+            case "$gte":
+                return compareAny(values, argument, result -> result >= 0);
+            case "$lt":
+                return compareAny(values, argument, result -> result < 0);
+            case "$lte":
+                return compareAny(values, argument, result -> result <= 0);
+            case "$in":
+                return BsonValues.asList(argument).stream().anyMatch(candidate -> candidate instanceof Pattern
+                        ? fieldMatches(values, candidate) : equalsAny(values, candidate));
+            case "$nin":
+                return BsonValues.asList(argument).stream().noneMatch(candidate -> candidate instanceof Pattern
+                        ? fieldMatches(values, candidate) : equalsAny(values, candidate));
+            case "$exists":
+                return values.stream().anyMatch(value -> value != BsonValues.MISSING) == Expressions.isTrue(argument);
+            case "$regex":
+                return fieldMatches(values, regex(argument, operators.get("$options")));
+            case "$not":
+                return !fieldMatches(values, argument);
+            case "$size":
+                return values.stream().anyMatch(value -> BsonValues.isList(value)
+                        && BsonValues.asList(value).size() == ((Number) argument).intValue());
+            case "$all":
+                return BsonValues.asList(argument).stream().allMatch(candidate -> equalsAny(values, candidate));
+            case "$elemMatch":
+                return values.stream().filter(BsonValues::isList).flatMap(value -> BsonValues.asList(value).stream())
+                        .anyMatch(element -> isOperatorDocument(argument)
+                                ? fieldMatches(List.of(element), argument)
+                                : element instanceof Map && matches((Map<String, Object>) element,
+                                (Map<String, Object>) argument));
+            default:
+                throw new UnsupportedOperationException("Query operator " + operator + " is not supported in memory");
+        }
+    }
+
+    private static Pattern regex(Object pattern, Object options) {
+        if (pattern instanceof Pattern compiled) {
+            return compiled;
+        }
+        int flags = 0;
+        String optionString = options == null ? "" : options.toString();
+        if (optionString.contains("i")) {
+            flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        if (optionString.contains("m")) {
+            flags |= Pattern.MULTILINE;
+        }
+        if (optionString.contains("s")) {
+            flags |= Pattern.DOTALL;
+        }
+        if (optionString.contains("x")) {
+            flags |= Pattern.COMMENTS;
+        }
+        return Pattern.compile(pattern.toString(), flags);
+    }
+
+    // A null condition also matches a missing field
+    private static boolean equalsAny(List<Object> values, Object expected) {
+        for (Object value : values) {
+            if (expected == null && (value == null || value == BsonValues.MISSING)) {
+                return true;
+            }
+            if (BsonValues.valueEquals(value, expected)) {
+                return true;
+            }
+            if (BsonValues.isList(value) && !BsonValues.isList(expected)
+                    && BsonValues.asList(value).stream().anyMatch(element -> BsonValues.valueEquals(element, expected))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean compareAny(List<Object> values, Object bound, java.util.function.IntPredicate test) {
+        return anyElement(values, value -> BsonValues.typeRank(value) == BsonValues.typeRank(bound)
+                && value != BsonValues.MISSING && test.test(BsonValues.compare(value, bound)));
+    }
+
+    private static boolean anyElement(List<Object> values, java.util.function.Predicate<Object> test) {
+        for (Object value : values) {
+            if (test.test(value)) {
+                return true;
+            }
+            if (BsonValues.isList(value) && BsonValues.asList(value).stream().anyMatch(test)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Every value a dotted path reaches, descending into arrays of sub-documents on the way
+    @SuppressWarnings("unchecked")
+    static List<Object> resolve(Map<String, Object> document, String path) {
+        List<Object> current = new ArrayList<>(List.of(document));
+        for (String part : path.split("\\.")) {
+            List<Object> next = new ArrayList<>();
+            for (Object value : current) {
+                if (value instanceof Map<?, ?> map) {
+                    next.add(map.containsKey(part) ? ((Map<String, Object>) map).get(part) : BsonValues.MISSING);
+                } else if (BsonValues.isList(value)) {
+                    List<?> list = BsonValues.asList(value);
+                    if (!part.isEmpty() && part.chars().allMatch(Character::isDigit)) {
+                        int index = Integer.parseInt(part);
+                        next.add(index < list.size() ? list.get(index) : BsonValues.MISSING);
+                    } else {
+                        for (Object element : list) {
+                            if (element instanceof Map<?, ?> map) {
+                                next.add(map.containsKey(part)
+                                        ? ((Map<String, Object>) map).get(part) : BsonValues.MISSING);
+                            }
+                        }
+                    }
+                } else {
+                    next.add(BsonValues.MISSING);
+                }
+            }
+            current = next;
+        }
+        if (current.isEmpty()) {
+            current.add(BsonValues.MISSING);
+        }
+        return current;
+    }
+}
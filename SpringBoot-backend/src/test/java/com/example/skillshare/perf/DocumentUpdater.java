@@ -0,0 +1,187 @@
+package com.example.skillshare.perf;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+// Update operator application ($set, $inc, $push with $each/$slice, ...) on a stored document
+final class DocumentUpdater {
+
+    private DocumentUpdater() {
+    }
+
+    static boolean isOperatorUpdate(Map<String, Object> update) {
+        return !update.isEmpty() && update.keySet().iterator().next().startsWith("$");
+    }
+
+    // Returns whether the document changed
+    @SuppressWarnings("unchecked")
+    static boolean apply(Document document, Map<String, Object> update, boolean inserting) {
+        Document before = BsonValues.copy(document);
+        for (Map.Entry<String, Object> entry : update.entrySet()) {
+            String operator = entry.getKey();
+            Map<String, Object> fields = (Map<String, Object>) entry.getValue();
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                applyOne(document, operator, field.getKey(), field.getValue(), inserting);
+            }
+        }
+        return BsonValues.compare(before, document) != 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void applyOne(Document document, String operator, String path, Object argument, boolean inserting) {
+        if (path.equals("_id") && !operator.equals("$setOnInsert") && !inserting
+                && !BsonValues.valueEquals(BsonValues.get(document, "_id"), argument)) {
+            throw new IllegalArgumentException("Performing an update on the path '_id' would modify the immutable field '_id'");
+        }
+
+        Object current = BsonValues.get(document, path);
+        switch (operator) {
+            case "$set" -> BsonValues.set(document, path, BsonValues.copy(argument));
+            case "$setOnInsert" -> {
+                if (inserting) {
+                    BsonValues.set(document, path, BsonValues.copy(argument));
+                }
+            }
+            case "$unset" -> BsonValues.remove(document, path);
+            case "$inc" -> BsonValues.set(document, path, add(current, (Number) argument));
+            case "$mul" -> BsonValues.set(document, path, multiply(current, (Number) argument));
+            case "$min" -> {
+                if (current == BsonValues.MISSING || BsonValues.compare(argument, current) < 0) {
+                    BsonValues.set(document, path, BsonValues.copy(argument));
+                }
+            }
+            case "$max" -> {
+                if (current == BsonValues.MISSING || BsonValues.compare(argument, current) > 0) {
+                    BsonValues.set(document, path, BsonValues.copy(argument));
+                }
+            }
+            case "$currentDate" -> BsonValues.set(document, path, new Date());
+            case "$rename" -> {
+                if (current != BsonValues.MISSING) {
+                    BsonValues.remove(document, path);
+                    BsonValues.set(document, argument.toString(), current);
+                }
+            }
+            case "$push" -> push(document, path, current, argument);
+            case "$addToSet" -> {
+                List<Object> array = arrayAt(path, current);
+                List<Object> values = argument instanceof Map<?, ?> map && map.containsKey("$each")
+                        ? new ArrayList<>(BsonValues.asList(map.get("$each"))) : List.of(argument);
+                for (Object value : values) {
+                    if (array.stream().noneMatch(element -> BsonValues.valueEquals(element, value))) {
+                        array.add(BsonValues.copy(value));
+                    }
+                }
+                BsonValues.set(document, path, array);
+            }
+            case "$pull" -> {
+                if (current != BsonValues.MISSING) {
+                    List<Object> array = arrayAt(path, current);
+                    array.removeIf(element -> argument instanceof Map<?, ?> condition
+                            ? (DocumentMatcher.isOperatorDocument(condition)
+                            ? DocumentMatcher.fieldMatches(List.of(element), condition)
+                            : element instanceof Map && DocumentMatcher.matches((Map<String, Object>) element,
+                            (Map<String, Object>) condition))
+                            : BsonValues.valueEquals(element, argument));
+                    BsonValues.set(document, path, array);
+                }
+            }
+            case "$pullAll" -> {
+                if (current != BsonValues.MISSING) {
+                    List<Object> array = arrayAt(path, current);
+                    List<?> values = BsonValues.asList(argument);
+                    array.removeIf(element -> values.stream().anyMatch(value -> BsonValues.valueEquals(element, value)));
+                    BsonValues.set(document, path, array);
+                }
+            }
+            case "$pop" -> {
+                if (current != BsonValues.MISSING) {
+                    List<Object> array = arrayAt(path, current);
+                    if (!array.isEmpty()) {
+                        array.remove(((Number) argument).intValue() < 0 ? 0 : array.size() - 1);
+                    }
+                    BsonValues.set(document, path, array);
+                }
+            }
+            default -> throw new UnsupportedOperationException("Update operator " + operator + " is not supported in memory");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void push(Document document, String path, Object current, Object argument) {
+        List<Object> array = arrayAt(path, current);
+        if (!(argument instanceof Map<?, ?> map) || !map.containsKey("$each")) {
+            array.add(BsonValues.copy(argument));
+            BsonValues.set(document, path, array);
+            return;
+        }
+
+        Map<String, Object> modifiers = (Map<String, Object>) map;
+        List<Object> values = new ArrayList<>();
+        BsonValues.asList(modifiers.get("$each")).forEach(value -> values.add(BsonValues.copy(value)));
+        if (modifiers.containsKey("$position")) {
+            int position = ((Number) modifiers.get("$position")).intValue();
+            position = position < 0 ? Math.max(0, array.size() + position) : Math.min(position, array.size());
+            array.addAll(position, values);
+        } else {
+            array.addAll(values);
+        }
+        if (modifiers.containsKey("$sort")) {
+            Object sort = modifiers.get("$sort");
+            if (sort instanceof Map<?, ?> sortDocument) {
+                array.sort(InMemoryCollection.sortComparator((Map<String, Object>) sortDocument));
+            } else {
+                int direction = ((Number) sort).intValue();
+                array.sort((left, right) -> direction * BsonValues.compare(left, right));
+            }
+        }
+        if (modifiers.containsKey("$slice")) {
+            int slice = ((Number) modifiers.get("$slice")).intValue();
+            List<Object> kept = slice >= 0
+                    ? array.subList(0, Math.min(slice, array.size()))
+                    : array.subList(Math.max(0, array.size() + slice), array.size());
+            array = new ArrayList<>(kept);
+        }
+        BsonValues.set(document, path, array);
+    }
+
+    private static List<Object> arrayAt(String path, Object current) {
+        if (current == BsonValues.MISSING || current == null) {
+            return new ArrayList<>();
+        }
+        if (!BsonValues.isList(current)) {
+            throw new IllegalArgumentException("The field '" + path + "' must be an array");
+        }
+        return new ArrayList<>(BsonValues.asList(current));
+    }
+
+    private static Number add(Object current, Number delta) {
+        if (current == BsonValues.MISSING || current == null) {
+            return delta;
+        }
+        Number value = (Number) current;
+        if (value instanceof Double || delta instanceof Double || value instanceof Float || delta instanceof Float) {
+            return value.doubleValue() + delta.doubleValue();
+        }
+        long sum = value.longValue() + delta.longValue();
+        // Int fields stay int until they overflow, like the server's numeric promotion
+        return value instanceof Long || delta instanceof Long || sum != (int) sum ? (Number) sum : (Number) (int) sum;
+    }
+
+    private static Number multiply(Object current, Number factor) {
+        if (current == BsonValues.MISSING || current == null) {
+            return factor instanceof Double ? 0.0 : 0;
+        }
+        Number value = (Number) current;
+        if (value instanceof Double || factor instanceof Double) {
+            return value.doubleValue() * factor.doubleValue();
+        }
+        long product = value.longValue() * factor.longValue();
+        return value instanceof Long || factor instanceof Long || product != (int) product
+                ? (Number) product : (Number) (int) product;
+    }
+}
@@ -0,0 +1,638 @@
+package com.example.skillshare.perf;
+
+import com.mongodb.Function;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.ListIndexesIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.FindOneAndDeleteOptions;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.client.result.InsertOneResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Sync-driver facades (MongoDatabase, MongoCollection, FindIterable, ...) over the in-memory store, so
+// MongoTemplate and the repositories run unchanged. Only the calls Spring Data and this codebase make are
+// implemented; anything else fails loudly instead of silently doing the wrong thing.
+final class DriverAdapters {
+
+    // Cursor and command options that only tune a remote server; accepting and ignoring them is exact here
+    private static final Set<String> IGNORED_OPTIONS = Set.of("batchSize", "maxTime", "maxAwaitTime", "comment",
+            "hint", "hintString", "allowDiskUse", "noCursorTimeout", "cursorType", "partial", "oplogReplay",
+            "showRecordId", "returnKey", "let", "bypassDocumentValidation", "timeoutMode",
+            "withReadPreference", "withWriteConcern", "withReadConcern", "withCodecRegistry", "withTimeout");
+
+    private DriverAdapters() {
+    }
+
+    static MongoDatabase database(InMemoryMongoStore store, CodecRegistry codecRegistry) {
+        return proxy(MongoDatabase.class, new DatabaseHandler(store, codecRegistry));
+    }
+
+    // ---- value conversion ----
+
+    static Document toDocument(Bson bson, CodecRegistry codecRegistry) {
+        if (bson == null) {
+            return null;
+        }
+        if (bson instanceof Document document) {
+            return document;
+        }
+        return (Document) toJava(bson.toBsonDocument(Document.class, codecRegistry));
+    }
+
+    static BsonValue toBson(Object value, CodecRegistry codecRegistry) {
+        return value == null ? null
+                : new Document("v", value).toBsonDocument(Document.class, codecRegistry).get("v");
+    }
+
+    static Object toJava(BsonValue value) {
+        return switch (value.getBsonType()) {
+            case DOCUMENT -> {
+                Document document = new Document();
+                value.asDocument().forEach((key, nested) -> document.put(key, toJava(nested)));
+                yield document;
+            }
+            case ARRAY -> {
+                BsonArray array = value.asArray();
+                List<Object> list = new ArrayList<>(array.size());
+                array.forEach(element -> list.add(toJava(element)));
+                yield list;
+            }
+            case STRING -> value.asString().getValue();
+            case SYMBOL -> value.asSymbol().getSymbol();
+            case INT32 -> value.asInt32().getValue();
+            case INT64 -> value.asInt64().getValue();
+            case DOUBLE -> value.asDouble().getValue();
+            case DECIMAL128 -> value.asDecimal128().getValue();
+            case BOOLEAN -> value.asBoolean().getValue();
+            case OBJECT_ID -> value.asObjectId().getValue();
+            case DATE_TIME -> new Date(value.asDateTime().getValue());
+            case BINARY -> new Binary(value.asBinary().getType(), value.asBinary().getData());
+            case REGULAR_EXPRESSION -> regex(value.asRegularExpression());
+            case MIN_KEY -> new MinKey();
+            case MAX_KEY -> new MaxKey();
+            case NULL, UNDEFINED -> null;
+            default -> value;
+        };
+    }
+
+    private static Pattern regex(BsonRegularExpression regex) {
+        int flags = 0;
+        String options = regex.getOptions();
+        if (options.contains("i")) {
+            flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        if (options.contains("m")) {
+            flags |= Pattern.MULTILINE;
+        }
+        if (options.contains("s")) {
+            flags |= Pattern.DOTALL;
+        }
+        if (options.contains("x")) {
+            flags |= Pattern.COMMENTS;
+        }
+        return Pattern.compile(regex.getPattern(), flags);
+    }
+
+    // ---- proxy plumbing ----
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        handler.type = type;
+        return (T) Proxy.newProxyInstance(DriverAdapters.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private abstract static class Handler implements InvocationHandler {
+
+        private Class<?> type;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] arguments) {
+            Object[] args = arguments == null ? new Object[0] : arguments;
+            String name = method.getName();
+            switch (name) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    break;
+            }
+            if (args.length > 0 && args[0] instanceof ClientSession) {
+                throw unsupported(name + " with a ClientSession");
+            }
+            if (IGNORED_OPTIONS.contains(name) && method.getReturnType().isInstance(proxy)) {
+                return proxy;
+            }
+            return handle(proxy, method, name, args);
+        }
+
+        abstract Object handle(Object proxy, Method method, String name, Object[] args);
+
+        UnsupportedOperationException unsupported(String what) {
+            return new UnsupportedOperationException(type.getSimpleName() + "." + what + " is not supported in memory");
+        }
+    }
+
+    // ---- database ----
+
+    private static final class DatabaseHandler extends Handler {
+
+        private final InMemoryMongoStore store;
+        private final CodecRegistry codecRegistry;
+        private final Map<String, MongoCollection<Document>> collections = new ConcurrentHashMap<>();
+
+        DatabaseHandler(InMemoryMongoStore store, CodecRegistry codecRegistry) {
+            this.store = store;
+            this.codecRegistry = codecRegistry;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, String name, Object[] args) {
+            switch (name) {
+                case "getName":
+                    return store.getName();
+                case "getCodecRegistry":
+                    return codecRegistry;
+                case "getReadPreference":
+                    return ReadPreference.primary();
+                case "getWriteConcern":
+                    return WriteConcern.ACKNOWLEDGED;
+                case "getReadConcern":
+                    return ReadConcern.DEFAULT;
+                case "getCollection":
+                    if (args.length > 1 && args[1] != Document.class) {
+                        throw unsupported("getCollection for " + args[1]);
+                    }
+                    return collection((String) args[0]);
+                case "createCollection":
+                    store.collection((String) args[0]);
+                    return null;
+                case "listCollectionNames":
+                    return iterable(store::collectionNames);
+                case "runCommand": {
+                    if (args.length > 2 || (args.length == 2 && !(args[1] instanceof Class<?>))) {
+                        throw unsupported("runCommand with a read preference");
+                    }
+                    Document result = store.runCommand(toDocument((Bson) args[0], codecRegistry));
+                    return args.length == 2 && args[1] != Document.class
+                            ? result.toBsonDocument(Document.class, codecRegistry) : result;
+                }
+                case "drop":
+                    store.drop();
+                    return null;
+                default:
+                    throw unsupported(name);
+            }
+        }
+
+        private MongoCollection<Document> collection(String name) {
+            return collections.computeIfAbsent(name, ignored ->
+                    proxy(MongoCollection.class, new CollectionHandler(store, name, codecRegistry)));
+        }
+    }
+
+    // ---- collection ----
+
+    private static final class CollectionHandler extends Handler {
+
+        private final InMemoryMongoStore store;
+        private final String name;
+        private final CodecRegistry codecRegistry;
+
+        CollectionHandler(InMemoryMongoStore store, String name, CodecRegistry codecRegistry) {
+            this.store = store;
+            this.name = name;
+            this.codecRegistry = codecRegistry;
+        }
+
+        private InMemoryCollection collection() {
+            return store.collection(name);
+        }
+
+        private Document document(Object bson) {
+            return toDocument((Bson) bson, codecRegistry);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object handle(Object proxy, Method method, String operation, Object[] args) {
+            switch (operation) {
+                case "getNamespace":
+                    return new MongoNamespace(store.getName(), name);
+                case "getDocumentClass":
+                    return Document.class;
+                case "getCodecRegistry":
+                    return codecRegistry;
+                case "getReadPreference":
+                    return ReadPreference.primary();
+                case "getWriteConcern":
+                    return WriteConcern.ACKNOWLEDGED;
+                case "getReadConcern":
+                    return ReadConcern.DEFAULT;
+                case "withDocumentClass":
+                    if (args[0] != Document.class) {
+                        throw unsupported("withDocumentClass(" + args[0] + ")");
+                    }
+                    return proxy;
+                case "countDocuments": {
+                    CountOptions options = args.length > 1 ? (CountOptions) args[1] : new CountOptions();
+                    return collection().count(args.length > 0 ? document(args[0]) : null,
+                            options.getSkip(), options.getLimit());
+                }
+                case "estimatedDocumentCount":
+                    return collection().count(null, 0, 0);
+                case "find": {
+                    Bson filter = args.length > 0 && args[0] instanceof Bson bson ? bson : null;
+                    if (args.length > 0 && args[args.length - 1] instanceof Class<?> type && type != Document.class) {
+                        throw unsupported("find for " + type);
+                    }
+                    return proxy(FindIterable.class, new FindHandler(this, document(filter)));
+                }
+                case "insertOne": {
+                    Object id = collection().insert((Document) args[0]);
+                    return InsertOneResult.acknowledged(toBson(id, codecRegistry));
+                }
+                case "insertMany": {
+                    List<WriteModel<Document>> models = new ArrayList<>();
+                    ((List<Document>) args[0]).forEach(document -> models.add(new InsertOneModel<>(document)));
+                    boolean ordered = args.length < 2 || ((InsertManyOptions) args[1]).isOrdered();
+                    BulkWriteResult result = bulkWrite(models, ordered);
+                    Map<Integer, BsonValue> ids = new LinkedHashMap<>();
+                    result.getInserts().forEach(insert -> ids.put(insert.getIndex(), insert.getId()));
+                    return InsertManyResult.acknowledged(ids);
+                }
+                case "replaceOne": {
+                    boolean upsert = args.length > 2 && ((ReplaceOptions) args[2]).isUpsert();
+                    return updateResult(collection().replace(document(args[0]), (Document) args[1], upsert));
+                }
+                case "updateOne":
+                case "updateMany": {
+                    boolean upsert = args.length > 2 && ((UpdateOptions) args[2]).isUpsert();
+                    return updateResult(collection().update(document(args[0]), update(args[1]),
+                            operation.equals("updateMany"), upsert));
+                }
+                case "deleteOne":
+                case "deleteMany":
+                    return DeleteResult.acknowledged(collection().delete(document(args[0]),
+                            operation.equals("deleteMany")));
+                case "findOneAndUpdate": {
+                    FindOneAndUpdateOptions options = args.length > 2 ? (FindOneAndUpdateOptions) args[2]
+                            : new FindOneAndUpdateOptions();
+                    return collection().findAndModify(document(args[0]), document(options.getSort()),
+                            document(options.getProjection()), update(args[1]), null, false, options.isUpsert(),
+                            options.getReturnDocument() == ReturnDocument.AFTER);
+                }
+                case "findOneAndReplace": {
+                    FindOneAndReplaceOptions options = args.length > 2 ? (FindOneAndReplaceOptions) args[2]
+                            : new FindOneAndReplaceOptions();
+                    return collection().findAndModify(document(args[0]), document(options.getSort()),
+                            document(options.getProjection()), null, (Document) args[1], false, options.isUpsert(),
+                            options.getReturnDocument() == ReturnDocument.AFTER);
+                }
+                case "findOneAndDelete": {
+                    FindOneAndDeleteOptions options = args.length > 1 ? (FindOneAndDeleteOptions) args[1]
+                            : new FindOneAndDeleteOptions();
+                    return collection().findAndModify(document(args[0]), document(options.getSort()),
+                            document(options.getProjection()), null, null, true, false, false);
+                }
+                case "aggregate": {
+                    List<Document> pipeline = new ArrayList<>();
+                    ((List<? extends Bson>) args[0]).forEach(stage -> pipeline.add(document(stage)));
+                    return proxy(AggregateIterable.class, new IterableHandler(() ->
+                            new ArrayList<>(AggregationPipeline.run(collection(), pipeline, store::collection))));
+                }
+                case "bulkWrite": {
+                    boolean ordered = args.length < 2 || ((BulkWriteOptions) args[1]).isOrdered();
+                    return bulkWrite((List<? extends WriteModel<Document>>) args[0], ordered);
+                }
+                case "createIndex": {
+                    IndexOptions options = args.length > 1 ? (IndexOptions) args[1] : new IndexOptions();
+                    return createIndex(document(args[0]), options);
+                }
+                case "createIndexes": {
+                    List<String> names = new ArrayList<>();
+                    ((List<IndexModel>) args[0]).forEach(model -> names.add(createIndex(document(model.getKeys()),
+                            model.getOptions())));
+                    return names;
+                }
+                case "listIndexes":
+                    if (args.length > 0 && args[0] != Document.class) {
+                        throw unsupported("listIndexes for " + args[0]);
+                    }
+                    return proxy(ListIndexesIterable.class, new IterableHandler(() ->
+                            new ArrayList<>(collection().listIndexes())));
+                case "dropIndex":
+                    collection().dropIndex(args[0] instanceof String indexName ? indexName
+                            : SortedIndex.defaultName(document(args[0])));
+                    return null;
+                case "dropIndexes":
+                    collection().dropIndex("*");
+                    return null;
+                case "drop":
+                    store.dropCollection(name);
+                    return null;
+                default:
+                    throw unsupported(operation);
+            }
+        }
+
+        private Document update(Object update) {
+            if (update instanceof List) {
+                throw unsupported("update with an aggregation pipeline");
+            }
+            return document(update);
+        }
+
+        private UpdateResult updateResult(InMemoryCollection.Modified modified) {
+            return UpdateResult.acknowledged(modified.matched(), modified.modified(),
+                    toBson(modified.upsertedId(), codecRegistry));
+        }
+
+        private String createIndex(Document keys, IndexOptions options) {
+            String indexName = options.getName() != null ? options.getName() : SortedIndex.defaultName(keys);
+            Bson partialFilter = options.getPartialFilterExpression();
+            collection().createIndex(indexName, keys, options.isUnique(), options.isSparse(),
+                    partialFilter == null ? null : document(partialFilter), options.getExpireAfter(TimeUnit.SECONDS));
+            return indexName;
+        }
+
+        // Models run one at a time against the collection; an ordered batch stops at the first failed model
+        private BulkWriteResult bulkWrite(List<? extends WriteModel<Document>> models, boolean ordered) {
+            int inserted = 0;
+            int matched = 0;
+            int modified = 0;
+            int removed = 0;
+            List<BulkWriteInsert> inserts = new ArrayList<>();
+            List<BulkWriteUpsert> upserts = new ArrayList<>();
+            List<BulkWriteError> errors = new ArrayList<>();
+            InMemoryCollection collection = collection();
+
+            for (int index = 0; index < models.size(); index++) {
+                WriteModel<Document> model = models.get(index);
+                try {
+                    InMemoryCollection.Modified result = null;
+                    if (model instanceof InsertOneModel<Document> insert) {
+                        Object id = collection.insert(insert.getDocument());
+                        inserts.add(new BulkWriteInsert(index, toBson(id, codecRegistry)));
+                        inserted++;
+                    } else if (model instanceof UpdateOneModel<Document> update) {
+                        result = collection.update(document(update.getFilter()), update(update.getUpdate()), false,
+                                update.getOptions().isUpsert());
+                    } else if (model instanceof UpdateManyModel<Document> update) {
+                        result = collection.update(document(update.getFilter()), update(update.getUpdate()), true,
+                                update.getOptions().isUpsert());
+                    } else if (model instanceof ReplaceOneModel<Document> replace) {
+                        result = collection.replace(document(replace.getFilter()), replace.getReplacement(),
+                                replace.getReplaceOptions().isUpsert());
+                    } else if (model instanceof DeleteOneModel<Document> delete) {
+                        removed += (int) collection.delete(document(delete.getFilter()), false);
+                    } else if (model instanceof DeleteManyModel<Document> delete) {
+                        removed += (int) collection.delete(document(delete.getFilter()), true);
+                    } else {
+                        throw unsupported("bulkWrite with " + model.getClass().getSimpleName());
+                    }
+                    if (result != null) {
+                        matched += (int) result.matched();
+                        modified += (int) result.modified();
+                        if (result.upsertedId() != null) {
+                            upserts.add(new BulkWriteUpsert(index, toBson(result.upsertedId(), codecRegistry)));
+                        }
+                    }
+                } catch (MongoWriteException ex) {
+                    errors.add(new BulkWriteError(ex.getCode(), ex.getError().getMessage(),
+                            ex.getError().getDetails(), index));
+                    if (ordered) {
+                        break;
+                    }
+                }
+            }
+
+            BulkWriteResult result = BulkWriteResult.acknowledged(inserted, matched, removed, modified, upserts,
+                    inserts);
+            if (!errors.isEmpty()) {
+                throw new MongoBulkWriteException(result, errors, null, InMemoryCollection.SERVER_ADDRESS, Set.of());
+            }
+            return result;
+        }
+    }
+
+    // ---- cursors ----
+
+    // FindIterable: collects filter, projection, sort, skip and limit, and runs the query on iteration
+    private static final class FindHandler extends Handler {
+
+        private final CollectionHandler collection;
+        private Document filter;
+        private Document projection;
+        private Document sort;
+        private int skip;
+        private int limit;
+
+        FindHandler(CollectionHandler collection, Document filter) {
+            this.collection = collection;
+            this.filter = filter;
+        }
+
+        private List<Object> run(int limitOverride) {
+            int effectiveLimit = limitOverride > 0 ? limitOverride : Math.abs(limit);
+            return new ArrayList<>(collection.collection().find(
+                    new InMemoryCollection.Find(filter, sort, skip, effectiveLimit, projection)));
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, String name, Object[] args) {
+            switch (name) {
+                case "filter":
+                    filter = collection.document(args[0]);
+                    return proxy;
+                case "projection":
+                    projection = collection.document(args[0]);
+                    return proxy;
+                case "sort":
+                    sort = collection.document(args[0]);
+                    return proxy;
+                case "skip":
+                    skip = (int) args[0];
+                    return proxy;
+                case "limit":
+                    limit = (int) args[0];
+                    return proxy;
+                case "collation":
+                    if (args[0] != null) {
+                        throw unsupported("collation");
+                    }
+                    return proxy;
+                case "first": {
+                    List<Object> found = run(1);
+                    return found.isEmpty() ? null : found.get(0);
+                }
+                case "explain":
+                    return collection.collection().explain(filter, sort);
+                default:
+                    return iterate(proxy, name, args, () -> run(0), this);
+            }
+        }
+    }
+
+    // MongoIterable / AggregateIterable / ListIndexesIterable over a lazily produced result list
+    private static final class IterableHandler extends Handler {
+
+        private final Supplier<List<Object>> results;
+
+        IterableHandler(Supplier<List<Object>> results) {
+            this.results = results;
+        }
+
+        @Override
+        Object handle(Object proxy, Method method, String name, Object[] args) {
+            if (name.equals("collation")) {
+                if (args[0] != null) {
+                    throw unsupported("collation");
+                }
+                return proxy;
+            }
+            if (name.equals("first")) {
+                List<Object> found = results.get();
+                return found.isEmpty() ? null : found.get(0);
+            }
+            return iterate(proxy, name, args, results, this);
+        }
+    }
+
+    private static MongoIterable<Object> iterable(Supplier<List<Object>> results) {
+        return proxy(MongoIterable.class, new IterableHandler(results));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object iterate(Object proxy, String name, Object[] args, Supplier<List<Object>> results,
+                                  Handler handler) {
+        switch (name) {
+            case "iterator":
+            case "cursor":
+                return cursor(results.get());
+            case "forEach":
+                results.get().forEach((Consumer<Object>) args[0]);
+                return null;
+            case "spliterator":
+                return Spliterators.spliteratorUnknownSize(results.get().iterator(), 0);
+            case "into":
+                ((Collection<Object>) args[0]).addAll(results.get());
+                return args[0];
+            case "map": {
+                Function<Object, Object> mapper = (Function<Object, Object>) args[0];
+                return iterable(() -> {
+                    List<Object> mapped = new ArrayList<>();
+                    results.get().forEach(result -> mapped.add(mapper.apply(result)));
+                    return mapped;
+                });
+            }
+            default:
+                throw handler.unsupported(name);
+        }
+    }
+
+    // Results are materialised when the cursor opens, like a single server batch
+    @SuppressWarnings("unchecked")
+    private static MongoCursor<Object> cursor(List<Object> results) {
+        Iterator<Object> source = results.iterator();
+        int[] consumed = {0};
+        return proxy(MongoCursor.class, new Handler() {
+            @Override
+            Object handle(Object proxy, Method method, String name, Object[] args) {
+                switch (name) {
+                    case "hasNext":
+                        return source.hasNext();
+                    case "next":
+                    case "tryNext":
+                        if (!source.hasNext()) {
+                            if (name.equals("tryNext")) {
+                                return null;
+                            }
+                            throw new NoSuchElementException();
+                        }
+                        consumed[0]++;
+                        return source.next();
+                    case "available":
+                        return results.size() - consumed[0];
+                    case "close":
+                    case "getServerCursor":
+                        return null;
+                    case "getServerAddress":
+                        return InMemoryCollection.SERVER_ADDRESS;
+                    case "forEachRemaining":
+                        while (source.hasNext()) {
+                            consumed[0]++;
+                            ((Consumer<Object>) args[0]).accept(source.next());
+                        }
+                        return null;
+                    default:
+                        throw unsupported(name);
+                }
+            }
+        });
+    }
+}
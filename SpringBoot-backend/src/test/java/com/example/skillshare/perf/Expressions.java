@@ -0,0 +1,179 @@
+package com.example.skillshare.perf;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+// Aggregation expressions ($expr, $project, $group keys) over a single document
+final class Expressions {
+
+    private Expressions() {
+    }
+
+    static boolean isTrue(Object value) {
+        if (value == null || value == BsonValues.MISSING) {
+            return false;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object evaluate(Object expression, Map<String, Object> document) {
+        if (expression instanceof String text && text.startsWith("$")) {
+            if (text.equals("$$ROOT") || text.equals("$$CURRENT")) {
+                return document;
+            }
+            if (text.equals("$$NOW")) {
+                return new Date();
+            }
+            if (text.startsWith("$$")) {
+                throw new UnsupportedOperationException("Variable " + text + " is not supported in memory");
+            }
+            List<Object> values = DocumentMatcher.resolve(document, text.substring(1));
+            // A path through an array of sub-documents yields an array, like the server does
+            if (values.size() == 1) {
+                return values.get(0);
+            }
+            values.removeIf(value -> value == BsonValues.MISSING);
+            return values;
+        }
+        if (expression instanceof Map<?, ?> map) {
+            Map<String, Object> operands = (Map<String, Object>) map;
+            if (operands.size() == 1 && operands.keySet().iterator().next().startsWith("$")) {
+                Map.Entry<String, Object> operator = operands.entrySet().iterator().next();
+                return apply(operator.getKey(), operator.getValue(), document);
+            }
+            Document result = new Document();
+            operands.forEach((key, nested) -> result.put(key, evaluate(nested, document)));
+            return result;
+        }
+        if (BsonValues.isList(expression)) {
+            List<Object> result = new ArrayList<>();
+            for (Object element : BsonValues.asList(expression)) {
+                result.add(evaluate(element, document));
+            }
+            return result;
+        }
+        return expression;
+    }
+
+    private static Object apply(String operator, Object argument, Map<String, Object> document) {
+        if (operator.equals("$literal")) {
+            return argument;
+        }
+
+        List<Object> args = new ArrayList<>();
+        if (BsonValues.isList(argument)) {
+            for (Object element : BsonValues.asList(argument)) {
+                args.add(evaluate(element, document));
+            }
+        } else {
+            args.add(evaluate(argument, document));
+        }
+
+        switch (operator) {
+            case "$eq":
+                return BsonValues.compare(args.get(0), args.get(1)) == 0;
+            case "$ne":
+                return BsonValues.compare(args.get(0), args.get(1)) != 0;
+            case "$gt":
+                return BsonValues.compare(args.get(0), args.get(1)) > 0;
+            case "$gte":
+                return BsonValues.compare(args.get(0), args.get(1)) >= 0;
+            case "$lt":
+                return BsonValues.compare(args.get(0), args.get(1)) < 0;
+            case "$lte":
+                return BsonValues.compare(args.get(0), args.get(1)) <= 0;
+            case "$cmp":
+                return Integer.signum(BsonValues.compare(args.get(0), args.get(1)));
+            case "$and":
+                return args.stream().allMatch(Expressions::isTrue);
+            case "$or":
+                return args.stream().anyMatch(Expressions::isTrue);
+            case "$not":
+                return !isTrue(args.get(0));
+            case "$ifNull":
+                for (Object value : args) {
+                    if (value != null && value != BsonValues.MISSING) {
+                        return value;
+                    }
+                }
+                return null;
+            case "$cond":
+                return isTrue(args.get(0)) ? args.get(1) : args.get(2);
+            case "$in":
+                return BsonValues.asList(args.get(1)).stream()
+                        .anyMatch(candidate -> BsonValues.valueEquals(candidate, args.get(0)));
+            case "$size":
+                return BsonValues.asList(args.get(0)).size();
+            case "$first":
+                return arrayElement(args.get(0), 0);
+            case "$last":
+                return arrayElement(args.get(0), -1);
+            case "$arrayElemAt":
+                return arrayElement(args.get(0), ((Number) args.get(1)).intValue());
+            case "$add":
+                return arithmetic(args, Double::sum);
+            case "$subtract":
+                if (args.get(0) instanceof Date date && args.get(1) instanceof Number number) {
+                    return new Date(date.getTime() - number.longValue());
+                }
+                if (args.get(0) instanceof Date left && args.get(1) instanceof Date right) {
+                    return left.getTime() - right.getTime();
+                }
+                return arithmetic(args, (left, right) -> left - right);
+            case "$multiply":
+                return arithmetic(args, (left, right) -> left * right);
+            case "$divide":
+                return ((Number) args.get(0)).doubleValue() / ((Number) args.get(1)).doubleValue();
+            case "$toString":
+                return args.get(0) == null ? null : args.get(0).toString();
+            default:
+                throw new UnsupportedOperationException("Expression " + operator + " is not supported in memory");
+        }
+    }
+
+    private static Object arrayElement(Object array, int index) {
+        if (!BsonValues.isList(array)) {
+            return BsonValues.MISSING;
+        }
+        List<?> list = BsonValues.asList(array);
+        int position = index < 0 ? list.size() + index : index;
+        return position >= 0 && position < list.size() ? list.get(position) : BsonValues.MISSING;
+    }
+
+    // Dates plus milliseconds stay dates; integral operands stay integral
+    private static Object arithmetic(List<Object> args, java.util.function.DoubleBinaryOperator op) {
+        Date date = null;
+        double result = 0;
+        boolean first = true;
+        boolean integral = true;
+        for (Object arg : args) {
+            double value;
+            if (arg instanceof Date d) {
+                date = d;
+                value = d.getTime();
+            } else if (arg instanceof Number number) {
+                integral &= !(number instanceof Double || number instanceof Float);
+                value = number.doubleValue();
+            } else {
+                return null;
+            }
+            result = first ? value : op.applyAsDouble(result, value);
+            first = false;
+        }
+        if (date != null) {
+            return new Date((long) result);
+        }
+        return integral ? (Object) (long) result : (Object) result;
+    }
+}
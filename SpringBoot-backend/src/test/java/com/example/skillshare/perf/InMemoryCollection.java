@@ -0,0 +1,627 @@
+package com.example.skillshare.perf;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// One collection of the in-memory engine. Documents are kept by _id in insertion order; secondary indexes
+// narrow equality lookups and, when their order matches the requested sort, let a limited query stop early.
+// Readers share a lock, writers are exclusive per collection.
+final class InMemoryCollection {
+
+    static final ServerAddress SERVER_ADDRESS = new ServerAddress("in-memory", 27017);
+
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int MAX_INDEX_POINTS = 1000;
+
+    private final String namespace;
+    private final Map<Object, Document> documents = new LinkedHashMap<>();
+    private final Map<String, SortedIndex> indexes = new LinkedHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    InMemoryCollection(String namespace) {
+        this.namespace = namespace;
+    }
+
+    record Find(Map<String, Object> filter, Map<String, Object> sort, int skip, int limit,
+                Map<String, Object> projection) {
+
+        Find {
+            filter = filter == null ? Collections.emptyMap() : filter;
+            sort = sort == null ? Collections.emptyMap() : sort;
+        }
+    }
+
+    record Modified(long matched, long modified, Object upsertedId) {
+    }
+
+    // ---- reads ----
+
+    List<Document> find(Find find) {
+        return read(() -> {
+            List<Document> found = matching(find.filter(), find.sort(), find.skip(), find.limit());
+            List<Document> result = new ArrayList<>(found.size());
+            for (Document document : found) {
+                result.add(project(document, find.projection()));
+            }
+            return result;
+        });
+    }
+
+    long count(Map<String, Object> filter, int skip, int limit) {
+        return read(() -> {
+            if (filter == null || filter.isEmpty()) {
+                long count = Math.max(0, documents.size() - skip);
+                return limit > 0 ? Math.min(count, limit) : count;
+            }
+            return (long) matching(filter, Collections.emptyMap(), skip, limit).size();
+        });
+    }
+
+    List<Document> snapshot() {
+        return read(() -> {
+            List<Document> copies = new ArrayList<>(documents.size());
+            documents.values().forEach(document -> copies.add(BsonValues.copy(document)));
+            return copies;
+        });
+    }
+
+    Document explain(Map<String, Object> query, Map<String, Object> order) {
+        Map<String, Object> filter = query == null ? Collections.emptyMap() : query;
+        Map<String, Object> sort = order == null ? Collections.emptyMap() : order;
+        return read(() -> {
+            Plan plan = plan(filter, sort);
+            Document scan = plan.index == null
+                    ? new Document("stage", plan.byId ? "IDHACK" : "COLLSCAN")
+                    : new Document("stage", "IXSCAN").append("indexName", plan.index.name())
+                    .append("keyPattern", plan.index.spec().get("key"))
+                    .append("direction", plan.reverse ? "backward" : "forward");
+            Document winningPlan = plan.index == null ? scan : new Document("stage", "FETCH").append("inputStage", scan);
+            if (!sort.isEmpty() && !plan.sortCovered) {
+                winningPlan = new Document("stage", "SORT").append("inputStage", winningPlan);
+            }
+            return new Document("queryPlanner", new Document("namespace", namespace).append("winningPlan", winningPlan))
+                    .append("ok", 1.0);
+        });
+    }
+
+    // ---- writes ----
+
+    Object insert(Document document) {
+        return write(() -> doInsert(document));
+    }
+
+    Modified update(Map<String, Object> filter, Map<String, Object> update, boolean multi, boolean upsert) {
+        return write(() -> doUpdate(filter, update, multi, upsert));
+    }
+
+    Modified replace(Map<String, Object> filter, Document replacement, boolean upsert) {
+        return write(() -> doReplace(filter, replacement, upsert));
+    }
+
+    long delete(Map<String, Object> filter, boolean multi) {
+        return write(() -> {
+            List<Document> found = matching(filter, Collections.emptyMap(), 0, multi ? 0 : 1);
+            found.forEach(this::unlink);
+            return (long) found.size();
+        });
+    }
+
+    // findOneAndUpdate / findOneAndReplace / findOneAndDelete
+    Document findAndModify(Map<String, Object> filter, Map<String, Object> sort, Map<String, Object> projection,
+                           Map<String, Object> update, Document replacement, boolean remove, boolean upsert,
+                           boolean returnNew) {
+        return write(() -> {
+            List<Document> found = matching(filter, sort == null ? Collections.emptyMap() : sort, 0, 1);
+            Document before = found.isEmpty() ? null : found.get(0);
+            if (remove) {
+                if (before != null) {
+                    unlink(before);
+                }
+                return before == null ? null : project(before, projection);
+            }
+
+            Document beforeCopy = before == null ? null : BsonValues.copy(before);
+            Object id;
+            if (before != null) {
+                Map<String, Object> idFilter = new Document("_id", before.get("_id"));
+                if (replacement != null) {
+                    doReplace(idFilter, replacement, false);
+                } else {
+                    doUpdate(idFilter, update, false, false);
+                }
+                id = before.get("_id");
+            } else if (upsert) {
+                id = replacement != null ? doReplace(filter, replacement, true).upsertedId()
+                        : doUpdate(filter, update, false, true).upsertedId();
+            } else {
+                return null;
+            }
+
+            Document after = documents.get(id);
+            Document result = returnNew ? after : beforeCopy;
+            return result == null ? null : project(result, projection);
+        });
+    }
+
+    // ---- indexes ----
+
+    void createIndex(String name, Document keys, boolean unique, boolean sparse, Document partialFilter,
+                     Long expireAfterSeconds) {
+        write(() -> {
+            if (name.equals("_id_")) {
+                return null;
+            }
+            SortedIndex existing = indexes.get(name);
+            if (existing != null) {
+                if (!existing.sameKeys(keys) || existing.isUnique() != unique) {
+                    throw commandError(85, "IndexOptionsConflict",
+                            "Index with name: " + name + " already exists with different options");
+                }
+                return null;
+            }
+
+            SortedIndex index = new SortedIndex(name, keys, unique, sparse, partialFilter, expireAfterSeconds);
+            for (Document document : documents.values()) {
+                Object[] conflict = index.conflictingKey(document);
+                if (conflict != null) {
+                    throw duplicateKey(index.name(), conflict);
+                }
+                index.add(document);
+            }
+            indexes.put(name, index);
+            return null;
+        });
+    }
+
+    void dropIndex(String name) {
+        write(() -> {
+            if (name.equals("*")) {
+                indexes.clear();
+            } else if (indexes.remove(name) == null) {
+                throw commandError(27, "IndexNotFound", "index not found with name [" + name + "]");
+            }
+            return null;
+        });
+    }
+
+    List<Document> listIndexes() {
+        return read(() -> {
+            List<Document> specs = new ArrayList<>();
+            specs.add(new Document("v", 2).append("key", new Document("_id", 1)).append("name", "_id_"));
+            indexes.values().forEach(index -> specs.add(BsonValues.copy(index.spec())));
+            return specs;
+        });
+    }
+
+    Document stats() {
+        return read(() -> {
+            long size = 0;
+            for (Document document : documents.values()) {
+                size += document.toJson().length();
+            }
+            long indexEntries = indexes.values().stream().mapToLong(SortedIndex::size).sum() + documents.size();
+            return new Document("ns", namespace)
+                    .append("count", documents.size())
+                    .append("size", size)
+                    .append("avgObjSize", documents.isEmpty() ? 0 : size / documents.size())
+                    .append("storageSize", size)
+                    .append("nindexes", indexes.size() + 1)
+                    // Rough: 32 bytes per index entry
+                    .append("totalIndexSize", indexEntries * 32)
+                    .append("ok", 1.0);
+        });
+    }
+
+    // ---- internals (callers hold the lock) ----
+
+    private Object doInsert(Document document) {
+        // Like the driver, generate the _id into the caller's document so the template can read it back
+        if (!document.containsKey("_id")) {
+            document.put("_id", new ObjectId());
+        }
+        Document stored = BsonValues.copy(document);
+        Object id = stored.get("_id");
+        if (documents.containsKey(id)) {
+            throw duplicateKey("_id_", new Object[]{id});
+        }
+        checkUnique(stored);
+        link(stored);
+        return id;
+    }
+
+    private Modified doUpdate(Map<String, Object> filter, Map<String, Object> update, boolean multi, boolean upsert) {
+        if (!DocumentUpdater.isOperatorUpdate(update)) {
+            throw new IllegalArgumentException("Invalid BSON field name " + update.keySet().iterator().next());
+        }
+
+        List<Document> found = matching(filter, Collections.emptyMap(), 0, multi ? 0 : 1);
+        if (found.isEmpty()) {
+            if (!upsert) {
+                return new Modified(0, 0, null);
+            }
+            Document inserted = upsertSeed(filter);
+            DocumentUpdater.apply(inserted, update, true);
+            return new Modified(0, 0, doInsert(inserted));
+        }
+
+        long modified = 0;
+        for (Document document : found) {
+            Document updated = BsonValues.copy(document);
+            if (DocumentUpdater.apply(updated, update, false)) {
+                relink(document, updated);
+                modified++;
+            }
+        }
+        return new Modified(found.size(), modified, null);
+    }
+
+    private Modified doReplace(Map<String, Object> filter, Document replacement, boolean upsert) {
+        List<Document> found = matching(filter, Collections.emptyMap(), 0, 1);
+        if (found.isEmpty()) {
+            if (!upsert) {
+                return new Modified(0, 0, null);
+            }
+            Document inserted = upsertSeed(filter);
+            inserted.keySet().retainAll(Set.of("_id"));
+            replacement.forEach(inserted::put);
+            return new Modified(0, 0, doInsert(inserted));
+        }
+
+        Document current = found.get(0);
+        Object id = current.get("_id");
+        if (replacement.containsKey("_id") && !BsonValues.valueEquals(replacement.get("_id"), id)) {
+            throw new IllegalArgumentException("The _id field cannot be changed by a replacement");
+        }
+        Document updated = new Document("_id", id);
+        BsonValues.copy(replacement).forEach(updated::put);
+        boolean changed = BsonValues.compare(current, updated) != 0;
+        if (changed) {
+            relink(current, updated);
+        }
+        return new Modified(1, changed ? 1 : 0, null);
+    }
+
+    // An upserted document starts from the filter's equality fields
+    @SuppressWarnings("unchecked")
+    private static Document upsertSeed(Map<String, Object> filter) {
+        Document seed = new Document();
+        filter.forEach((key, condition) -> {
+            if (key.equals("$and")) {
+                BsonValues.asList(condition).forEach(clause -> upsertSeed((Map<String, Object>) clause).forEach(seed::put));
+            } else if (!key.startsWith("$")) {
+                if (!DocumentMatcher.isOperatorDocument(condition)) {
+                    BsonValues.set(seed, key, BsonValues.copy(condition));
+                } else if (((Map<String, Object>) condition).containsKey("$eq")) {
+                    BsonValues.set(seed, key, BsonValues.copy(((Map<String, Object>) condition).get("$eq")));
+                }
+            }
+        });
+        return seed;
+    }
+
+    private void checkUnique(Document document) {
+        for (SortedIndex index : indexes.values()) {
+            Object[] conflict = index.conflictingKey(document);
+            if (conflict != null) {
+                throw duplicateKey(index.name(), conflict);
+            }
+        }
+    }
+
+    private void link(Document document) {
+        documents.put(document.get("_id"), document);
+        indexes.values().forEach(index -> index.add(document));
+    }
+
+    private void unlink(Document document) {
+        documents.remove(document.get("_id"));
+        indexes.values().forEach(index -> index.remove(document));
+    }
+
+    private void relink(Document current, Document updated) {
+        indexes.values().forEach(index -> index.remove(current));
+        try {
+            checkUnique(updated);
+        } catch (MongoWriteException ex) {
+            indexes.values().forEach(index -> index.add(current));
+            throw ex;
+        }
+        documents.put(updated.get("_id"), updated);
+        indexes.values().forEach(index -> index.add(updated));
+    }
+
+    private MongoWriteException duplicateKey(String indexName, Object[] key) {
+        String message = "E11000 duplicate key error collection: " + namespace + " index: " + indexName
+                + " dup key: " + Arrays.toString(key);
+        return new MongoWriteException(new WriteError(DUPLICATE_KEY, message, new BsonDocument()), SERVER_ADDRESS,
+                Collections.emptySet());
+    }
+
+    static MongoCommandException commandError(int code, String codeName, String message) {
+        return new MongoCommandException(new BsonDocument("ok", new BsonDouble(0))
+                .append("code", new BsonInt32(code))
+                .append("codeName", new BsonString(codeName))
+                .append("errmsg", new BsonString(message)), SERVER_ADDRESS);
+    }
+
+    // Stored documents (not copies) matching the filter, sorted, with skip and limit applied
+    private List<Document> matching(Map<String, Object> filter, Map<String, Object> sort, int skip, int limit) {
+        Plan plan = plan(filter, sort);
+        boolean ordered = sort.isEmpty() || plan.sortCovered;
+        long wanted = limit > 0 ? (long) skip + limit : Long.MAX_VALUE;
+
+        List<Document> found = new ArrayList<>();
+        for (Object id : plan.candidates()) {
+            Document document = documents.get(id);
+            if (document != null && DocumentMatcher.matches(document, filter)) {
+                found.add(document);
+                if (ordered && found.size() >= wanted) {
+                    break;
+                }
+            }
+        }
+        if (!ordered) {
+            found.sort(sortComparator(sort));
+        }
+
+        int from = Math.min(skip, found.size());
+        int to = limit > 0 ? (int) Math.min(found.size(), wanted) : found.size();
+        return found.subList(from, to);
+    }
+
+    static Comparator<Object> sortComparator(Map<String, Object> sort) {
+        List<Map.Entry<String, Object>> keys = new ArrayList<>(sort.entrySet());
+        return (left, right) -> {
+            for (Map.Entry<String, Object> key : keys) {
+                int direction = key.getValue() instanceof Number number && number.intValue() < 0 ? -1 : 1;
+                Object leftValue = left instanceof Document document ? BsonValues.get(document, key.getKey()) : left;
+                Object rightValue = right instanceof Document document ? BsonValues.get(document, key.getKey()) : right;
+                int byKey = direction * BsonValues.compare(leftValue, rightValue);
+                if (byKey != 0) {
+                    return byKey;
+                }
+            }
+            return 0;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    static Document project(Document document, Map<String, Object> projection) {
+        if (projection == null || projection.isEmpty()) {
+            return BsonValues.copy(document);
+        }
+
+        boolean inclusion = projection.entrySet().stream()
+                .anyMatch(entry -> !entry.getKey().equals("_id") && Expressions.isTrue(entry.getValue()));
+        boolean withId = !projection.containsKey("_id") || Expressions.isTrue(projection.get("_id"));
+
+        if (!inclusion) {
+            Document result = BsonValues.copy(document);
+            projection.keySet().forEach(path -> BsonValues.remove(result, path));
+            return result;
+        }
+
+        Document result = new Document();
+        if (withId && document.containsKey("_id")) {
+            result.put("_id", BsonValues.copy(document.get("_id")));
+        }
+        projection.forEach((path, include) -> {
+            if (!path.equals("_id") && Expressions.isTrue(include)) {
+                Object value = BsonValues.get(document, path);
+                if (value != BsonValues.MISSING) {
+                    BsonValues.set(result, path, BsonValues.copy(value));
+                }
+            }
+        });
+        return result;
+    }
+
+    // ---- planning ----
+
+    private final class Plan {
+        private SortedIndex index;
+        private List<Object[]> points = List.of();
+        private boolean reverse;
+        private boolean sortCovered;
+        private boolean byId;
+        private List<Object> ids;
+
+        Iterable<Object> candidates() {
+            if (byId) {
+                return ids;
+            }
+            if (index == null) {
+                return documents.keySet();
+            }
+            Set<Object> seen = new LinkedHashSet<>();
+            for (Object[] point : points) {
+                for (SortedIndex.Entry entry : index.range(point, reverse)) {
+                    seen.add(entry.id());
+                }
+            }
+            return seen;
+        }
+    }
+
+    private Plan plan(Map<String, Object> filter, Map<String, Object> sort) {
+        Map<String, List<Object>> equalities = new LinkedHashMap<>();
+        collectEqualities(filter, equalities);
+
+        Plan plan = new Plan();
+        if (equalities.containsKey("_id")) {
+            plan.byId = true;
+            plan.ids = equalities.get("_id");
+            plan.sortCovered = plan.ids.size() <= 1;
+            return plan;
+        }
+
+        int bestScore = 0;
+        for (SortedIndex index : indexes.values()) {
+            if (!index.isComplete()) {
+                continue;
+            }
+            int prefix = 0;
+            long combinations = 1;
+            while (prefix < index.fields().size() && equalities.containsKey(index.fields().get(prefix))) {
+                long next = combinations * equalities.get(index.fields().get(prefix)).size();
+                if (next > MAX_INDEX_POINTS) {
+                    break;
+                }
+                combinations = next;
+                prefix++;
+            }
+
+            Boolean reverse = combinations == 1 && !index.isMultikey()
+                    ? sortDirection(index, prefix, sort, equalities.keySet()) : null;
+            int score = prefix * 2 + (reverse != null && !sort.isEmpty() ? 1 : 0);
+            if (score > bestScore) {
+                bestScore = score;
+                plan.index = index;
+                plan.points = points(index, prefix, equalities);
+                plan.reverse = reverse != null && reverse;
+                plan.sortCovered = reverse != null;
+            }
+        }
+        if (plan.index == null) {
+            plan.sortCovered = sort.isEmpty();
+        }
+        return plan;
+    }
+
+    // Top-level (and $and-nested) equality and $in constraints usable as index points
+    @SuppressWarnings("unchecked")
+    private static void collectEqualities(Map<String, Object> filter, Map<String, List<Object>> equalities) {
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            String key = entry.getKey();
+            Object condition = entry.getValue();
+            if (key.equals("$and")) {
+                BsonValues.asList(condition).forEach(clause ->
+                        collectEqualities((Map<String, Object>) clause, equalities));
+                continue;
+            }
+            if (key.startsWith("$") || equalities.containsKey(key)) {
+                continue;
+            }
+
+            List<Object> values = null;
+            if (!DocumentMatcher.isOperatorDocument(condition)) {
+                values = indexable(condition) ? List.of(condition) : null;
+            } else {
+                Map<String, Object> operators = (Map<String, Object>) condition;
+                if (operators.containsKey("$eq") && indexable(operators.get("$eq"))) {
+                    values = List.of(operators.get("$eq"));
+                } else if (operators.containsKey("$in")) {
+                    List<Object> in = new ArrayList<>(BsonValues.asList(operators.get("$in")));
+                    values = in.stream().allMatch(InMemoryCollection::indexable) ? distinct(in) : null;
+                }
+            }
+            if (values != null) {
+                equalities.put(key, values);
+            }
+        }
+    }
+
+    // Arrays match element-wise or whole, and patterns are not equality, so neither maps onto index points
+    private static boolean indexable(Object value) {
+        return !BsonValues.isList(value) && !(value instanceof Pattern) && value != null;
+    }
+
+    private static List<Object> distinct(Collection<Object> values) {
+        List<Object> result = new ArrayList<>();
+        for (Object value : values) {
+            if (result.stream().noneMatch(existing -> BsonValues.valueEquals(existing, value))) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static List<Object[]> points(SortedIndex index, int prefix, Map<String, List<Object>> equalities) {
+        List<Object[]> points = new ArrayList<>();
+        points.add(new Object[prefix]);
+        for (int i = 0; i < prefix; i++) {
+            List<Object[]> expanded = new ArrayList<>();
+            for (Object[] point : points) {
+                for (Object value : equalities.get(index.fields().get(i))) {
+                    Object[] next = point.clone();
+                    next[i] = value;
+                    expanded.add(next);
+                }
+            }
+            points = expanded;
+        }
+        return points;
+    }
+
+    // Whether walking the index after its equality prefix yields the sort order: FALSE forward, TRUE backward,
+    // null when it does not. Sort keys pinned by equality are constant and skipped; _id is the implicit tie-break.
+    private static Boolean sortDirection(SortedIndex index, int prefix, Map<String, Object> sort, Set<String> pinned) {
+        Boolean reverse = null;
+        int field = prefix;
+        for (Map.Entry<String, Object> key : sort.entrySet()) {
+            if (pinned.contains(key.getKey())) {
+                continue;
+            }
+            int direction = key.getValue() instanceof Number number && number.intValue() < 0 ? -1 : 1;
+            int indexDirection;
+            if (field < index.fields().size() && index.fields().get(field).equals(key.getKey())) {
+                indexDirection = index.direction(field);
+                field++;
+            } else if (key.getKey().equals("_id") && field == index.fields().size()) {
+                indexDirection = 1;
+                field++;
+            } else {
+                return null;
+            }
+            boolean backward = direction != indexDirection;
+            if (reverse != null && reverse != backward) {
+                return null;
+            }
+            reverse = backward;
+        }
+        return reverse == null ? Boolean.FALSE : reverse;
+    }
+
+    // ---- locking ----
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.skillshare.perf;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.ClientSession;
+import com.mongodb.client.MongoDatabase;
+import org.springframework.dao.support.PersistenceExceptionTranslator;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+
+// Hands MongoTemplate (and through it every repository) the in-memory database instead of a client connection
+public class InMemoryMongoDatabaseFactory implements MongoDatabaseFactory {
+
+    private final MongoDatabase database;
+    private final PersistenceExceptionTranslator exceptionTranslator = new MongoExceptionTranslator();
+
+    public InMemoryMongoDatabaseFactory(InMemoryMongoStore store) {
+        this.database = DriverAdapters.database(store, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase() {
+        return database;
+    }
+
+    @Override
+    public MongoDatabase getMongoDatabase(String dbName) {
+        if (!dbName.equals(database.getName())) {
+            throw new UnsupportedOperationException("The in-memory store only holds database " + database.getName());
+        }
+        return database;
+    }
+
+    @Override
+    public PersistenceExceptionTranslator getExceptionTranslator() {
+        return exceptionTranslator;
+    }
+
+    @Override
+    public ClientSession getSession(ClientSessionOptions options) {
+        throw new UnsupportedOperationException("Sessions are not supported in memory");
+    }
+
+    @Override
+    public MongoDatabaseFactory withSession(ClientSession session) {
+        throw new UnsupportedOperationException("Sessions are not supported in memory");
+    }
+}
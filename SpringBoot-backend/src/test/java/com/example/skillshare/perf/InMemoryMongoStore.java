@@ -0,0 +1,78 @@
+package com.example.skillshare.perf;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A single in-memory database: named collections plus the handful of server commands the app and its
+// health checks issue. Everything lives on the heap, so the store is empty again after a restart.
+public class InMemoryMongoStore {
+
+    private final String name;
+    private final Map<String, InMemoryCollection> collections = new ConcurrentHashMap<>();
+
+    public InMemoryMongoStore(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    InMemoryCollection collection(String collectionName) {
+        return collections.computeIfAbsent(collectionName, ignored -> new InMemoryCollection(name + "." + collectionName));
+    }
+
+    List<Object> collectionNames() {
+        return new ArrayList<>(collections.keySet());
+    }
+
+    void dropCollection(String collectionName) {
+        collections.remove(collectionName);
+    }
+
+    void drop() {
+        collections.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    Document runCommand(Document command) {
+        String commandName = command.keySet().iterator().next();
+        Object argument = command.get(commandName);
+        switch (commandName) {
+            case "hello":
+            case "isMaster":
+            case "ismaster":
+                return new Document("isWritablePrimary", true).append("maxWireVersion", 21).append("ok", 1.0);
+            case "ping":
+                return new Document("ok", 1.0);
+            case "buildInfo":
+            case "buildinfo":
+                return new Document("version", "7.0.0-in-memory").append("ok", 1.0);
+            case "collStats":
+                return collection(argument.toString()).stats();
+            case "count":
+                return new Document("n", (int) collection(argument.toString())
+                        .count((Map<String, Object>) command.get("query"), 0, 0)).append("ok", 1.0);
+            case "explain": {
+                Document explained = (Document) argument;
+                String verb = explained.keySet().iterator().next();
+                if (!verb.equals("find")) {
+                    throw InMemoryCollection.commandError(59, "CommandNotFound",
+                            "explain of " + verb + " is not supported in memory");
+                }
+                return collection(explained.getString("find")).explain(
+                        (Map<String, Object>) explained.get("filter"), (Map<String, Object>) explained.get("sort"));
+            }
+            case "collMod":
+                // Only TTL retuning goes through collMod here, and the in-memory store does not expire documents
+                return new Document("ok", 1.0);
+            default:
+                throw InMemoryCollection.commandError(59, "CommandNotFound",
+                        "no such command: '" + commandName + "' in memory");
+        }
+    }
+}
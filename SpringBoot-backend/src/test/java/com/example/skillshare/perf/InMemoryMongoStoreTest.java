@@ -0,0 +1,139 @@
+package com.example.skillshare.perf;
+
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.PostLike;
+import com.example.skillshare.repository.PostLikeRepository;
+import com.example.skillshare.repository.PostRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Drives the real MongoTemplate and repository proxies over the in-memory store
+class InMemoryMongoStoreTest {
+
+    private MongoTemplate mongoTemplate;
+    private PostRepository postRepository;
+    private PostLikeRepository postLikeRepository;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("perf_test")));
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> model : List.of(Post.class, PostLike.class)) {
+            resolver.resolveIndexFor(model).forEach(index -> mongoTemplate.indexOps(model).ensureIndex(index));
+        }
+
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        postRepository = factory.getRepository(PostRepository.class);
+        postLikeRepository = factory.getRepository(PostLikeRepository.class);
+    }
+
+    private Post post(String userId, long createdAt) {
+        Post post = new Post();
+        post.setUserId(userId);
+        post.setContent("post by " + userId + " at " + createdAt);
+        post.setCreatedAt(new Date(createdAt));
+        return postRepository.save(post);
+    }
+
+    @Test
+    void derivedQueriesPageInSortOrder() {
+        for (int i = 0; i < 30; i++) {
+            post(i % 3 == 0 ? "alice" : "bob", 1_000L * i);
+        }
+
+        Page<Post> page = postRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(1, 10));
+        assertEquals(30, page.getTotalElements());
+        assertEquals(19_000L, page.getContent().get(0).getCreatedAt().getTime());
+        assertEquals(10_000L, page.getContent().get(9).getCreatedAt().getTime());
+
+        Page<Post> alice = postRepository.findByUserIdOrderByCreatedAtDesc("alice", PageRequest.of(0, 4));
+        assertEquals(10, alice.getTotalElements());
+        assertEquals(List.of(27_000L, 24_000L, 21_000L, 18_000L),
+                alice.getContent().stream().map(post -> post.getCreatedAt().getTime()).toList());
+
+        List<Post> both = postRepository.findByUserIdInOrderByCreatedAtDesc(List.of("alice", "bob"),
+                PageRequest.of(0, 5));
+        assertEquals(List.of(29_000L, 28_000L, 27_000L, 26_000L, 25_000L),
+                both.stream().map(post -> post.getCreatedAt().getTime()).toList());
+    }
+
+    @Test
+    void uniqueIndexRejectsDuplicates() {
+        PostLike like = new PostLike();
+        like.setPostId("p1");
+        like.setUserId("u1");
+        postLikeRepository.save(like);
+
+        PostLike duplicate = new PostLike();
+        duplicate.setPostId("p1");
+        duplicate.setUserId("u1");
+        assertThrows(DuplicateKeyException.class, () -> postLikeRepository.insert(duplicate));
+
+        assertEquals(1, postLikeRepository.countByPostId("p1"));
+        assertEquals(1, postLikeRepository.deleteByPostIdAndUserId("p1", "u1"));
+        assertEquals(0, postLikeRepository.countByPostId("p1"));
+    }
+
+    @Test
+    void updatesAndUpsertsThroughTemplate() {
+        Post saved = post("alice", 1_000L);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(saved.getId())),
+                new Update().inc("likesCount", 2), Post.class);
+        assertEquals(2, postRepository.findById(saved.getId()).orElseThrow().getLikesCount());
+
+        Document counter = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is("views")),
+                new Update().inc("value", 1), FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, "counters");
+        assertNotNull(counter);
+        assertEquals(1, counter.get("value"));
+    }
+
+    @Test
+    void groupsWithAggregation() {
+        for (int i = 0; i < 5; i++) {
+            post(i < 3 ? "alice" : "bob", i);
+        }
+
+        List<Document> rows = mongoTemplate.aggregate(Aggregation.newAggregation(
+                        Aggregation.group("userId").count().as("posts"),
+                        Aggregation.match(Criteria.where("posts").gt(2))),
+                Post.class, Document.class).getMappedResults();
+        assertEquals(1, rows.size());
+        assertEquals("alice", rows.get(0).get("_id"));
+        assertEquals(3, rows.get(0).get("posts"));
+    }
+
+    @Test
+    void plansUseDeclaredIndexes() {
+        Document byUser = mongoTemplate.executeCommand(new Document("explain", new Document("find", "posts")
+                .append("filter", new Document("userId", "alice"))
+                .append("sort", new Document("createdAt", -1))));
+        assertTrue(byUser.toJson().contains("user_created_idx"), byUser.toJson());
+        assertTrue(!byUser.toJson().contains("SORT"), byUser.toJson());
+
+        Document unfiltered = mongoTemplate.executeCommand(new Document("explain", new Document("find", "posts")
+                .append("filter", new Document("content", "x"))));
+        assertTrue(unfiltered.toJson().contains("COLLSCAN"), unfiltered.toJson());
+    }
+}
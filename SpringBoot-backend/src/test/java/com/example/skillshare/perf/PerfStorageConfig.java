@@ -0,0 +1,25 @@
+package com.example.skillshare.perf;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+
+// "perf" profile: every repository and MongoTemplate call runs against the in-memory store, so the whole
+// controller stack can be load-tested on one box. Indexes come from MongoIndexManager as usual. Test sources
+// only: TestSkillshareApplication runs it, and skillshare-benchmarks gets it from the tests jar.
+@Configuration
+@Profile("perf")
+public class PerfStorageConfig {
+
+    @Bean
+    public InMemoryMongoStore inMemoryMongoStore(@Value("${spring.data.mongodb.database}") String database) {
+        return new InMemoryMongoStore(database);
+    }
+
+    @Bean
+    public MongoDatabaseFactory mongoDatabaseFactory(InMemoryMongoStore store) {
+        return new InMemoryMongoDatabaseFactory(store);
+    }
+}
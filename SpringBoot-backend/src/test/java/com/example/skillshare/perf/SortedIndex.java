@@ -0,0 +1,213 @@
+package com.example.skillshare.perf;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// A secondary index: one entry per (key values, _id), ordered by the declared field directions with _id as
+// the tie-break, so an equality prefix is a contiguous range that is already in index sort order
+final class SortedIndex {
+
+    // Range sentinels; they sort outside every real value whatever the field direction
+    private static final Object MIN = new Object();
+    private static final Object MAX = new Object();
+
+    record Entry(Object[] values, Object id) {
+    }
+
+    private final String name;
+    private final List<String> fields;
+    private final int[] directions;
+    private final boolean unique;
+    private final boolean sparse;
+    private final Document partialFilter;
+    private final Document spec;
+    private final NavigableSet<Entry> entries;
+    private volatile boolean multikey;
+
+    SortedIndex(String name, Document keys, boolean unique, boolean sparse, Document partialFilter,
+                Long expireAfterSeconds) {
+        this.name = name;
+        this.fields = new ArrayList<>(keys.keySet());
+        this.directions = new int[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            Object direction = keys.get(fields.get(i));
+            if (!(direction instanceof Number number)) {
+                throw new UnsupportedOperationException("Index type " + direction + " is not supported in memory");
+            }
+            directions[i] = number.intValue() < 0 ? -1 : 1;
+        }
+        this.unique = unique;
+        this.sparse = sparse;
+        this.partialFilter = partialFilter;
+        this.entries = new ConcurrentSkipListSet<>(comparator());
+
+        spec = new Document("v", 2).append("key", keys).append("name", name);
+        if (unique) {
+            spec.append("unique", true);
+        }
+        if (sparse) {
+            spec.append("sparse", true);
+        }
+        if (partialFilter != null) {
+            spec.append("partialFilterExpression", partialFilter);
+        }
+        if (expireAfterSeconds != null) {
+            spec.append("expireAfterSeconds", expireAfterSeconds);
+        }
+    }
+
+    private Comparator<Entry> comparator() {
+        return (left, right) -> {
+            for (int i = 0; i < directions.length; i++) {
+                int byField = compareKeyPart(left.values[i], right.values[i], directions[i]);
+                if (byField != 0) {
+                    return byField;
+                }
+            }
+            return compareKeyPart(left.id, right.id, 1);
+        };
+    }
+
+    private static int compareKeyPart(Object left, Object right, int direction) {
+        if (left == MIN || left == MAX || right == MIN || right == MAX) {
+            if (left == right) {
+                return 0;
+            }
+            return left == MIN || right == MAX ? -1 : 1;
+        }
+        return direction * BsonValues.compare(left, right);
+    }
+
+    String name() {
+        return name;
+    }
+
+    List<String> fields() {
+        return fields;
+    }
+
+    int direction(int field) {
+        return directions[field];
+    }
+
+    boolean isUnique() {
+        return unique;
+    }
+
+    boolean isMultikey() {
+        return multikey;
+    }
+
+    // Partial and sparse indexes leave documents out, so only an exact filter match could use them safely
+    boolean isComplete() {
+        return partialFilter == null && !sparse;
+    }
+
+    Document spec() {
+        return spec;
+    }
+
+    boolean sameKeys(Document keys) {
+        return BsonValues.compare(spec.get("key"), keys) == 0;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    void add(Document document) {
+        Object id = document.get("_id");
+        for (Object[] key : keysOf(document)) {
+            entries.add(new Entry(key, id));
+        }
+    }
+
+    void remove(Document document) {
+        Object id = document.get("_id");
+        for (Object[] key : keysOf(document)) {
+            entries.remove(new Entry(key, id));
+        }
+    }
+
+    // The key values of another document that would collide with this one under a unique index
+    Object[] conflictingKey(Document document) {
+        if (!unique) {
+            return null;
+        }
+        Object id = document.get("_id");
+        for (Object[] key : keysOf(document)) {
+            for (Entry existing : range(key, false)) {
+                if (!BsonValues.valueEquals(existing.id, id)) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Entries whose leading fields equal the given prefix, in index order (or reversed)
+    NavigableSet<Entry> range(Object[] prefix, boolean reverse) {
+        Object[] low = new Object[fields.size()];
+        Object[] high = new Object[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            low[i] = i < prefix.length ? prefix[i] : MIN;
+            high[i] = i < prefix.length ? prefix[i] : MAX;
+        }
+        NavigableSet<Entry> range = entries.subSet(new Entry(low, MIN), true, new Entry(high, MAX), true);
+        return reverse ? range.descendingSet() : range;
+    }
+
+    // One key per array element for a multikey field; missing fields index as null
+    private List<Object[]> keysOf(Document document) {
+        if (partialFilter != null && !DocumentMatcher.matches(document, partialFilter)) {
+            return Collections.emptyList();
+        }
+
+        List<Object[]> keys = new ArrayList<>();
+        keys.add(new Object[fields.size()]);
+        boolean allMissing = true;
+        for (int i = 0; i < fields.size(); i++) {
+            List<Object> values = new ArrayList<>();
+            for (Object value : DocumentMatcher.resolve(document, fields.get(i))) {
+                if (BsonValues.isList(value)) {
+                    multikey = true;
+                    List<?> elements = BsonValues.asList(value);
+                    values.addAll(elements.isEmpty() ? Collections.singletonList(null) : elements);
+                } else {
+                    allMissing &= value == BsonValues.MISSING;
+                    values.add(value == BsonValues.MISSING ? null : value);
+                }
+            }
+            if (values.size() > 1) {
+                multikey = true;
+            }
+
+            List<Object[]> expanded = new ArrayList<>(keys.size() * values.size());
+            for (Object[] key : keys) {
+                for (Object value : values) {
+                    Object[] next = key.clone();
+                    next[i] = value;
+                    expanded.add(next);
+                }
+            }
+            keys = expanded;
+        }
+        if (sparse && allMissing) {
+            return Collections.emptyList();
+        }
+        return keys;
+    }
+
+    static String defaultName(Map<String, Object> keys) {
+        List<String> parts = new ArrayList<>();
+        keys.forEach((field, direction) -> parts.add(field + "_" + direction));
+        return String.join("_", parts);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.skillshare.repository;
+
+import com.example.skillshare.config.MongoIndexManager;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Explains the query shape behind each repository method and asserts the planner picks an index.
+// Runs against a real server only, with the mongo-it Maven profile (or SKILLSHARE_TEST_MONGO_URI set by hand).
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "SKILLSHARE_TEST_MONGO_URI", matches = ".+")
+class RepositoryIndexUsageTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoIndexManager indexManager;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> System.getenv("SKILLSHARE_TEST_MONGO_URI"));
+    }
+
+    @BeforeEach
+    void ensureIndexes() {
+        assertTrue(indexManager.apply().isEmpty(), "index drift: " + indexManager.report());
+    }
+
+    @Test
+    void postQueriesUseIndexes() {
+        assertIndexed("posts", new Document(), new Document("createdAt", -1));
+        assertIndexed("posts", new Document("userId", "u1"), new Document("createdAt", -1));
+        assertIndexed("posts", new Document("userId", new Document("$in", List.of("u1", "u2"))),
+                new Document("createdAt", -1));
+        assertIndexed("posts", new Document("createdAt", new Document("$lt", new Date())),
+                new Document("createdAt", -1).append("_id", -1));
+    }
+
+    @Test
+    void commentAndLikeQueriesUseIndexes() {
+        assertIndexed("comments", new Document("postId", "p1"), new Document("createdAt", -1));
+        assertIndexed("post_likes", new Document("postId", "p1"), new Document("createdAt", -1));
+        assertIndexed("post_likes", new Document("userId", "u1").append("postId",
+                new Document("$in", List.of("p1", "p2"))), null);
+    }
+
+    @Test
+    void notificationQueriesUseIndexes() {
+        assertIndexed("notifications", new Document("userId", "u1"), new Document("createdAt", -1));
+        assertIndexed("notifications", new Document("userId", "u1").append("read", false), null);
+        assertIndexed("notifications", new Document("userId", "u1").append("type", "LIKE")
+                .append("entityId", "p1").append("groupStartedAt", new Document("$gte", new Date(0))), null);
+    }
+
+    @Test
+    void userPlanProgressAndTimelineQueriesUseIndexes() {
+        assertIndexed("users", new Document("email", "a@example.com"), null);
+        assertIndexed("learningPlans", new Document("userId", "u1"), new Document("createdAt", -1));
+        assertIndexed("learning_progress", new Document("userId", "u1"), null);
+        assertIndexed("learning_progress", new Document("skills", "java"), null);
+        assertIndexed("timeline_entries", new Document("ownerId", "u1"), new Document("createdAt", -1));
+        // The cursor page: the tie-break on postId must come from the index, not an in-memory SORT
+        String cursorPlan = assertIndexed("timeline_entries", new Document("ownerId", "u1").append("$or", List.of(
+                        new Document("createdAt", new Document("$lt", new Date())),
+                        new Document("createdAt", new Date()).append("postId", new Document("$lt", "p1")))),
+                new Document("createdAt", -1).append("postId", -1));
+        assertFalse(cursorPlan.contains("\"stage\": \"SORT\""), "timeline cursor sorts in memory: " + cursorPlan);
+        assertIndexed("timeline_entries", new Document("postId", "p1"), null);
+    }
+
+    private String assertIndexed(String collection, Document filter, Document sort) {
+        Document find = new Document("find", collection).append("filter", filter);
+        if (sort != null) {
+            find.append("sort", sort);
+        }
+        Document explain = mongoTemplate.getDb().runCommand(
+                new Document("explain", find).append("verbosity", "queryPlanner"));
+        String plan = ((Document) explain.get("queryPlanner")).get("winningPlan", Document.class).toJson();
+
+        assertFalse(plan.contains("COLLSCAN"), collection + " " + filter.toJson() + " scans: " + plan);
+        assertTrue(plan.contains("IXSCAN"), collection + " " + filter.toJson() + " has no index scan: " + plan);
+        return plan;
+    }
+}
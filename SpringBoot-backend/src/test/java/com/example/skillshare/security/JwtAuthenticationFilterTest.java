@@ -0,0 +1,108 @@
+package com.example.skillshare.security;
+
+import com.example.skillshare.model.User;
+import com.example.skillshare.security.oauth2.UserPrincipal;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private JwtTokenProvider tokenProvider;
+    private UserDetailsService userDetailsService;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", "test-secret-that-is-long-enough-for-hmac-sha-256");
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpirationInMs", 60_000);
+        tokenProvider.init();
+
+        userDetailsService = mock(UserDetailsService.class);
+        filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void principalIsBuiltFromClaimsWithoutUserLookup() throws Exception {
+        String token = tokenProvider.generateToken(UserPrincipal.create(user()));
+
+        filter.doFilter(request(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        assertEquals("u1", principal.getId());
+        assertEquals("alice@example.com", principal.getUsername());
+        assertEquals("ROLE_USER", principal.getAuthorities().iterator().next().getAuthority());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void legacyTokenWithoutClaimsFallsBackToLookup() throws Exception {
+        String token = tokenProvider.generateToken("alice@example.com");
+        when(userDetailsService.loadUserByUsername("alice@example.com")).thenReturn(UserPrincipal.create(user()));
+
+        filter.doFilter(request(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(userDetailsService).loadUserByUsername("alice@example.com");
+        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void tamperedTokenIsIgnored() throws Exception {
+        String token = tokenProvider.generateToken(UserPrincipal.create(user()));
+
+        filter.doFilter(request(token.substring(0, token.length() - 2) + "xx"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void repeatedTokenIsServedFromVerifiedCache() {
+        String token = tokenProvider.generateToken(UserPrincipal.create(user()));
+
+        Claims first = tokenProvider.getVerifiedClaims(token);
+        assertNotNull(first);
+        assertSame(first, tokenProvider.getVerifiedClaims(token));
+        assertNull(tokenProvider.getVerifiedClaims(token.substring(0, token.length() - 2) + "xx"));
+    }
+
+    private static MockHttpServletRequest request(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId("u1");
+        user.setEmail("alice@example.com");
+        user.setRole("USER");
+        return user;
+    }
+}
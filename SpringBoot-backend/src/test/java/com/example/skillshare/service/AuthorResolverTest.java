@@ -0,0 +1,145 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.controller.PostController;
+import com.example.skillshare.model.Comment;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.User;
+import com.example.skillshare.repository.CommentRepository;
+import com.example.skillshare.repository.PostRepository;
+import com.example.skillshare.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class AuthorResolverTest {
+
+    private UserRepository userRepository;
+    private AuthorResolver authorResolver;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        authorResolver = new AuthorResolver(userRepository, new UserSummaryCache(100, 60), mock(ImageVariantService.class));
+
+        when(userRepository.findSummariesByIdIn(anyCollection()))
+                .thenReturn(List.of(user("u1", "Alice"), user("u2", "Bob"), user("u3", "Carol")));
+    }
+
+    @Test
+    void postPageLoadIssuesOneUserQuery() {
+        PostService postService = mock(PostService.class);
+        PostController controller = new PostController(postService, mock(CommentService.class),
+                mock(FileStorageService.class), authorResolver, mock(PostLikeService.class),
+                mock(ExploreService.class), mock(ImageVariantService.class));
+
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Post post = new Post();
+            post.setId("p" + i);
+            post.setUserId("u" + (i % 3 + 1));
+            posts.add(post);
+        }
+        when(postService.getAllPosts(any(Pageable.class))).thenReturn(new PageImpl<>(posts));
+
+        @SuppressWarnings("unchecked")
+        Page<Post> page = (Page<Post>) controller.getAllPosts(null, 0, 50, null, null).getBody();
+
+        verify(userRepository, times(1)).findSummariesByIdIn(anyCollection());
+        verifyNoMoreInteractions(userRepository);
+        assertEquals("Alice", page.getContent().get(0).getUserName());
+        assertEquals("Bob", page.getContent().get(1).getUserName());
+        assertEquals("alice", page.getContent().get(3).getUsername());
+    }
+
+    @Test
+    void commentPageLoadIssuesOneUserQuery() {
+        CommentRepository commentRepository = mock(CommentRepository.class);
+        CommentService commentService = new CommentService(commentRepository, mock(PostRepository.class),
+                userRepository, mock(NotificationService.class), authorResolver, mock(ExploreService.class),
+                mock(PostCounterService.class));
+        PostController controller = new PostController(mock(PostService.class), commentService,
+                mock(FileStorageService.class), authorResolver, mock(PostLikeService.class),
+                mock(ExploreService.class), mock(ImageVariantService.class));
+
+        List<Comment> comments = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Comment comment = new Comment();
+            comment.setId("c" + i);
+            comment.setUserId(i % 2 == 0 ? "u1" : "u3");
+            comments.add(comment);
+        }
+        Pageable pageable = PageRequest.of(0, 20);
+        when(commentRepository.findByPostIdOrderByCreatedAtDesc(eq("p1"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(comments, pageable, comments.size()));
+
+        Map<String, Object> response = controller.getPostComments("p1", 0, 20).getBody();
+
+        verify(userRepository, times(1)).findSummariesByIdIn(anyCollection());
+        verifyNoMoreInteractions(userRepository);
+        @SuppressWarnings("unchecked")
+        List<Comment> content = (List<Comment>) response.get("content");
+        assertEquals("Carol", content.get(1).getUserName());
+        assertEquals("carol", content.get(1).getUsername());
+    }
+
+    @Test
+    void cachedAuthorsAreNotQueriedAgainUntilInvalidated() {
+        UserSummaryCache cache = new UserSummaryCache(100, 60);
+        AuthorResolver resolver = new AuthorResolver(userRepository, cache, mock(ImageVariantService.class));
+
+        resolver.resolve(List.of("u1", "u2"));
+        resolver.resolve(List.of("u1", "u2"));
+        verify(userRepository, times(1)).findSummariesByIdIn(anyCollection());
+
+        cache.invalidate("u1");
+        resolver.resolve(List.of("u1", "u2"));
+        verify(userRepository, times(2)).findSummariesByIdIn(anyCollection());
+        assertEquals(3L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("invalidations"));
+    }
+
+    // Overflow drops the least recently read authors down to nine tenths of the bound
+    @Test
+    void overflowEvictsTheLeastRecentlyReadAuthors() throws InterruptedException {
+        UserSummaryCache cache = new UserSummaryCache(10, 60);
+        for (int i = 0; i < 10; i++) {
+            cache.putAll(List.of(user("u" + i, "User" + i)), cache.currentEpoch());
+        }
+        Thread.sleep(5);
+        cache.getAll(List.of("u0", "u1", "u2", "u3", "u4", "u5", "u6", "u7"));
+        Thread.sleep(5);
+
+        cache.putAll(List.of(user("u10", "User10")), cache.currentEpoch());
+
+        assertEquals(9, cache.stats().get("size"));
+        assertEquals(2L, cache.stats().get("evictions"));
+        assertEquals(Set.of("u0", "u1", "u2", "u3", "u4", "u5", "u6", "u7", "u10"), cache.getAll(
+                List.of("u0", "u1", "u2", "u3", "u4", "u5", "u6", "u7", "u8", "u9", "u10")).keySet());
+    }
+
+    private static User user(String id, String name) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setUsername(name.toLowerCase());
+        return user;
+    }
+}
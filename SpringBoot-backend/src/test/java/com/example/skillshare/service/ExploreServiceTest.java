@@ -0,0 +1,115 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Post;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import com.example.skillshare.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Explore ranking over the in-memory store
+class ExploreServiceTest {
+
+    private static final long HOUR = 3_600_000;
+
+    private MongoTemplate mongoTemplate;
+    private ExploreService exploreService;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("explore_test")));
+        PostRepository postRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(PostRepository.class);
+        exploreService = new ExploreService(postRepository, mongoTemplate);
+        ReflectionTestUtils.setField(exploreService, "decay", ExploreService.Decay.GRAVITY);
+        ReflectionTestUtils.setField(exploreService, "gravity", 1.8);
+        ReflectionTestUtils.setField(exploreService, "halfLifeHours", 24d);
+        ReflectionTestUtils.setField(exploreService, "likeWeight", 1d);
+        ReflectionTestUtils.setField(exploreService, "commentWeight", 3d);
+        ReflectionTestUtils.setField(exploreService, "windowHours", 168L);
+        ReflectionTestUtils.setField(exploreService, "maxCandidates", 1000);
+        ReflectionTestUtils.setField(exploreService, "topK", 200);
+        now = System.currentTimeMillis();
+    }
+
+    private String post(long ageMillis, int likes, int comments) {
+        Post post = new Post();
+        post.setCreatedAt(new Date(now - ageMillis));
+        post.setLikesCount(likes);
+        post.setCommentsCount(comments);
+        return mongoTemplate.insert(post).getId();
+    }
+
+    private List<String> explore() {
+        return explore(PageRequest.of(0, 50)).getContent().stream()
+                .map(Post::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Page<Post> explore(PageRequest pageable) {
+        return exploreService.getExplorePosts(pageable);
+    }
+
+    @Test
+    void postsRankByWeightedEngagement() {
+        String quiet = post(HOUR, 0, 0);
+        String liked = post(HOUR, 5, 0);
+        String discussed = post(HOUR, 1, 1);
+
+        assertEquals(List.of(liked, discussed, quiet), explore());
+
+        // Engagement recorded after seeding moves a post on the next refresh
+        exploreService.recordComment(quiet, 3);
+        exploreService.refresh();
+        assertEquals(List.of(quiet, liked, discussed), explore());
+    }
+
+    // Under GRAVITY a fresh post outranks a busier ten-hour-old one; a day's half-life keeps the older ahead
+    @Test
+    void decayModeDecidesBetweenFreshAndBusy() {
+        String fresh = post(0, 1, 0);
+        String busy = post(10 * HOUR, 10, 0);
+
+        assertEquals(List.of(fresh, busy), explore());
+
+        ReflectionTestUtils.setField(exploreService, "decay", ExploreService.Decay.EXPONENTIAL);
+        exploreService.refresh();
+        assertEquals(List.of(busy, fresh), explore());
+    }
+
+    @Test
+    void postsOutsideTheWindowAreNotRanked() {
+        String recent = post(HOUR, 0, 0);
+        post(200 * HOUR, 100, 100);
+
+        assertEquals(List.of(recent), explore());
+    }
+
+    @Test
+    void onlyTheTopKAreKeptAndPaged() {
+        ReflectionTestUtils.setField(exploreService, "topK", 3);
+        List<String> byLikes = new ArrayList<>();
+        for (int likes = 0; likes < 10; likes++) {
+            byLikes.add(0, post(HOUR, likes, 0));
+        }
+
+        Page<Post> first = explore(PageRequest.of(0, 2));
+        Page<Post> second = explore(PageRequest.of(1, 2));
+
+        assertEquals(3, first.getTotalElements());
+        assertEquals(byLikes.subList(0, 2), first.getContent().stream().map(Post::getId).collect(Collectors.toList()));
+        assertEquals(byLikes.subList(2, 3), second.getContent().stream().map(Post::getId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileStorageServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private MongoTemplate mongoTemplate;
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        fileStorageService = new FileStorageService(mongoTemplate, mock(ImageVariantService.class), 4, 10);
+        ReflectionTestUtils.setField(fileStorageService, "uploadDir", uploadDir.toString());
+    }
+
+    private static MockMultipartFile upload(String name, String content) {
+        return new MockMultipartFile("file", name, "image/png", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Path> storedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void identicalContentIsStoredOnceUnderItsHash() throws Exception {
+        String first = fileStorageService.storeFile(upload("screenshot.PNG", "same bytes"));
+        String second = fileStorageService.storeFile(upload("repost.png", "same bytes"));
+        String other = fileStorageService.storeFile(upload("other.png", "other bytes"));
+
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("same bytes".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("/uploads/" + hash + ".png", first);
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+
+        // Two distinct files and no temp files left behind
+        assertEquals(2, storedFiles().size());
+        verify(mongoTemplate, times(3)).upsert(any(Query.class), any(Update.class), eq(StoredFile.class));
+    }
+
+    @Test
+    void unsafeExtensionsAreDropped() {
+        String url = fileStorageService.storeFile(upload("evil.png/../../x.j$p", "bytes"));
+        assertTrue(url.matches("/uploads/[0-9a-f]{64}"), url);
+    }
+
+    @Test
+    void onlyContentAddressedUrlsAreReferenced() {
+        fileStorageService.addReferences(List.of("https://cdn.example.com/a.png"), "post:p1");
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(StoredFile.class));
+
+        fileStorageService.addReferences(List.of("/uploads/abc.png", "https://cdn.example.com/a.png"), "post:p1");
+        verify(mongoTemplate).updateMulti(any(Query.class), any(Update.class), eq(StoredFile.class));
+    }
+
+    @Test
+    void aFailedFileDiscardsTheOthersStoredByTheSameCall() throws Exception {
+        when(mongoTemplate.findAndRemove(any(Query.class), eq(StoredFile.class))).thenReturn(new StoredFile());
+        RuntimeException broken = new RuntimeException("client went away");
+        MockMultipartFile failing = new MockMultipartFile("file", "c.png", "image/png", new byte[]{1}) {
+            @Override
+            public InputStream getInputStream() {
+                throw broken;
+            }
+        };
+
+        RuntimeException thrown = assertThrows(RuntimeException.class, () -> fileStorageService.storeAll(
+                List.of(upload("a.png", "a"), failing, upload("b.png", "b")), null));
+
+        assertSame(broken, thrown);
+        verify(mongoTemplate, times(2)).findAndRemove(any(Query.class), eq(StoredFile.class));
+        assertTrue(storedFiles().isEmpty(), storedFiles().toString());
+    }
+
+    @Test
+    void discardKeepsFilesThatWereClaimedOrAlreadyThere() throws Exception {
+        List<FileStorageService.StoredUpload> first = fileStorageService.storeAll(List.of(upload("a.png", "a")), null);
+        List<FileStorageService.StoredUpload> again = fileStorageService.storeAll(List.of(upload("a.png", "a")), null);
+        assertTrue(first.get(0).created());
+        assertFalse(again.get(0).created());
+
+        // The second upload is a dedup hit, so it never removes the file
+        fileStorageService.discard(again);
+        verify(mongoTemplate, never()).findAndRemove(any(Query.class), eq(StoredFile.class));
+
+        // The record no longer matches (referenced or re-uploaded), so the file stays
+        fileStorageService.discard(first);
+        verify(mongoTemplate).findAndRemove(any(Query.class), eq(StoredFile.class));
+        assertEquals(1, storedFiles().size());
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Comment;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.StoredFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageVariantServiceTest {
+
+    private static final String HASH = "b".repeat(64);
+
+    @TempDir
+    Path uploadDir;
+
+    private MongoTemplate mongoTemplate;
+    private ImageVariantService imageVariantService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        imageVariantService = new ImageVariantService(mongoTemplate, uploadDir.toString(), 128, 1280,
+                24_000_000, 1, 10);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        imageVariantService.shutdown();
+    }
+
+    private void writeImage(String fileName, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(image, fileName.endsWith(".png") ? "png" : "jpeg", uploadDir.resolve(fileName).toFile());
+    }
+
+    @Test
+    void variantsBoundTheLongestSideAndAreRecorded() throws Exception {
+        writeImage(HASH + ".jpg", 2000, 1000);
+
+        imageVariantService.generate(HASH + ".jpg", ImageVariantService.Usage.FEED);
+
+        BufferedImage variant = ImageIO.read(uploadDir.resolve(HASH + "_1280.jpg").toFile());
+        assertEquals(1280, variant.getWidth());
+        assertEquals(640, variant.getHeight());
+        // Only the size responses are fitted to is made
+        assertFalse(Files.exists(uploadDir.resolve(HASH + "_640.jpg")));
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(StoredFile.class));
+    }
+
+    // 6001x3001 decodes as 3001x1501 for a 1280 target; the variants still come out at the exact size
+    @Test
+    void largeOriginalsAreDecodedSubsampled() throws Exception {
+        writeImage(HASH + ".png", 6001, 3001);
+
+        imageVariantService.generate(HASH + ".png", ImageVariantService.Usage.FEED);
+
+        BufferedImage large = ImageIO.read(uploadDir.resolve(HASH + "_1280.png").toFile());
+        assertEquals(1280, large.getWidth());
+        assertEquals(640, large.getHeight());
+        assertEquals(2, ImageVariantService.subsampling(6001, 1280));
+        assertEquals(1, ImageVariantService.subsampling(2000, 1280));
+    }
+
+    @Test
+    void imagesSmallerThanEverySizeAreLeftAlone() throws Exception {
+        writeImage(HASH + ".png", 100, 60);
+
+        imageVariantService.generate(HASH + ".png", ImageVariantService.Usage.FEED);
+
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(1, files.count());
+        }
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(StoredFile.class));
+    }
+
+    // A phone photo stored landscape with orientation 6 (rotate 90 clockwise): the variant is portrait, and
+    // the left edge of the stored pixels ends up on top
+    @Test
+    void jpegsAreTurnedUprightFromTheirExifOrientation() throws Exception {
+        BufferedImage stored = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = stored.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 200, 200);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(200, 0, 200, 200);
+        graphics.dispose();
+        Files.write(uploadDir.resolve(HASH + ".jpg"), withOrientation(stored, 6));
+
+        imageVariantService.generate(HASH + ".jpg", ImageVariantService.Usage.AVATAR);
+
+        BufferedImage variant = ImageIO.read(uploadDir.resolve(HASH + "_128.jpg").toFile());
+        assertEquals(64, variant.getWidth());
+        assertEquals(128, variant.getHeight());
+        assertTrue(new Color(variant.getRGB(32, 16)).getRed() > 200, "top should be red");
+        assertTrue(new Color(variant.getRGB(32, 112)).getBlue() > 200, "bottom should be blue");
+    }
+
+    @Test
+    void orientationTagIsReadInEitherByteOrder() {
+        assertEquals(6, ImageVariantService.exifOrientation(exif(6, false)));
+        assertEquals(8, ImageVariantService.exifOrientation(exif(8, true)));
+        assertEquals(0, ImageVariantService.exifOrientation("XMP\0".getBytes()));
+    }
+
+    // Encodes a JPEG and inserts an EXIF APP1 segment after the JFIF APP0 the writer emits
+    private static byte[] withOrientation(BufferedImage image, int orientation) throws Exception {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", encoded);
+        byte[] jpeg = encoded.toByteArray();
+        int afterApp0 = 4 + (((jpeg[4] & 0xFF) << 8) | (jpeg[5] & 0xFF));
+        byte[] payload = exif(orientation, false);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, afterApp0);
+        out.write(new byte[] {(byte) 0xFF, (byte) 0xE1, (byte) ((payload.length + 2) >> 8),
+                (byte) (payload.length + 2)});
+        out.write(payload);
+        out.write(jpeg, afterApp0, jpeg.length - afterApp0);
+        return out.toByteArray();
+    }
+
+    // "Exif\0\0", a TIFF header and an IFD0 holding only the Orientation tag
+    private static byte[] exif(int orientation, boolean littleEndian) {
+        byte[] tiff = littleEndian
+                ? new byte[] {'I', 'I', 42, 0, 8, 0, 0, 0, 1, 0, 0x12, 0x01, 3, 0, 1, 0, 0, 0,
+                        (byte) orientation, 0, 0, 0, 0, 0, 0, 0}
+                : new byte[] {'M', 'M', 0, 42, 0, 0, 0, 8, 0, 1, 0x01, 0x12, 0, 3, 0, 0, 0, 1,
+                        0, (byte) orientation, 0, 0, 0, 0, 0, 0};
+        byte[] payload = new byte[6 + tiff.length];
+        System.arraycopy("Exif\0\0".getBytes(), 0, payload, 0, 6);
+        System.arraycopy(tiff, 0, payload, 6, tiff.length);
+        return payload;
+    }
+
+    @Test
+    void responsesGetTheSmallestVariantCoveringTheDisplaySize() {
+        String url = "/uploads/" + HASH + ".jpg";
+        assertEquals("/uploads/" + HASH + "_1280.jpg", ImageVariantService.fit(url, List.of(640, 1280), 1280));
+        assertEquals("/uploads/" + HASH + "_128.jpg", ImageVariantService.fit(url, List.of(64, 128, 640), 100));
+        // Only a smaller variant means the original sits between it and the display size
+        assertEquals(url, ImageVariantService.fit(url, List.of(640), 1280));
+        assertEquals(url, ImageVariantService.fit(url, null, 1280));
+    }
+
+    @Test
+    void postsGetPreviewsAndAvatarVariantsFromOneLookup() {
+        StoredFile media = new StoredFile();
+        media.setId(HASH + ".jpg");
+        media.setVariants(List.of(640, 1280));
+        when(mongoTemplate.find(any(Query.class), eq(StoredFile.class))).thenReturn(List.of(media));
+
+        Post post = new Post();
+        post.setMediaUrls(List.of("/uploads/" + HASH + ".jpg", "/uploads/" + "c".repeat(64) + ".mp4"));
+        post.setUserProfilePicture("https://lh3.googleusercontent.com/a/photo");
+
+        imageVariantService.applyVariants(List.of(post));
+
+        assertEquals(List.of("/uploads/" + HASH + "_1280.jpg", "/uploads/" + "c".repeat(64) + ".mp4"),
+                post.getMediaPreviewUrls());
+        assertEquals("https://lh3.googleusercontent.com/a/photo", post.getUserProfilePicture());
+        assertFalse(post.getMediaUrls().get(0).contains("_"));
+        verify(mongoTemplate).find(any(Query.class), eq(StoredFile.class));
+    }
+
+    @Test
+    void commentAuthorsGetTheAvatarVariant() {
+        StoredFile avatar = new StoredFile();
+        avatar.setId(HASH + ".png");
+        avatar.setVariants(List.of(128));
+        when(mongoTemplate.find(any(Query.class), eq(StoredFile.class))).thenReturn(List.of(avatar));
+        Comment uploaded = new Comment();
+        uploaded.setUserProfilePicture("/uploads/" + HASH + ".png");
+        Comment external = new Comment();
+        external.setUserProfilePicture("https://lh3.googleusercontent.com/a/photo");
+
+        imageVariantService.applyAvatarVariants(List.of(uploaded, external), Comment::getUserProfilePicture,
+                Comment::setUserProfilePicture);
+
+        assertEquals("/uploads/" + HASH + "_128.png", uploaded.getUserProfilePicture());
+        assertEquals("https://lh3.googleusercontent.com/a/photo", external.getUserProfilePicture());
+    }
+
+    @Test
+    void retiredSizesAreStillDeletedWithTheOriginal() {
+        assertTrue(imageVariantService.variantFileNames(HASH + ".jpg").containsAll(List.of(
+                HASH + "_64.jpg", HASH + "_128.jpg", HASH + "_640.jpg", HASH + "_1280.jpg")));
+    }
+}
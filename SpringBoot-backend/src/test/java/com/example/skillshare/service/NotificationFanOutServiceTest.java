@@ -0,0 +1,65 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.repository.NotificationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationFanOutServiceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void followersAreWrittenInChunkedInserts() throws Exception {
+        NotificationRepository notificationRepository = mock(NotificationRepository.class);
+        NotificationStreamService streamService = mock(NotificationStreamService.class);
+        NotificationFanOutService fanOutService = new NotificationFanOutService(notificationRepository,
+                mock(NotificationInboxService.class), streamService, new BusinessMetrics(new SimpleMeterRegistry()),
+                500, 2, 10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        fanOutService.bindTo(registry);
+        when(notificationRepository.insert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<String> followers = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            followers.add("f" + i);
+        }
+        Notification template = new Notification();
+        template.setSenderId("u1");
+        template.setType("LEARNING_UPDATE");
+        template.setEntityId("plan1");
+
+        fanOutService.fanOut(followers, template);
+        fanOutService.shutdown();
+
+        ArgumentCaptor<List<Notification>> batches = ArgumentCaptor.forClass(List.class);
+        verify(notificationRepository, times(3)).insert(batches.capture());
+
+        Set<String> recipients = new HashSet<>();
+        for (List<Notification> batch : batches.getAllValues()) {
+            for (Notification notification : batch) {
+                assertEquals("plan1", notification.getEntityId());
+                recipients.add(notification.getUserId());
+            }
+        }
+        assertEquals(1200, recipients.size());
+        verify(streamService, times(1200)).publish(any(Notification.class));
+        assertEquals(0L, fanOutService.stats().get("pendingNotifications"));
+        assertEquals(3L, fanOutService.stats().get("batches"));
+        assertEquals(3L, registry.get("skillshare.notifications.fanout.batch").tag("outcome", "success").timer().count());
+        assertEquals(0.0, registry.get("skillshare.notifications.fanout.pending").gauge().value());
+    }
+}
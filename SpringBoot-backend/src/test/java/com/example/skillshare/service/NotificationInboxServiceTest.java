@@ -0,0 +1,127 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.NotificationInbox;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+// Unread-count reconciliation over the in-memory store
+class NotificationInboxServiceTest {
+
+    private static final long MINUTE = 60_000;
+
+    private MongoTemplate mongoTemplate;
+    private NotificationInboxService inboxService;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("inbox_test")));
+        inboxService = new NotificationInboxService(mongoTemplate);
+        now = System.currentTimeMillis();
+    }
+
+    private NotificationInbox inbox(String userId, long unreadCount, Date lastReadAt, long updatedAgoMillis) {
+        return mongoTemplate.insert(new NotificationInbox(userId, unreadCount, lastReadAt,
+                new Date(now - updatedAgoMillis)));
+    }
+
+    private void notification(String userId, long insertedAgoMillis, boolean read) {
+        Date at = new Date(now - insertedAgoMillis);
+        Notification notification = new Notification();
+        notification.setId(new ObjectId(at).toHexString());
+        notification.setUserId(userId);
+        notification.setCreatedAt(at);
+        notification.setRead(read);
+        mongoTemplate.insert(notification);
+    }
+
+    private long unreadCount(String userId) {
+        return mongoTemplate.findById(userId, NotificationInbox.class).getUnreadCount();
+    }
+
+    @Test
+    void repairsQuietInboxesTouchedSinceTheLastRun() {
+        NotificationInbox drifted = inbox("a", 5, new Date(now - 20 * MINUTE), 10 * MINUTE);
+        notification("a", 30 * MINUTE, false); // under the watermark
+        notification("a", 15 * MINUTE, true);  // read on its own
+        notification("a", 15 * MINUTE, false);
+        notification("a", 0, false);           // inserted after the cutoff; its increment is still to come
+
+        inbox("busy", 7, null, 10_000);        // written within the settle period
+        inbox("old", 7, null, 3 * 60 * MINUTE); // not touched since before the look-back
+        inbox("right", 1, null, 10 * MINUTE);
+        notification("right", 12 * MINUTE, false);
+
+        assertEquals(1, inboxService.reconcileUnreadCounts());
+
+        assertEquals(1, unreadCount("a"));
+        assertEquals(drifted.getUpdatedAt(), mongoTemplate.findById("a", NotificationInbox.class).getUpdatedAt());
+        assertEquals(7, unreadCount("busy"));
+        assertEquals(7, unreadCount("old"));
+        assertEquals(1, unreadCount("right"));
+    }
+
+    @Test
+    void theNextRunStartsWhereTheLastStopped() {
+        inbox("a", 3, null, 10 * MINUTE);
+        assertEquals(1, inboxService.reconcileUnreadCounts());
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is("a")), Update.update("unreadCount", 9),
+                NotificationInbox.class);
+        assertEquals(0, inboxService.reconcileUnreadCounts());
+        assertEquals(9, unreadCount("a"));
+    }
+
+    // An increment that lands after the counts were read must not be overwritten by the stale repair
+    @Test
+    void aWriteBetweenReadAndRepairWins() {
+        inbox("a", 3, null, 10 * MINUTE);
+        MongoTemplate racing = spy(mongoTemplate);
+        doAnswer(invocation -> {
+            inboxService.incrementUnread("a");
+            return invocation.callRealMethod();
+        }).when(racing).aggregate(any(Aggregation.class), eq(Notification.class), eq(Document.class));
+
+        new NotificationInboxService(racing).reconcileUnreadCounts();
+
+        assertEquals(4, unreadCount("a"));
+    }
+
+    // Unread notifications from before the counter existed have no inbox for reconcile to visit
+    @Test
+    void backfillCreatesMissingInboxesFromUnreadNotifications() {
+        notification("legacy", 3 * 60 * MINUTE, false);
+        notification("legacy", 2 * 60 * MINUTE, false);
+        notification("legacy", 2 * 60 * MINUTE, true);
+        notification("tracked", 60 * MINUTE, false);
+        inbox("tracked", 4, null, 10 * MINUTE);
+
+        assertEquals(1, inboxService.backfillMissingInboxes());
+
+        assertEquals(2, inboxService.getUnreadCount("legacy"));
+        assertEquals(4, unreadCount("tracked"));
+        assertEquals(0, inboxService.backfillMissingInboxes());
+
+        // Stamped as touched now, so the next reconcile rechecks it
+        NotificationInbox backfilled = mongoTemplate.findById("legacy", NotificationInbox.class);
+        assertEquals(now, backfilled.getUpdatedAt().getTime(), 5_000);
+    }
+}
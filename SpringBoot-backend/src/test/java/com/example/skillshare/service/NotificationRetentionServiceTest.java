@@ -0,0 +1,102 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.NotificationInbox;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationRetentionServiceTest {
+
+    @Test
+    void watermarkReadNotificationsExpireAtTheEarlierOfWatermarkAndTtl() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        NotificationInboxService inboxService = mock(NotificationInboxService.class);
+        NotificationRetentionService retentionService = new NotificationRetentionService(mongoTemplate, inboxService);
+
+        long now = System.currentTimeMillis();
+        Date recentWatermark = new Date(now - TimeUnit.DAYS.toMillis(1));
+        Date oldWatermark = new Date(now - TimeUnit.DAYS.toMillis(60));
+        when(mongoTemplate.stream(any(Query.class), eq(NotificationInbox.class))).thenReturn(Stream.of(
+                new NotificationInbox("u1", 0, recentWatermark, new Date()),
+                new NotificationInbox("u2", 0, oldWatermark, new Date())), Stream.empty());
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Notification.class)).thenReturn(bulk);
+        when(bulk.execute()).thenReturn(BulkWriteResult.acknowledged(0, 0, 7, null, List.of(), List.of()));
+        when(mongoTemplate.getCollectionName(Notification.class)).thenReturn("notifications");
+        when(mongoTemplate.executeCommand(any(Document.class))).thenReturn(new Document("count", 100));
+
+        Map<String, Object> run = retentionService.compact();
+
+        ArgumentCaptor<Query> removals = ArgumentCaptor.forClass(Query.class);
+        verify(bulk, times(2)).remove(removals.capture());
+        Date u1Cutoff = cutoff(removals.getAllValues().get(0));
+        Date u2Cutoff = cutoff(removals.getAllValues().get(1));
+        // u1 read recently, so only notifications past the 30 day TTL go; u2's watermark is older than that
+        assertEquals(TimeUnit.DAYS.toMillis(30), now - u1Cutoff.getTime(), 5_000);
+        assertEquals(oldWatermark, u2Cutoff);
+        assertEquals(7L, run.get("expiredRead"));
+    }
+
+    // Over-quota users come from the materialized counters; only the oldest unread past the quota go
+    @Test
+    void unreadBacklogsAreTrimmedToTheQuotaForOverQuotaInboxes() {
+        MongoTemplate mongoTemplate = new MongoTemplate(
+                new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("retention_test")));
+        NotificationInboxService inboxService = new NotificationInboxService(mongoTemplate);
+        NotificationRetentionService retentionService = new NotificationRetentionService(mongoTemplate, inboxService);
+        ReflectionTestUtils.setField(retentionService, "maxUnreadPerUser", 3);
+
+        long now = System.currentTimeMillis();
+        Date watermark = new Date(now - 60_000);
+        mongoTemplate.insert(new NotificationInbox("over", 5, watermark, new Date()));
+        mongoTemplate.insert(new NotificationInbox("under", 2, null, new Date()));
+        unread(mongoTemplate, "over", now - 120_000); // already covered by the watermark
+        for (int i = 5; i >= 1; i--) {
+            unread(mongoTemplate, "over", now - i * 1_000);
+        }
+        unread(mongoTemplate, "under", now - 5_000);
+        unread(mongoTemplate, "under", now - 4_000);
+
+        Map<String, Object> run = retentionService.compact();
+
+        assertEquals(2L, run.get("trimmedUnread"));
+        assertEquals(1L, run.get("usersTrimmed"));
+        assertEquals(3, inboxService.getUnreadCount("over"));
+        assertEquals(4, mongoTemplate.count(Query.query(Criteria.where("userId").is("over")), Notification.class));
+        assertEquals(2, mongoTemplate.count(Query.query(Criteria.where("userId").is("under")), Notification.class));
+    }
+
+    private static void unread(MongoTemplate mongoTemplate, String userId, long createdAt) {
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setCreatedAt(new Date(createdAt));
+        mongoTemplate.insert(notification);
+    }
+
+    private static Date cutoff(Query query) {
+        return (Date) ((Document) query.getQueryObject().get("createdAt")).get("$lte");
+    }
+}
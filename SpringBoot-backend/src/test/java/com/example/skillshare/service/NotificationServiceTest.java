@@ -0,0 +1,227 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.NotificationInbox;
+import com.example.skillshare.model.User;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import com.example.skillshare.repository.NotificationRepository;
+import com.example.skillshare.repository.UserRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class NotificationServiceTest {
+
+    private NotificationRepository notificationRepository;
+    private NotificationInboxService inboxService;
+    private MongoTemplate mongoTemplate;
+    private NotificationService notificationService;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        inboxService = mock(NotificationInboxService.class);
+        mongoTemplate = mock(MongoTemplate.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        notificationService = new NotificationService(notificationRepository, userRepository,
+                mock(NotificationStreamService.class), inboxService, mongoTemplate);
+
+        User user = new User();
+        user.setId("u1");
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(user));
+        when(notificationRepository.save(any(Notification.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(inboxService.getInbox("u1")).thenReturn(inbox(null));
+    }
+
+    @Test
+    void createIncrementsRecipientCounter() {
+        Notification notification = new Notification();
+        notification.setUserId("u1");
+
+        notificationService.createNotification(notification);
+
+        verify(inboxService).incrementUnread("u1");
+    }
+
+    // Two concurrent marks both load the notification unread; the conditional update lets one of them through
+    @Test
+    void markingReadTwiceDecrementsOnce() {
+        when(notificationRepository.findById("n1"))
+                .thenAnswer(invocation -> Optional.of(notification("n1", new Date())));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Notification.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null), UpdateResult.acknowledged(0, 0L, null));
+
+        assertTrue(notificationService.markNotificationAsRead("alice@example.com", "n1").isRead());
+        assertTrue(notificationService.markNotificationAsRead("alice@example.com", "n1").isRead());
+
+        verify(inboxService, times(1)).decrementUnread("u1");
+        verify(mongoTemplate, times(2)).updateFirst(
+                eq(Query.query(Criteria.where("id").is("n1").and("read").is(false))),
+                eq(Update.update("read", true)), eq(Notification.class));
+        verify(notificationRepository, never()).save(any(Notification.class));
+    }
+
+    @Test
+    void markAllReadIsOneInboxWrite() {
+        notificationService.markAllNotificationsAsRead("u1");
+
+        verify(inboxService).markAllRead("u1");
+        verifyNoInteractions(notificationRepository);
+    }
+
+    @Test
+    void notificationsBelowWatermarkReadAsRead() {
+        when(inboxService.getInbox("u1")).thenReturn(inbox(new Date(2_000)));
+        Notification older = notification("n1", new Date(1_000));
+        Notification newer = notification("n2", new Date(3_000));
+        when(notificationRepository.findByUserIdOrderByCreatedAtDesc(eq("u1"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(older, newer)));
+        when(notificationRepository.findById("n1")).thenReturn(Optional.of(older));
+
+        Page<Notification> page = notificationService.getNotificationsByEmail("alice@example.com",
+                PageRequest.of(0, 10));
+        assertTrue(page.getContent().get(0).isRead());
+        assertFalse(page.getContent().get(1).isRead());
+
+        // Already covered by the watermark, so no per-item write or counter change
+        older.setRead(false);
+        notificationService.markNotificationAsRead("alice@example.com", "n1");
+        verify(notificationRepository, never()).save(any(Notification.class));
+        verify(inboxService, never()).decrementUnread("u1");
+    }
+
+    @Test
+    void repeatedLikesCollapseIntoOneUnreadGroupCountingDistinctActors() {
+        MongoTemplate store = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("grouping")));
+        NotificationService grouping = new NotificationService(notificationRepository, mock(UserRepository.class),
+                mock(NotificationStreamService.class), inboxService, store);
+
+        Notification first = grouping.createGroupedNotification(like("bob", "Bob"));
+        assertEquals("Bob liked your post", first.getContent());
+
+        // bob, carol, then bob again after an unlike: two actors, not three
+        grouping.createGroupedNotification(like("carol", "Carol"));
+        Notification again = grouping.createGroupedNotification(like("bob", "Bob"));
+        assertEquals(first.getId(), again.getId());
+        assertEquals(2, again.getActorCount());
+        assertEquals(List.of("bob", "carol"), again.getActorIds());
+        assertEquals("Bob and 1 other liked your post", again.getContent());
+
+        Notification stored = store.findById(first.getId(), Notification.class);
+        assertEquals(2, stored.getActorCount());
+        assertEquals(List.of("bob", "carol"), stored.getActorIds());
+        assertEquals("bob", stored.getSenderId());
+        assertEquals(1, store.count(new Query(), Notification.class));
+
+        Notification dave = grouping.createGroupedNotification(like("dave", "Dave"));
+        assertEquals(3, dave.getActorCount());
+        assertEquals(List.of("bob", "carol", "dave"), dave.getActorIds());
+        assertEquals("Dave and 2 others liked your post", dave.getContent());
+
+        // Only the newly created group adds to the unread badge
+        verify(inboxService, times(1)).incrementUnread("u1");
+        verify(notificationRepository, never()).save(any(Notification.class));
+    }
+
+    // Two first likes racing: the one whose upsert loses on open_group_unique_idx retries and joins the winner's group
+    @Test
+    void aStartLostToTheUniqueIndexJoinsTheGroupThatWon() {
+        MongoTemplate store = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("racing")));
+        store.indexOps(Notification.class).ensureIndex(new CompoundIndexDefinition(
+                new org.bson.Document("userId", 1).append("type", 1).append("entityId", 1))
+                .unique().partial(PartialIndexFilter.of(Criteria.where("groupOpen").is(true)))
+                .named("open_group_unique_idx"));
+        MongoTemplate racing = spy(store);
+        NotificationService winner = new NotificationService(notificationRepository, mock(UserRepository.class),
+                mock(NotificationStreamService.class), inboxService, store);
+        NotificationService loser = new NotificationService(notificationRepository, mock(UserRepository.class),
+                mock(NotificationStreamService.class), inboxService, racing);
+        doAnswer(invocation -> {
+            winner.createGroupedNotification(like("carol", "Carol"));
+            throw new DuplicateKeyException("open_group_unique_idx");
+        }).doCallRealMethod().when(racing).findAndModify(any(Query.class), any(Update.class),
+                argThat((FindAndModifyOptions options) -> options.isUpsert()), eq(Notification.class));
+
+        Notification joined = loser.createGroupedNotification(like("bob", "Bob"));
+
+        assertEquals(2, joined.getActorCount());
+        assertEquals(List.of("carol", "bob"), joined.getActorIds());
+        assertEquals(1, store.count(new Query(), Notification.class));
+    }
+
+    // An expired group is closed before the next one starts, so the partial unique index admits the new one
+    @Test
+    void theNextWindowStartsANewOpenGroup() {
+        MongoTemplate store = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("windows")));
+        NotificationService grouping = new NotificationService(notificationRepository, mock(UserRepository.class),
+                mock(NotificationStreamService.class), inboxService, store);
+        Notification first = grouping.createGroupedNotification(like("bob", "Bob"));
+        store.updateFirst(Query.query(Criteria.where("id").is(first.getId())),
+                Update.update("groupStartedAt", new Date(System.currentTimeMillis() - 2 * 24 * 3_600_000L)),
+                Notification.class);
+
+        Notification next = grouping.createGroupedNotification(like("carol", "Carol"));
+
+        assertFalse(first.getId().equals(next.getId()));
+        assertEquals(null, store.findById(first.getId(), Notification.class).getGroupOpen());
+        assertEquals(true, store.findById(next.getId(), Notification.class).getGroupOpen());
+    }
+
+    private static Notification like(String senderId, String senderName) {
+        Notification like = notification(null, null);
+        like.setType("LIKE");
+        like.setEntityId("p1");
+        like.setSenderId(senderId);
+        like.setSenderName(senderName);
+        like.setAction("liked your post");
+        like.setContent(senderName + " liked your post");
+        return like;
+    }
+
+    private static NotificationInbox inbox(Date lastReadAt) {
+        NotificationInbox inbox = new NotificationInbox();
+        inbox.setId("u1");
+        inbox.setLastReadAt(lastReadAt);
+        return inbox;
+    }
+
+    private static Notification notification(String id, Date createdAt) {
+        Notification notification = new Notification();
+        notification.setId(id);
+        notification.setUserId("u1");
+        notification.setCreatedAt(createdAt);
+        return notification;
+    }
+}
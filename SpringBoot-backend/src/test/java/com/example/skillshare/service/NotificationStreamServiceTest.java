@@ -0,0 +1,184 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Notification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotificationStreamServiceTest {
+
+    private NotificationInboxService inboxService;
+    private NotificationStreamService streamService;
+    private final List<RecordingEmitter> created = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        inboxService = mock(NotificationInboxService.class);
+        when(inboxService.getUnreadCount("u1")).thenReturn(3L);
+        streamService = new NotificationStreamService(inboxService, 60_000, 2, 4, 2) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                created.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Notification notification(String userId) {
+        Notification notification = new Notification();
+        notification.setUserId(userId);
+        notification.setContent("Bob liked your post");
+        return notification;
+    }
+
+    @Test
+    void publishReachesEveryConnectionOfTheRecipientOnly() throws Exception {
+        RecordingEmitter first = (RecordingEmitter) streamService.connect("u1");
+        RecordingEmitter second = (RecordingEmitter) streamService.connect("u1");
+        RecordingEmitter other = (RecordingEmitter) streamService.connect("u2");
+        await(() -> first.events.size() == 1 && second.events.size() == 1 && other.events.size() == 1);
+        assertEquals("event:unread-count\ndata:3\n\n", first.events.get(0));
+
+        streamService.publish(notification("u1"));
+
+        await(() -> first.events.size() == 3 && second.events.size() == 3);
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertTrue(emitter.events.get(1).startsWith("event:notification\n"));
+            assertEquals("event:unread-count\ndata:3\n\n", emitter.events.get(2));
+        }
+        assertEquals(1, other.events.size());
+    }
+
+    @Test
+    void theOldestConnectionIsEvictedPastMaxPerUser() {
+        RecordingEmitter oldest = (RecordingEmitter) streamService.connect("u1");
+        streamService.connect("u1");
+        streamService.connect("u1");
+
+        assertTrue(oldest.completed);
+        assertEquals(2, streamService.connectionCount());
+        assertFalse(created.get(1).completed);
+    }
+
+    @Test
+    void heartbeatReachesEveryConnection() throws Exception {
+        RecordingEmitter first = (RecordingEmitter) streamService.connect("u1");
+        RecordingEmitter other = (RecordingEmitter) streamService.connect("u2");
+        await(() -> first.events.size() == 1 && other.events.size() == 1);
+
+        streamService.heartbeat();
+
+        await(() -> first.events.size() == 2 && other.events.size() == 2);
+        assertEquals(":heartbeat\n\n", first.events.get(1));
+    }
+
+    @Test
+    void connectionsThatFailToSendAreRemoved() throws Exception {
+        RecordingEmitter gone = (RecordingEmitter) streamService.connect("u1");
+        RecordingEmitter open = (RecordingEmitter) streamService.connect("u2");
+        await(() -> gone.events.size() == 1);
+        gone.failing = true;
+
+        streamService.heartbeat();
+
+        await(() -> gone.completed);
+        assertEquals(1, streamService.connectionCount());
+
+        streamService.shutdown();
+        assertTrue(open.completed);
+        assertEquals(0, streamService.connectionCount());
+    }
+
+    // A client stuck in a write backs up only its own queue; past the limit its events are dropped and counted
+    @Test
+    void aStuckClientDelaysNobodyElseAndOverflowIsCounted() throws Exception {
+        RecordingEmitter stuck = (RecordingEmitter) streamService.connect("u1");
+        await(() -> stuck.events.size() == 1);
+        CountDownLatch latch = new CountDownLatch(1);
+        stuck.block = latch;
+        streamService.heartbeat();
+        await(() -> stuck.blocked);
+
+        for (int i = 0; i < 10; i++) {
+            streamService.publish(notification("u1"));
+        }
+        RecordingEmitter other = (RecordingEmitter) streamService.connect("u2");
+        await(() -> other.events.size() == 1);
+        streamService.publish(notification("u2"));
+        await(() -> other.events.size() == 3);
+
+        // 4 queued behind the stuck write: three notifications and one unread count, which later publishes share
+        assertEquals(7, streamService.discardedEvents());
+
+        latch.countDown();
+        await(() -> stuck.events.size() == 6);
+        assertEquals("event:unread-count\ndata:3\n\n", stuck.events.get(3));
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        private volatile boolean completed;
+        private volatile CountDownLatch block;
+        private volatile boolean blocked;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            CountDownLatch latch = block;
+            if (latch != null) {
+                block = null;
+                blocked = true;
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            events.add(builder.build().stream()
+                    .map(part -> part.getData().toString())
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.model.Post;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+// Write-behind counters over the in-memory store
+class PostCounterServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private PostCounterService counterService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("counter_test")));
+        counterService = new PostCounterService(mongoTemplate);
+    }
+
+    private String post() {
+        return mongoTemplate.insert(new Post()).getId();
+    }
+
+    private Post load(String postId) {
+        return mongoTemplate.findById(postId, Post.class);
+    }
+
+    @Test
+    void aFailedBulkIsPutBackAndAppliedExactlyOnce() {
+        String liked = post();
+        String commented = post();
+        MongoTemplate failingOnce = spy(mongoTemplate);
+        doAnswer(invocation -> {
+            BulkOperations bulk = spy((BulkOperations) invocation.callRealMethod());
+            doThrow(new DataAccessResourceFailureException("Connection reset")).when(bulk).execute();
+            return bulk;
+        }).doCallRealMethod().when(failingOnce).bulkOps(any(BulkOperations.BulkMode.class), eq(Post.class));
+        counterService = new PostCounterService(failingOnce);
+
+        counterService.incrementLikes(liked, 2);
+        counterService.incrementComments(commented, 1);
+        counterService.flush();
+
+        assertEquals(0, load(liked).getLikesCount());
+        assertEquals(2, counterService.stats().get("pendingPosts"));
+        assertEquals(1L, counterService.stats().get("failedFlushes"));
+
+        // Deltas arriving before the retry merge with the ones put back
+        counterService.incrementLikes(liked, 1);
+        counterService.flush();
+        counterService.flush();
+
+        assertEquals(3, load(liked).getLikesCount());
+        assertEquals(1, load(commented).getCommentsCount());
+        assertEquals(0, counterService.stats().get("pendingPosts"));
+        assertEquals(2L, counterService.stats().get("flushedUpdates"));
+    }
+
+    @Test
+    void pendingDeltasAreFlushedOnShutdown() throws Exception {
+        String postId = post();
+        counterService.incrementLikes(postId, 1);
+        counterService.incrementComments(postId, 4);
+        counterService.incrementLikes(postId, -1);
+
+        assertNotNull(PostCounterService.class.getMethod("flushOnShutdown").getAnnotation(PreDestroy.class));
+        counterService.flushOnShutdown();
+
+        assertEquals(0, load(postId).getLikesCount());
+        assertEquals(4, load(postId).getCommentsCount());
+        assertEquals(0, counterService.stats().get("pendingPosts"));
+    }
+
+    // Deleting a comment the counter never saw must not leave commentsCount at -1
+    @Test
+    void decrementsBelowZeroAreClampedOnFlush() {
+        String postId = post();
+        String liked = post();
+        counterService.incrementComments(postId, -1);
+        counterService.incrementLikes(liked, 2);
+        counterService.incrementLikes(liked, -1);
+        counterService.flush();
+
+        assertEquals(0, load(postId).getCommentsCount());
+        assertEquals(1, load(liked).getLikesCount());
+    }
+
+    @Test
+    void pendingPostsAndFlushLagAreGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        counterService.bindTo(registry);
+        counterService.incrementLikes(post(), 1);
+        counterService.incrementLikes(post(), 1);
+
+        assertEquals(2.0, registry.get("skillshare.counters.pending.posts").gauge().value());
+        assertTrue(registry.get("skillshare.counters.pending.age").gauge().value() >= 0);
+
+        counterService.flush();
+
+        assertEquals(0.0, registry.get("skillshare.counters.pending.posts").gauge().value());
+        assertTrue(registry.get("skillshare.counters.flush.lag").gauge().value() >= 0);
+    }
+
+    // Increments racing flushes across every stripe are neither lost nor applied twice
+    @Test
+    void concurrentIncrementsWhileFlushingAreAllApplied() throws Exception {
+        List<String> postIds = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            postIds.add(post());
+        }
+        int threads = 4;
+        int rounds = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(pool.submit(() -> {
+                start.await();
+                for (int round = 0; round < rounds; round++) {
+                    for (String postId : postIds) {
+                        counterService.incrementLikes(postId, 1);
+                        counterService.incrementComments(postId, 2);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+            counterService.flush();
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        counterService.flush();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        for (String postId : postIds) {
+            Post post = load(postId);
+            assertEquals(threads * rounds, post.getLikesCount());
+            assertEquals(2 * threads * rounds, post.getCommentsCount());
+        }
+        assertEquals(0, counterService.stats().get("pendingPosts"));
+    }
+}
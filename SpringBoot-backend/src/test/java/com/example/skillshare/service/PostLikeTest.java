@@ -0,0 +1,301 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.config.MongoIndexManager;
+import com.example.skillshare.model.Notification;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.PostLike;
+import com.example.skillshare.model.User;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import com.example.skillshare.repository.CommentRepository;
+import com.example.skillshare.repository.PostLikeRepository;
+import com.example.skillshare.repository.PostRepository;
+import com.example.skillshare.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostLikeTest {
+
+    private MongoTemplate mongoTemplate;
+    private PostLikeRepository postLikeRepository;
+    private NotificationService notificationService;
+    private PostCounterService postCounterService;
+    private PostService postService;
+    private PostLikeService postLikeService;
+    private MongoIndexManager mongoIndexManager;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        postLikeRepository = mock(PostLikeRepository.class);
+        notificationService = mock(NotificationService.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        postCounterService = new PostCounterService(mongoTemplate);
+        BusinessMetrics businessMetrics = new BusinessMetrics(new SimpleMeterRegistry());
+        mongoIndexManager = mock(MongoIndexManager.class);
+        postLikeService = new PostLikeService(postLikeRepository, mongoTemplate, postCounterService, businessMetrics,
+                mongoIndexManager);
+        postService = new PostService(mock(PostRepository.class), userRepository, mock(CommentRepository.class),
+                notificationService, mock(TimelineService.class), postLikeService, mock(ExploreService.class),
+                mongoTemplate, businessMetrics, mock(FileStorageService.class));
+
+        User liker = new User();
+        liker.setId("liker");
+        liker.setName("Alice");
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(liker));
+
+        Post owned = new Post();
+        owned.setUserId("owner");
+        when(mongoTemplate.findOne(any(Query.class), eq(Post.class))).thenReturn(owned);
+        when(mongoTemplate.exists(any(Query.class), eq(Post.class))).thenReturn(true);
+    }
+
+    @Test
+    void likeNotifiesOwnerOnlyOnRealTransition() {
+        when(postLikeRepository.insert(any(PostLike.class)))
+                .thenReturn(new PostLike("p1", "liker"))
+                .thenThrow(new DuplicateKeyException("post_user_unique_idx"));
+
+        assertTrue(postService.likePost("alice@example.com", "p1"));
+        assertFalse(postService.likePost("alice@example.com", "p1"));
+
+        verify(notificationService).createGroupedNotification(any(Notification.class));
+    }
+
+    // The migration relies on post_user_unique_idx to skip likes an interrupted run already moved
+    @Test
+    void migrationWaitsForTheUniqueIndexes() {
+        when(mongoIndexManager.createMissingUniqueIndexes())
+                .thenReturn(List.of("post_likes.post_user_unique_idx [postId:1, userId:1] could not be created"));
+
+        postLikeService.migrateEmbeddedLikes();
+
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(Document.class), eq("posts"));
+    }
+
+    // The migration runs before serving, so a legacy liker's like and unlike see the migrated like
+    @Test
+    void legacyLikersLikeAndUnlikeAgainstTheMigratedLikes() {
+        MongoTemplate store = legacyStore();
+        String postId = legacyPost(store, List.of("u1", "u2"));
+        PostCounterService counters = new PostCounterService(store);
+        PostLikeService service = new PostLikeService(postLikeRepository, store, counters,
+                new BusinessMetrics(new SimpleMeterRegistry()), mongoIndexManager);
+        ReflectionTestUtils.setField(service, "migrateOnStartup", true);
+        when(mongoIndexManager.createMissingUniqueIndexes()).thenReturn(List.of());
+        when(postLikeRepository.insert(any(PostLike.class))).thenAnswer(invocation -> store.insert(
+                (PostLike) invocation.getArgument(0)));
+        when(postLikeRepository.deleteByPostIdAndUserId(any(), any())).thenAnswer(invocation -> store.remove(
+                Query.query(Criteria.where("postId").is(invocation.getArgument(0))
+                        .and("userId").is(invocation.getArgument(1))),
+                PostLike.class).getDeletedCount());
+
+        service.afterSingletonsInstantiated();
+
+        assertFalse(service.like("u1", postId));
+        assertTrue(service.unlike("u2", postId));
+        counters.flush();
+        assertEquals(1, store.findById(postId, Post.class).getLikesCount());
+        assertEquals(List.of("u1"), store.findAll(PostLike.class).stream().map(PostLike::getUserId).toList());
+        assertFalse(store.getCollection("posts").find().first().containsKey("likedBy"));
+    }
+
+    // A run interrupted after its inserts only meets duplicates on retry, which still completes the post
+    @Test
+    void migrationRetryAcceptsLikesAlreadyMoved() {
+        MongoTemplate store = legacyStore();
+        String postId = legacyPost(store, List.of("u1", "u2"));
+        store.insert(new PostLike(postId, "u1"));
+        when(mongoIndexManager.createMissingUniqueIndexes()).thenReturn(List.of());
+
+        new PostLikeService(postLikeRepository, store, new PostCounterService(store),
+                new BusinessMetrics(new SimpleMeterRegistry()), mongoIndexManager).migrateEmbeddedLikes();
+
+        assertEquals(2, store.count(new Query(), PostLike.class));
+        assertFalse(store.getCollection("posts").find().first().containsKey("likedBy"));
+    }
+
+    // A failure that is not a duplicate must not unset likedBy, or the likers it held are gone for good
+    @Test
+    void migrationKeepsLikedByWhenTheInsertFails() {
+        MongoTemplate store = legacyStore();
+        legacyPost(store, List.of("u1", "u2"));
+        MongoTemplate failing = spy(store);
+        doAnswer(invocation -> {
+            BulkOperations bulk = spy((BulkOperations) invocation.callRealMethod());
+            doThrow(new DataAccessResourceFailureException("Timed out")).when(bulk).execute();
+            return bulk;
+        }).when(failing).bulkOps(any(BulkOperations.BulkMode.class), eq(PostLike.class));
+        when(mongoIndexManager.createMissingUniqueIndexes()).thenReturn(List.of());
+
+        new PostLikeService(postLikeRepository, failing, new PostCounterService(failing),
+                new BusinessMetrics(new SimpleMeterRegistry()), mongoIndexManager).migrateEmbeddedLikes();
+
+        assertEquals(0, store.count(new Query(), PostLike.class));
+        assertEquals(List.of("u1", "u2"), store.getCollection("posts").find().first().getList("likedBy", String.class));
+    }
+
+    private static MongoTemplate legacyStore() {
+        MongoTemplate store = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("legacy")));
+        store.indexOps(PostLike.class).ensureIndex(new CompoundIndexDefinition(
+                new Document("postId", 1).append("userId", 1)).unique().named("post_user_unique_idx"));
+        return store;
+    }
+
+    // A post as written before post_likes: the likers embedded in the post and already counted
+    private static String legacyPost(MongoTemplate store, List<String> likedBy) {
+        ObjectId id = new ObjectId();
+        store.getCollection("posts").insertOne(new Document("_id", id).append("userId", "owner")
+                .append("likedBy", likedBy).append("likesCount", likedBy.size()));
+        return id.toHexString();
+    }
+
+    @Test
+    void repeatedUnlikeDoesNothing() {
+        when(postLikeRepository.deleteByPostIdAndUserId("p1", "liker")).thenReturn(0L);
+
+        assertFalse(postService.unlikePost("alice@example.com", "p1"));
+        assertEquals(0, postCounterService.stats().get("pendingPosts"));
+    }
+
+    @Test
+    void likeOnMissingPostIsRejected() {
+        when(mongoTemplate.exists(any(Query.class), eq(Post.class))).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> postService.likePost("alice@example.com", "missing"));
+        verify(postLikeRepository, never()).insert(any(PostLike.class));
+        verify(notificationService, never()).createGroupedNotification(any(Notification.class));
+    }
+
+    @Test
+    void countersAreFlushedAsOneBulkIncrement() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class)).thenReturn(bulk);
+        when(postLikeRepository.insert(any(PostLike.class))).thenReturn(new PostLike("p1", "liker"));
+        when(postLikeRepository.deleteByPostIdAndUserId("p2", "liker")).thenReturn(1L);
+
+        postService.likePost("alice@example.com", "p1");
+        postService.likePost("alice@example.com", "p1");
+        postService.unlikePost("alice@example.com", "p2");
+        postCounterService.incrementComments("p1", 1);
+        postCounterService.flush();
+
+        verify(bulk).updateOne(any(Query.class), eq(new Update().inc("likesCount", 2L).inc("commentsCount", 1L)));
+        verify(bulk).updateOne(any(Query.class), eq(new Update().inc("likesCount", -1L)));
+        verify(bulk).execute();
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(Post.class));
+        assertEquals(0, postCounterService.stats().get("pendingPosts"));
+    }
+
+    // On the in-memory store, which enforces post_user_unique_idx like the server does
+    @Nested
+    @SpringBootTest
+    @ActiveProfiles("perf")
+    class Concurrency {
+
+        private static final int LIKERS = 300;
+
+        @Autowired
+        private PostService service;
+
+        @Autowired
+        private PostRepository postRepository;
+
+        @Autowired
+        private PostLikeRepository likeRepository;
+
+        @Autowired
+        private UserRepository userRepository;
+
+        @Autowired
+        private PostCounterService counterService;
+
+        @Test
+        void parallelLikersEndWithExactCount() throws Exception {
+            Post post = new Post();
+            post.setUserId("owner");
+            post.setContent("concurrency");
+            post = postRepository.save(post);
+            String postId = post.getId();
+
+            List<String> emails = new ArrayList<>();
+            for (int i = 0; i < LIKERS; i++) {
+                User user = new User();
+                user.setName("Liker " + i);
+                user.setEmail("liker-" + i + "-" + postId + "@example.com");
+                userRepository.save(user);
+                emails.add(user.getEmail());
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(64);
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger transitions = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            try {
+                // Every user likes twice so duplicate likes race with first likes
+                for (int round = 0; round < 2; round++) {
+                    for (String email : emails) {
+                        futures.add(executor.submit(() -> {
+                            start.await();
+                            if (service.likePost(email, postId)) {
+                                transitions.incrementAndGet();
+                            }
+                            return null;
+                        }));
+                    }
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            counterService.flush();
+            Post liked = postRepository.findById(postId).orElseThrow();
+            assertEquals(LIKERS, transitions.get());
+            assertEquals(LIKERS, liked.getLikesCount());
+            assertEquals(LIKERS, likeRepository.countByPostId(postId));
+        }
+    }
+}
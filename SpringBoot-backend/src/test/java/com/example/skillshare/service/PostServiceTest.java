@@ -0,0 +1,98 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.dto.PostDto;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.User;
+import com.example.skillshare.repository.CommentRepository;
+import com.example.skillshare.repository.PostRepository;
+import com.example.skillshare.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Media references around post creation, which decide whether PostController may discard the uploads
+class PostServiceTest {
+
+    private static final List<String> MEDIA = List.of("/uploads/" + "a".repeat(64) + ".jpg");
+
+    private PostRepository postRepository;
+    private TimelineService timelineService;
+    private FileStorageService fileStorageService;
+    private PostService postService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(PostRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        timelineService = mock(TimelineService.class);
+        fileStorageService = mock(FileStorageService.class);
+        postService = new PostService(postRepository, userRepository, mock(CommentRepository.class),
+                mock(NotificationService.class), timelineService, mock(PostLikeService.class),
+                mock(ExploreService.class), mock(MongoTemplate.class), mock(BusinessMetrics.class),
+                fileStorageService);
+
+        user = new User();
+        user.setId("u1");
+        when(userRepository.findByEmail("u1@example.com")).thenReturn(Optional.of(user));
+        when(postRepository.insert(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private static PostDto postDto() {
+        PostDto postDto = new PostDto();
+        postDto.setContent("Sourdough, day three");
+        postDto.setMediaUrls(MEDIA);
+        return postDto;
+    }
+
+    @Test
+    void mediaAreReferencedBeforeThePostIsInserted() {
+        Post post = postService.createPost("u1@example.com", postDto());
+
+        InOrder order = inOrder(fileStorageService, postRepository);
+        order.verify(fileStorageService).addReferences(MEDIA, "post:" + post.getId());
+        order.verify(postRepository).insert(post);
+    }
+
+    // The post exists, so its media keep their reference and discard leaves them alone
+    @Test
+    void aFailureAfterTheInsertKeepsTheReferences() {
+        doThrow(new DataAccessResourceFailureException("Timed out")).when(timelineService).fanOutPost(eq(user),
+                any(Post.class));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> postService.createPost("u1@example.com", postDto()));
+
+        verify(postRepository).insert(any(Post.class));
+        verify(fileStorageService, never()).removeReferences(any(), anyString());
+    }
+
+    @Test
+    void aFailedInsertReleasesTheReferences() {
+        when(postRepository.insert(any(Post.class))).thenThrow(new DataAccessResourceFailureException("Timed out"));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> postService.createPost("u1@example.com", postDto()));
+
+        ArgumentCaptor<String> added = ArgumentCaptor.forClass(String.class);
+        verify(fileStorageService).addReferences(eq(MEDIA), added.capture());
+        verify(fileStorageService).removeReferences(MEDIA, added.getValue());
+    }
+}
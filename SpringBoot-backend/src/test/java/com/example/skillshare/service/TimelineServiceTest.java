@@ -0,0 +1,225 @@
+package com.example.skillshare.service;
+
+import com.example.skillshare.dto.CursorPage;
+import com.example.skillshare.dto.PostCursor;
+import com.example.skillshare.model.Post;
+import com.example.skillshare.model.TimelineEntry;
+import com.example.skillshare.model.TimelineMeta;
+import com.example.skillshare.model.User;
+import com.example.skillshare.perf.InMemoryMongoDatabaseFactory;
+import com.example.skillshare.perf.InMemoryMongoStore;
+import com.example.skillshare.repository.PostRepository;
+import com.example.skillshare.repository.TimelineEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// TimelineService over the in-memory store, with the declared indexes in place
+class TimelineServiceTest {
+
+    private MongoTemplate mongoTemplate;
+    private PostRepository postRepository;
+    private TimelineEntryRepository timelineEntryRepository;
+    private TimelineService timelineService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = new MongoTemplate(new InMemoryMongoDatabaseFactory(new InMemoryMongoStore("timeline_test")));
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> model : List.of(Post.class, TimelineEntry.class, User.class)) {
+            resolver.resolveIndexFor(model).forEach(index -> mongoTemplate.indexOps(model).ensureIndex(index));
+        }
+
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        postRepository = factory.getRepository(PostRepository.class);
+        timelineEntryRepository = factory.getRepository(TimelineEntryRepository.class);
+        // No fan-out pool: followers' entries are written before fanOutPost returns
+        timelineService = new TimelineService(timelineEntryRepository, postRepository, mongoTemplate, 0, 1);
+        ReflectionTestUtils.setField(timelineService, "maxEntries", 5);
+        ReflectionTestUtils.setField(timelineService, "backfillSize", 3);
+    }
+
+    private User user(String id, String... following) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(id + "@example.com");
+        user.setFollowing(new ArrayList<>(List.of(following)));
+        return mongoTemplate.insert(user);
+    }
+
+    private Post post(String userId, long createdAt) {
+        Post post = new Post();
+        post.setUserId(userId);
+        post.setCreatedAt(new Date(createdAt));
+        return postRepository.save(post);
+    }
+
+    private List<String> timelineOf(User user) {
+        return timelineService.getTimeline(user, PageRequest.of(0, 10)).getContent().stream()
+                .map(Post::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void legacyUsersAreRebuiltEvenAfterFanOutReachedThem() {
+        User author = user("author");
+        User reader = user("reader", "author");
+        Post older = post("author", 1_000);
+        Post newer = post("author", 2_000);
+        author.setFollowers(List.of("reader"));
+        timelineService.fanOutPost(author, newer);
+
+        assertEquals(List.of(newer.getId(), older.getId()), timelineOf(reader));
+        assertNotNull(mongoTemplate.findById("reader", TimelineMeta.class).getBuiltAt());
+
+        // Built once: an entry removed afterwards stays removed
+        timelineService.pruneAuthor("reader", "author");
+        assertEquals(List.of(), timelineOf(reader));
+    }
+
+    @Test
+    void entriesAlreadyPresentAreSkippedWithoutLosingTheRest() {
+        User author = user("author");
+        author.setFollowers(List.of("reader"));
+        Post first = post("author", 1_000);
+        timelineService.fanOutPost(author, first);
+        post("author", 2_000);
+
+        // The backfill overlaps the fan-out entry; the new post still lands
+        timelineService.backfillFromAuthor("reader", "author");
+        timelineService.fanOutPost(author, first);
+
+        assertEquals(2, timelineEntryRepository.countByOwnerId("reader"));
+        // Fanned out twice, stored once
+        assertEquals(1, timelineEntryRepository.countByOwnerId("author"));
+    }
+
+    @Test
+    void backfillAndRebuildTrimToMaxEntries() {
+        for (int i = 1; i <= 4; i++) {
+            post("a", i * 1_000L);
+            post("b", i * 1_000L + 500);
+        }
+
+        timelineService.backfillFromAuthor("reader", "a");
+        timelineService.backfillFromAuthor("reader", "b");
+        assertEquals(5, timelineEntryRepository.countByOwnerId("reader"));
+
+        User other = user("other", "a", "b");
+        timelineOf(other);
+        assertEquals(5, timelineEntryRepository.countByOwnerId("other"));
+    }
+
+    // The trim boundary sits inside a run of equal createdAt values; only it and what ranks below it go
+    @Test
+    void trimKeepsEntriesTiedWithTheBoundaryThatRankAboveIt() {
+        List<Post> posts = new ArrayList<>(List.of(post("author", 3_000), post("author", 3_000), post("author", 2_000),
+                post("author", 2_000), post("author", 2_000), post("author", 2_000), post("author", 1_000)));
+        posts.sort(Comparator.comparing(Post::getCreatedAt).thenComparing(Post::getId).reversed());
+
+        ReflectionTestUtils.setField(timelineService, "backfillSize", 10);
+        timelineService.backfillFromAuthor("reader", "author");
+
+        List<String> kept = timelineEntryRepository.findByOwnerIdOrderByCreatedAtDesc("reader", PageRequest.of(0, 10))
+                .stream().map(TimelineEntry::getPostId).sorted().collect(Collectors.toList());
+        assertEquals(posts.subList(0, 5).stream().map(Post::getId).sorted().collect(Collectors.toList()), kept);
+    }
+
+    // Every owner is trimmed as soon as it has gained trimEvery entries, so none ever exceeds maxEntries + trimEvery
+    @Test
+    void fanOutKeepsEveryTimelineWithinMaxEntriesPlusTrimEvery() {
+        ReflectionTestUtils.setField(timelineService, "trimEvery", 3);
+        User author = user("author");
+        author.setFollowers(List.of("reader"));
+
+        long peak = 0;
+        for (int i = 1; i <= 20; i++) {
+            timelineService.fanOutPost(author, post("author", i * 1_000L));
+            peak = Math.max(peak, timelineEntryRepository.countByOwnerId("reader"));
+        }
+
+        assertEquals(5 + 3 - 1, peak);
+        assertEquals(5 + 20 % 3, timelineEntryRepository.countByOwnerId("reader"));
+        assertEquals(20 % 3, mongoTemplate.findById("reader", TimelineMeta.class).getUntrimmed());
+    }
+
+    // The author's entry is there when the request returns; followers' entries follow from the pool
+    @Test
+    void followersAreWrittenOffTheRequestThread() throws Exception {
+        TimelineService pooled = new TimelineService(timelineEntryRepository, postRepository, mongoTemplate, 1, 10);
+        ReflectionTestUtils.setField(pooled, "maxEntries", 5);
+        User author = user("author");
+        List<String> followers = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            followers.add("reader-" + i);
+        }
+        author.setFollowers(followers);
+
+        pooled.fanOutPost(author, post("author", 1_000L));
+        assertEquals(1, timelineEntryRepository.countByOwnerId("author"));
+
+        pooled.shutdown();
+        assertEquals(2_501, mongoTemplate.count(new Query(), TimelineEntry.class));
+    }
+
+    private List<String> pageThrough(User user, int limit, List<String> cursors) {
+        List<String> ids = new ArrayList<>();
+        PostCursor after = null;
+        do {
+            CursorPage<Post> page = timelineService.getTimeline(user, after, limit);
+            page.getContent().forEach(post -> ids.add(post.getId()));
+            cursors.add(page.getNextCursor());
+            after = page.getNextCursor() == null ? null : PostCursor.decode(page.getNextCursor());
+        } while (after != null);
+        return ids;
+    }
+
+    // Posts sharing a createdAt straddle page boundaries; the postId tie-break keeps them in order, once each
+    @Test
+    void cursorPagesSplitTiesWithoutSkippingOrRepeating() {
+        ReflectionTestUtils.setField(timelineService, "maxEntries", 10);
+        List<Post> posts = new ArrayList<>(List.of(post("author", 3_000), post("author", 2_000),
+                post("author", 2_000), post("author", 2_000), post("author", 1_000)));
+        posts.sort(Comparator.comparing(Post::getCreatedAt).thenComparing(Post::getId).reversed());
+        User reader = user("reader", "author");
+
+        List<String> cursors = new ArrayList<>();
+        assertEquals(posts.stream().map(Post::getId).collect(Collectors.toList()), pageThrough(reader, 2, cursors));
+        assertEquals(3, cursors.size());
+        PostCursor boundary = PostCursor.decode(cursors.get(0));
+        assertEquals(posts.get(1).getId(), boundary.getId());
+        assertEquals(posts.get(1).getCreatedAt(), boundary.getCreatedAt());
+        assertNull(cursors.get(2));
+    }
+
+    // A last page that is exactly full has no cursor pointing at an empty page
+    @Test
+    void exactlyFullLastPageHasNoNextCursor() {
+        ReflectionTestUtils.setField(timelineService, "maxEntries", 10);
+        for (int i = 1; i <= 4; i++) {
+            post("author", i * 1_000L);
+        }
+        User reader = user("reader", "author");
+
+        List<String> cursors = new ArrayList<>();
+        assertEquals(4, pageThrough(reader, 2, cursors).size());
+        assertEquals(2, cursors.size());
+        assertNull(cursors.get(1));
+    }
+}